@@ -5,14 +5,30 @@ import sphero.common.*;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 import static sphero.common.Location.Type.DESTINATION;
 import static sphero.common.Location.Type.START;
 
 public class MazeGenerator {
+    private final boolean compactMaps;
+    private final Random random = new Random();
     private boolean[] visited;
 
+    public MazeGenerator() {
+        this(false);
+    }
+
+    /**
+     * @param compactMaps set to true, if the generated maps should not keep field objects in memory
+     */
+    public MazeGenerator(boolean compactMaps) {
+        this.compactMaps = compactMaps;
+    }
+
     public static void main(String[] args) {
         MazeGenerator g = new MazeGenerator();
         Configuration c = g.generate(15, 15, 10);
@@ -21,37 +37,37 @@ public class MazeGenerator {
     }
 
     public Configuration generate(int xSize, int ySize, int destinations) {
-        Map map = new Map(xSize, ySize, 1, true);
+        Map map = new Map(xSize, ySize, 1, true, compactMaps);
         visited = new boolean[xSize * ySize];
         randomDFS(map, map.getField(0, 0));
         List<Location> locationList = new ArrayList<>(destinations + 1);
-        Collections.shuffle(map.getAllFields());
-        Field start_field = map.getAllFields().get(0);
+        List<Field> fields = randomFields(map, destinations + 1);
+        Field start_field = fields.get(0);
         Location start = new Location(start_field, START);
         for (int i = 0; i < destinations; i++) {
-            locationList.add(new Location(map.getAllFields().get(i + 1), DESTINATION));
+            locationList.add(new Location(fields.get(i + 1), DESTINATION));
         }
         locationList.add(start);
         return new ConfigurationBuilder().withMap(map).withStart(start).withLocations(locationList).create();
     }
 
     public Configuration generate(int xSize, int ySize, int destinations, boolean noWalls) {
-        Map map = new Map(xSize, ySize, 1, false);
+        Map map = new Map(xSize, ySize, 1, false, compactMaps);
         visited = new boolean[xSize * ySize];
         if (!noWalls) randomDFS(map, map.getField(0, 0));
         List<Location> locationList = new ArrayList<>(destinations);
-        Collections.shuffle(map.getAllFields());
-        Field start_field = map.getAllFields().get(0);
+        List<Field> fields = randomFields(map, destinations + 1);
+        Field start_field = fields.get(0);
         Location start = new Location(start_field, START);
         for (int i = 0; i < destinations; i++) {
-            locationList.add(new Location(map.getAllFields().get(i + 1), DESTINATION));
+            locationList.add(new Location(fields.get(i + 1), DESTINATION));
         }
         locationList.add(start);
         return new ConfigurationBuilder().withMap(map).withStart(start).withLocations(locationList).create();
     }
 
     public Configuration generateCircular(int xSize, int ySize, int destinations, boolean noWalls) {
-        Map map = new Map(xSize, ySize, 1, false);
+        Map map = new Map(xSize, ySize, 1, false, compactMaps);
         visited = new boolean[xSize * ySize];
         if (!noWalls) randomDFS(map, map.getField(0, 0));
         List<Location> locationList = new ArrayList<>(destinations);
@@ -77,6 +93,23 @@ public class MazeGenerator {
         return new ConfigurationBuilder().withMap(map).withStart(start).withLocations(locationList).create();
     }
 
+    /**
+     * Picks distinct random fields of a map
+     */
+    private List<Field> randomFields(Map map, int count) {
+        int size = map.getSizeX() * map.getSizeY();
+        if (count > size) throw new IllegalArgumentException("map has less than " + count + " fields");
+        Set<Integer> ids = new LinkedHashSet<>();
+        while (ids.size() < count) {
+            ids.add(random.nextInt(size));
+        }
+        List<Field> fields = new ArrayList<>(count);
+        for (int id : ids) {
+            fields.add(map.getField(id));
+        }
+        return fields;
+    }
+
     private void randomDFS(Map map, Field f) {
         visited[f.getId()] = true;
         List<Field> neighbors = new ArrayList<>(4);
@@ -38,7 +38,7 @@ public class AntColony implements RoutingAlgorithm {
     @Override
     public RoutingResult calculate(Configuration config) {
         Path[][] paths = allPairShortestPaths.allPairs(config.getOrderedLocations(), config.getMap());
-        RoutingResult rs = new RoutingResult(new LinkedList<>(), (new CalculationContext()).simulateAnts(config, paths));
+        RoutingResult rs = new RoutingResult(new LinkedList<>(), (new CalculationContext()).simulateAnts(config, new DistanceMatrix(paths)));
         System.out.println("Ant: " + rs.getCost());
         LocalSearch ls = new LocalSearch(allPairShortestPaths,1000);
         System.out.println("TwoOpt: " + ls.calculate(config).getCost());
@@ -48,7 +48,7 @@ public class AntColony implements RoutingAlgorithm {
     private class CalculationContext {
         Ant ant;
         double [][] trails;
-        Path[][] paths;
+        DistanceMatrix paths;
         private Location [][] routes;
         private boolean [][] visited;
         double tau0;
@@ -58,7 +58,7 @@ public class AntColony implements RoutingAlgorithm {
         List<Location> locations;
         Location start;
 
-        double simulateAnts(Configuration config, Path[][] paths){
+        double simulateAnts(Configuration config, DistanceMatrix paths){
             mandatory = config.getOrderedLocations().stream().filter(Location::isMandatory).count();
             locations = config.getOrderedLocations();
             start = config.getStart();
@@ -75,8 +75,8 @@ public class AntColony implements RoutingAlgorithm {
 
             for (int i = 0; i < trails.length; i++) {
                 for (int j = 0; j < trails.length; j++) {
-                    Path p = paths[i][j];
-                    trails[i][j] = p == null ? 0 : Math.pow(p.getDistance(),-ant.beta);
+                    Path p = paths.getPath(i, j);
+                    trails[i][j] = p == null ? 0 : Math.pow(paths.cost(i, j),-ant.beta);
                 }
             }
 
@@ -110,8 +110,8 @@ public class AntColony implements RoutingAlgorithm {
                 routes[i][tour_count] = from;
                 Location next = next(ant, i, from, timer, mand_count == mandatory-1);
                 localUpdate(ant, from, next, trails, tau0);
-                timer+=paths[from.getId()][next.getId()].getTravelTime();
-                cost += paths[from.getId()][next.getId()].getCost();
+                timer+=paths.time(from, next);
+                cost += paths.cost(from, next);
                 if(next.isTimeCritical() && timer > next.getDeadline())
                     cost += 100000 * timer / next.getDeadline();
 
@@ -139,15 +139,15 @@ public class AntColony implements RoutingAlgorithm {
             Location best_location = null;
             for (int j = allowStart ? 0 : 1; j < visited[i].length; j++) {
                 if(visited[i][j]) continue;
-                Path path = paths[from.getId()][j];
+                Location to = locations.get(j);
                 double penalty = 0;
-                double arrival = time + path.getTravelTime();
-                if(path.getTo().isTimeCritical() && path.getTo().getDeadline() < arrival)
-                    penalty += 10000* arrival / path.getTo().getDeadline();
-                double x = trails[from.getId()][j] * Math.pow(1/(path.getCost()+penalty), ant.beta);
+                double arrival = time + paths.time(from.getId(), j);
+                if(to.isTimeCritical() && to.getDeadline() < arrival)
+                    penalty += 10000* arrival / to.getDeadline();
+                double x = trails[from.getId()][j] * Math.pow(1/(paths.cost(from.getId(), j)+penalty), ant.beta);
                 if(x > best){
                     best = x;
-                    best_location = path.getTo();
+                    best_location = to;
                 }
             }
             return best_location;
@@ -158,12 +158,12 @@ public class AntColony implements RoutingAlgorithm {
             double sum = 0;
             for (int j = allowStart ? 0 : 1; j < visited[i].length; j++) {
                 if(visited[i][j]) continue;
-                Path path = paths[from.getId()][j];
+                Location to = locations.get(j);
                 double penalty = 0;
-                double arrival = time + path.getTravelTime();
-                if(path.getTo().isTimeCritical() && path.getTo().getDeadline() < arrival)
-                    penalty += 10000* arrival / path.getTo().getDeadline();
-                double p = trails[from.getId()][j] * Math.pow(1/(path.getCost()+penalty), ant.beta);
+                double arrival = time + paths.time(from.getId(), j);
+                if(to.isTimeCritical() && to.getDeadline() < arrival)
+                    penalty += 10000* arrival / to.getDeadline();
+                double p = trails[from.getId()][j] * Math.pow(1/(paths.cost(from.getId(), j)+penalty), ant.beta);
                 probabilities[j] = p;
                 sum += p;
             }
@@ -174,7 +174,7 @@ public class AntColony implements RoutingAlgorithm {
                 if(visited[i][j]) continue;
                 cumulative += probabilities[j] / sum;
             }
-            return paths[from.getId()][j-1].getTo();
+            return locations.get(j-1);
         }
 
         void globalUpdate(Ant ant, Location[] route, int len, double cost, double [][] trails){
@@ -192,7 +192,7 @@ public class AntColony implements RoutingAlgorithm {
 
     }
 
-    public double estimate(Path [][] matrix, List<Location> locations){
+    public double estimate(DistanceMatrix matrix, List<Location> locations){
         Location [] route = new Location[locations.size()];
         boolean [] used = new boolean[locations.size()+1];
         int i = 0;
@@ -202,9 +202,9 @@ public class AntColony implements RoutingAlgorithm {
             double min = Integer.MAX_VALUE;
             for (int j = 1; j < locations.size(); j++) {
                 if(!used[j]){
-                    Path p = matrix[v][j];
-                    if(p.getCost() < min){
-                        min = p.getCost();
+                    double c = matrix.cost(v, j);
+                    if(c < min){
+                        min = c;
                         min_d = j;
                     }
                 }
@@ -214,21 +214,21 @@ public class AntColony implements RoutingAlgorithm {
             v = min_d;
             i++;
         }
-        return cost(matrix,route) + matrix[route.length-1][0].getCost();
+        return cost(matrix,route) + matrix.cost(route.length-1, 0);
     }
 
-    protected double cost(Path [][] matrix, Location[] tour){
+    protected double cost(DistanceMatrix matrix, Location[] tour){
         double sum = 0;
         double timer = 0;
         for (int i = 0; i < tour.length-1; i++) {
             Location a = tour[i];
             Location b = tour[i+1];
-            sum+=matrix[a.getId()][b.getId()].getCost();
-            timer+=matrix[a.getId()][b.getId()].getTravelTime();
+            sum+=matrix.cost(a, b);
+            timer+=matrix.time(a, b);
             if(b.isTimeCritical() && timer > b.getDeadline())
                 sum += 100000 * timer / b.getDeadline();
         }
-        sum+=matrix[tour[tour.length-1].getId()][tour[0].getId()].getCost();
+        sum+=matrix.cost(tour[tour.length-1], tour[0]);
         return sum;
     }
 
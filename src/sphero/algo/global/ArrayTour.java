@@ -0,0 +1,75 @@
+package sphero.algo.global;
+
+/**
+ * Tour as an array of ids and the position of every id
+ * next, previous and between take O(1), a flip reverses the shorter side of the cycle in O(n).
+ */
+class ArrayTour implements Tour {
+
+    private final int[] order;
+    /**
+     * position of every location id in the order
+     */
+    private final int[] pos;
+
+    /**
+     * @param order location ids in tour order, used as the array of the tour
+     * @param n     number of location ids
+     */
+    ArrayTour(int[] order, int n) {
+        this.order = order;
+        this.pos = new int[n];
+        for (int i = 0; i < order.length; i++) pos[order[i]] = i;
+    }
+
+    @Override
+    public int next(int id) {
+        int i = pos[id] + 1;
+        return order[i == order.length ? 0 : i];
+    }
+
+    @Override
+    public int previous(int id) {
+        int i = pos[id] - 1;
+        return order[i < 0 ? order.length - 1 : i];
+    }
+
+    @Override
+    public boolean between(int a, int b, int c) {
+        int i = pos[a];
+        int j = pos[b];
+        int k = pos[c];
+        return i <= k ? i <= j && j <= k : j >= i || j <= k;
+    }
+
+    @Override
+    public void flip(int a, int b, int c, int d) {
+        if (next(a) == b) reverse(pos[b], pos[c]);
+        else reverse(pos[c], pos[b]);
+    }
+
+    /**
+     * Reverses the tour from position i to position j (inclusive), wrapping around the end of the array
+     * The other part of the cycle is reversed instead if it is shorter, which results in the same cycle.
+     */
+    private void reverse(int i, int j) {
+        int length = order.length;
+        int inner = (j - i + length) % length + 1;
+        if (2 * inner > length) {
+            int temp = i;
+            i = (j + 1) % length;
+            j = (temp - 1 + length) % length;
+            inner = length - inner;
+        }
+        for (int k = 0; k < inner / 2; k++) {
+            int x = order[i];
+            int y = order[j];
+            order[i] = y;
+            order[j] = x;
+            pos[y] = i;
+            pos[x] = j;
+            i = i + 1 == length ? 0 : i + 1;
+            j = j == 0 ? length - 1 : j - 1;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package sphero.algo.global;
+
+import sphero.common.DistanceMatrix;
+import sphero.common.Location;
+
+import java.util.Set;
+
+/**
+ * 2-opt, relocate and Or-opt on neighbor lists with don't-look bits, for one tour
+ * <p>
+ * Every destination in the queue is checked for a move which creates an edge to one of its neighbors:
+ * a 2-opt move, which replaces its edge to the next or previous destination, or moving the destination
+ * (or a segment which begins or ends with it) next to a neighbor. Segments are moved through two or three
+ * 2-opt moves, so the search runs on any {@link Tour}. Segment insertion is not searched here.
+ * After an improvement, the end points of all changed edges are put back into the queue, every other destination
+ * stays out of it (its don't-look bit is set). The search ends when the queue is empty.
+ * <p>
+ * Like the full passes of {@link LocalSearch}, the moves assume symmetric costs.
+ */
+class CandidateSearch {
+
+    /**
+     * smallest improvement which is applied, so rounding errors cannot cause endless loops
+     */
+    private static final double EPSILON = 1e-9;
+
+    private final double[] cost;
+    private final int n;
+    private final NeighborLists neighbors;
+    private final boolean dontLookBits;
+    private final boolean twoOpt;
+    /**
+     * longest segment which is moved, 1 for relocate and 0 if no segments are moved
+     */
+    private final int maxSegment;
+
+    private Tour tour;
+    private int length;
+    private int[] queue;
+    private boolean[] queued;
+    private int head;
+    private int tail;
+    private int size;
+
+    CandidateSearch(DistanceMatrix distances, NeighborLists neighbors, LocalSearchOptions options) {
+        this.cost = distances.getCosts();
+        this.n = distances.size();
+        this.neighbors = neighbors;
+        this.dontLookBits = options.isDontLookBits();
+        Set<LocalSearchOptions.Move> moves = options.getMoves();
+        this.twoOpt = moves.contains(LocalSearchOptions.Move.TWO_OPT);
+        if (moves.contains(LocalSearchOptions.Move.OR_OPT)) maxSegment = LocalSearchOptions.OR_OPT_LENGTH;
+        else if (moves.contains(LocalSearchOptions.Move.RELOCATE)) maxSegment = 1;
+        else maxSegment = 0;
+    }
+
+    /**
+     * Improves the tour in place until no candidate move improves it
+     *
+     * @return improvement over the given tour
+     */
+    double improve(Location[] tour) {
+        length = tour.length;
+        if (length < 4) return 0;
+        this.tour = Tour.of(tour, n);
+        this.queue = new int[length];
+        this.queued = new boolean[n];
+        head = 0;
+        tail = 0;
+        size = 0;
+
+        double total = 0;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (Location l : tour) push(l.getId());
+            while (size > 0) {
+                int a = pop();
+                double gain = improveCity(a);
+                if (gain > 0) {
+                    total += gain;
+                    improved = true;
+                }
+            }
+            // with don't-look bits, the queue already contained every destination which might improve
+            if (dontLookBits) break;
+        }
+        this.tour.write(tour);
+        return total;
+    }
+
+    /**
+     * Applies the first improving move around a destination
+     *
+     * @return improvement, 0 if there is none
+     */
+    private double improveCity(int a) {
+        double gain = 0;
+        if (twoOpt) gain = twoOptSuccessor(a);
+        if (twoOpt && gain == 0) gain = twoOptPredecessor(a);
+        if (gain == 0 && maxSegment > 0) gain = moveSegment(a);
+        return gain;
+    }
+
+    /**
+     * replaces the edges (a, succ a) and (c, succ c) by (a, c) and (succ a, succ c)
+     */
+    private double twoOptSuccessor(int a) {
+        int b = next(a);
+        double ab = d(a, b);
+        for (int r = 0; r < neighbors.size(); r++) {
+            int c = neighbors.get(a, r);
+            double ac = d(a, c);
+            // the new edge to c has to be shorter than the removed edge of a, and the neighbors are sorted
+            if (ac >= ab) break;
+            int e = next(c);
+            if (c == b || e == a) continue;
+            double gain = ab + d(c, e) - ac - d(b, e);
+            if (gain > EPSILON) {
+                tour.flip(a, b, c, e);
+                pushAll(a, b, c, e);
+                return gain;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * replaces the edges (pred a, a) and (pred c, c) by (c, a) and (pred c, pred a)
+     */
+    private double twoOptPredecessor(int a) {
+        int b = previous(a);
+        double ba = d(b, a);
+        for (int r = 0; r < neighbors.size(); r++) {
+            int c = neighbors.get(a, r);
+            double ca = d(c, a);
+            if (ca >= ba) break;
+            int e = previous(c);
+            if (c == b || e == a) continue;
+            double gain = ba + d(e, c) - ca - d(e, b);
+            if (gain > EPSILON) {
+                tour.flip(b, a, e, c);
+                pushAll(a, b, c, e);
+                return gain;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * moves a segment of up to maxSegment destinations, which begins or ends with the destination,
+     * next to one of its neighbors, in the orientation which puts the destination beside the neighbor
+     */
+    private double moveSegment(int m) {
+        for (int l = 1; l <= maxSegment && l <= length - 3; l++) {
+            // the segment either starts or ends with m, a single destination only once
+            for (int end = 0; end < (l == 1 ? 1 : 2); end++) {
+                int first = m;
+                int last = m;
+                for (int k = 1; k < l; k++) {
+                    if (end == 0) last = next(last);
+                    else first = previous(first);
+                }
+                int p = previous(first);
+                int s = next(last);
+                double removed = d(p, first) + d(last, s) - d(p, s);
+                if (removed <= EPSILON) continue;
+                for (int r = 0; r < neighbors.size(); r++) {
+                    int c = neighbors.get(m, r);
+                    if (tour.between(first, c, last)) continue;
+                    // between c and its successor, or between its predecessor and c, with m next to c
+                    for (int side = 0; side < 2; side++) {
+                        int u = side == 0 ? c : previous(c);
+                        int w = side == 0 ? next(c) : c;
+                        if (tour.between(first, u, last) || tour.between(first, w, last)) continue;
+                        boolean forward = (side == 0) == (m == first);
+                        double added = forward ? d(u, first) + d(last, w) : d(u, last) + d(first, w);
+                        double gain = removed + d(u, w) - added;
+                        if (gain > EPSILON) {
+                            insert(p, first, last, s, u, w, forward);
+                            pushAll(p, first, last, s);
+                            push(u);
+                            push(w);
+                            return gain;
+                        }
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Moves the segment first..last from between p and s to between u and w through 2-opt moves
+     * The cycle reads p, first..last, s, ..., u, w, ... before the move.
+     *
+     * @param forward true for u, first..last, w and false for u, last..first, w
+     */
+    private void insert(int p, int first, int last, int s, int u, int w, boolean forward) {
+        if (w == p) {
+            // u, p, segment, s becomes u, reversed segment, p, s
+            tour.flip(u, p, last, s);
+        } else if (u == s) {
+            // p, segment, s, w becomes p, s, reversed segment, w
+            tour.flip(p, first, s, w);
+        } else {
+            tour.flip(p, first, u, w);
+            tour.flip(p, u, s, last);
+        }
+        if (forward && first != last) tour.flip(u, last, first, w);
+    }
+
+    private double d(int a, int b) {
+        return cost[a * n + b];
+    }
+
+    private int next(int id) {
+        return tour.next(id);
+    }
+
+    private int previous(int id) {
+        return tour.previous(id);
+    }
+
+    private void pushAll(int a, int b, int c, int d) {
+        push(a);
+        push(b);
+        push(c);
+        push(d);
+    }
+
+    private void push(int id) {
+        if (queued[id]) return;
+        queued[id] = true;
+        queue[tail] = id;
+        tail = tail + 1 == queue.length ? 0 : tail + 1;
+        size++;
+    }
+
+    private int pop() {
+        int id = queue[head];
+        head = head + 1 == queue.length ? 0 : head + 1;
+        size--;
+        queued[id] = false;
+        return id;
+    }
+}
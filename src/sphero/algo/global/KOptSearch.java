@@ -0,0 +1,312 @@
+package sphero.algo.global;
+
+import sphero.common.DistanceMatrix;
+import sphero.common.Location;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Lin–Kernighan style variable-depth search with kicks, for one tour
+ * <p>
+ * A move starts by removing the edge (t1, t2). At every level, an edge (t2, t3) to one of the neighbors of t2
+ * is added and the edge (t3, t4) is removed, so that closing the path with (t4, t1) gives a tour again.
+ * This is one 2-opt move per level, the chain of levels is a sequential 2-, 3- or k-opt move. A level is only
+ * entered while the sum of the removed minus the added edges stays positive (gain criterion), and the tour
+ * of the level with the best closed gain is kept. The first levels try several neighbors (backtracking),
+ * deeper levels only the first one which satisfies the gain criterion.
+ * <p>
+ * Once no move improves the tour, a random double bridge kick on nearby segments changes it in a way
+ * sequential moves cannot easily undo, and the search continues from there. Tours which are worse
+ * after the search are reverted to the best tour so far by undoing all flips since the kick.
+ * All changes are flips of a {@link Tour}, so large tours use the two-level list.
+ * <p>
+ * Like {@link CandidateSearch}, the moves assume symmetric costs.
+ */
+class KOptSearch {
+
+    /**
+     * smallest improvement which is applied, so rounding errors cannot cause endless loops
+     */
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * maximum number of levels of a move
+     */
+    private static final int MAX_DEPTH = 50;
+
+    /**
+     * number of neighbors which are tried on the first levels, deeper levels try one
+     */
+    private static final int[] BREADTH = {5, 3};
+
+    /**
+     * maximum length of the segments of a kick
+     */
+    private static final int KICK_SEGMENT = 50;
+
+    private final double[] cost;
+    private final int n;
+    private final NeighborLists neighbors;
+    private final Random random;
+
+    private Tour tour;
+    private int[] ids;
+    private int[] queue;
+    private boolean[] queued;
+    private int head;
+    private int tail;
+    private int size;
+
+    /**
+     * a, b, c and d of every flip of the current move, to undo them
+     */
+    private final int[] flipped = new int[4 * MAX_DEPTH];
+    /**
+     * a, b, c and d of every flip since the last kick, to revert the kick
+     */
+    private int[] journal = new int[64];
+    private int journalSize;
+    /**
+     * t2, t3 and t4 of every level of the current move, (t2, t3) is the added and (t3, t4) the removed edge
+     */
+    private final int[] t2s = new int[MAX_DEPTH];
+    private final int[] t3s = new int[MAX_DEPTH];
+    private final int[] t4s = new int[MAX_DEPTH];
+    private int flips;
+    private int bestFlips;
+    private double bestGain;
+
+    KOptSearch(DistanceMatrix distances, NeighborLists neighbors, Random random) {
+        this.cost = distances.getCosts();
+        this.n = distances.size();
+        this.neighbors = neighbors;
+        this.random = random;
+    }
+
+    /**
+     * Improves the tour in place, first to a local minimum and then with the given number of kicks
+     *
+     * @return improvement over the given tour
+     */
+    double improve(Location[] tour, int kicks) {
+        int length = tour.length;
+        if (length < 5) return 0;
+        this.tour = Tour.of(tour, n);
+        this.ids = new int[length];
+        this.queue = new int[length];
+        this.queued = new boolean[n];
+        head = 0;
+        tail = 0;
+        size = 0;
+        for (int i = 0; i < length; i++) ids[i] = tour[i].getId();
+
+        for (int id : ids) push(id);
+        double total = search();
+        for (int k = 0; k < kicks && length >= 8; k++) {
+            journalSize = 0;
+            double increase = kick();
+            double gain = search() - increase;
+            if (gain > EPSILON) {
+                total += gain;
+            } else {
+                // back to the best tour
+                for (int i = journalSize - 4; i >= 0; i -= 4) {
+                    this.tour.flip(journal[i], journal[i + 2], journal[i + 1], journal[i + 3]);
+                }
+            }
+        }
+        this.tour.write(tour);
+        return total;
+    }
+
+    /**
+     * Applies improving moves until the queue is empty
+     *
+     * @return improvement
+     */
+    private double search() {
+        double total = 0;
+        while (size > 0) {
+            int t1 = pop();
+            // an undone move may leave the tour in the other direction, so both neighbors are taken first
+            int succ = next(t1);
+            int pred = previous(t1);
+            for (int side = 0; side < 2; side++) {
+                int t2 = side == 0 ? succ : pred;
+                flips = 0;
+                bestFlips = 0;
+                bestGain = EPSILON;
+                step(t1, t2, d(t1, t2), 0);
+                if (bestFlips == 0) continue;
+                while (flips > bestFlips) undo();
+                for (int i = 0; i < 4 * bestFlips; i += 4) {
+                    record(flipped[i], flipped[i + 1], flipped[i + 2], flipped[i + 3]);
+                }
+                push(t1);
+                push(t2);
+                for (int i = 0; i < bestFlips; i++) {
+                    push(t3s[i]);
+                    push(t4s[i]);
+                }
+                total += bestGain;
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * One level of a move: the path from t2 to t1 is the tour without the edge (t1, t2)
+     *
+     * @param gain removed minus added edges so far
+     */
+    private void step(int t1, int t2, double gain, int level) {
+        int breadth = level < BREADTH.length ? BREADTH[level] : 1;
+        int tried = 0;
+        for (int r = 0; r < neighbors.size() && tried < breadth; r++) {
+            int t3 = neighbors.get(t2, r);
+            double g1 = gain - d(t2, t3);
+            // the neighbors are sorted, so no later neighbor satisfies the gain criterion either
+            if (g1 <= EPSILON) break;
+            if (t3 == t1 || t3 == next(t2) || t3 == previous(t2)) continue;
+            // t4 is the neighbor of t3 on the path towards t2, removing (t3, t4) keeps a Hamiltonian path
+            int t4 = next(t1) == t2 ? previous(t3) : next(t3);
+            if (isAdded(t3, t4, level)) continue;
+            tried++;
+
+            exchange(t1, t2, t4, t3);
+            t2s[level] = t2;
+            t3s[level] = t3;
+            t4s[level] = t4;
+            double g2 = g1 + d(t3, t4);
+            double closed = g2 - d(t4, t1);
+            if (closed > bestGain) {
+                bestGain = closed;
+                bestFlips = flips;
+            }
+            if (level + 1 < MAX_DEPTH) step(t1, t4, g2, level + 1);
+            // no backtracking once a move improves the tour
+            if (bestFlips > 0) return;
+            undo();
+        }
+    }
+
+    /**
+     * @return true if the edge was added on one of the levels of the current move, so it must not be removed
+     */
+    private boolean isAdded(int a, int b, int level) {
+        for (int i = 0; i < level; i++) {
+            if ((a == t2s[i] && b == t3s[i]) || (a == t3s[i] && b == t2s[i])) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Double bridge on three consecutive short segments: A B C D becomes A D C B, through four flips
+     *
+     * @return increase of the cost
+     */
+    private double kick() {
+        int length = ids.length;
+        int max = Math.max(1, Math.min(KICK_SEGMENT, length / 4));
+        int a = ids[random.nextInt(length)];
+        int b1 = next(a);
+        int b2 = walk(b1, random.nextInt(max));
+        int c1 = next(b2);
+        int c2 = walk(c1, random.nextInt(max));
+        int d1 = next(c2);
+        int d2 = walk(d1, random.nextInt(max));
+        int e = next(d2);
+        double delta = d(a, d1) + d(d2, c1) + d(c2, b1) + d(b2, e)
+                - d(a, b1) - d(b2, c1) - d(c2, d1) - d(d2, e);
+
+        // reverse the whole window, then every segment on its own
+        flip(a, b1, d2, e);
+        if (d1 != d2) flip(a, d2, d1, c2);
+        if (c1 != c2) flip(d2, c2, c1, b2);
+        if (b1 != b2) flip(c2, b2, b1, e);
+        pushAll(a, b1, b2, c1);
+        pushAll(c2, d1, d2, e);
+        return delta;
+    }
+
+    /**
+     * @return location the given number of steps after a location
+     */
+    private int walk(int id, int steps) {
+        for (int i = 0; i < steps; i++) id = next(id);
+        return id;
+    }
+
+    private double d(int a, int b) {
+        return cost[a * n + b];
+    }
+
+    private int next(int id) {
+        return tour.next(id);
+    }
+
+    private int previous(int id) {
+        return tour.previous(id);
+    }
+
+    /**
+     * Flip of the current move, which is recorded to undo it
+     */
+    private void exchange(int a, int b, int c, int d) {
+        tour.flip(a, b, c, d);
+        flipped[4 * flips] = a;
+        flipped[4 * flips + 1] = b;
+        flipped[4 * flips + 2] = c;
+        flipped[4 * flips + 3] = d;
+        flips++;
+    }
+
+    /**
+     * Reverts the last flip of the current move
+     */
+    private void undo() {
+        flips--;
+        tour.flip(flipped[4 * flips], flipped[4 * flips + 2], flipped[4 * flips + 1], flipped[4 * flips + 3]);
+    }
+
+    /**
+     * Flip of a kick, which is recorded to revert the kick
+     */
+    private void flip(int a, int b, int c, int d) {
+        tour.flip(a, b, c, d);
+        record(a, b, c, d);
+    }
+
+    private void record(int a, int b, int c, int d) {
+        if (journalSize + 4 > journal.length) journal = Arrays.copyOf(journal, 2 * journal.length);
+        journal[journalSize++] = a;
+        journal[journalSize++] = b;
+        journal[journalSize++] = c;
+        journal[journalSize++] = d;
+    }
+
+    private void pushAll(int a, int b, int c, int d) {
+        push(a);
+        push(b);
+        push(c);
+        push(d);
+    }
+
+    private void push(int id) {
+        if (queued[id]) return;
+        queued[id] = true;
+        queue[tail] = id;
+        tail = tail + 1 == queue.length ? 0 : tail + 1;
+        size++;
+    }
+
+    private int pop() {
+        int id = queue[head];
+        head = head + 1 == queue.length ? 0 : head + 1;
+        size--;
+        queued[id] = false;
+        return id;
+    }
+}
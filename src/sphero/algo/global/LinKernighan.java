@@ -0,0 +1,106 @@
+package sphero.algo.global;
+
+import sphero.algo.local.AllPairShortestPaths;
+import sphero.common.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Heuristic search for a good route with Lin–Kernighan style variable-depth moves
+ * Every run starts with a random tour, improves it with 2-opt and Or-opt on neighbor lists and then with
+ * sequential k-opt moves and kicks (see {@link KOptSearch}). Runs in parallel on all CPU cores and selects the best solution.
+ * <p>
+ * Finds better tours than {@link LocalSearch} for more than a few hundred destinations, where more random
+ * restarts of 2-opt and relocate hardly improve the result.
+ *
+ * @see sphero.common.RoutingAlgorithm
+ */
+public class LinKernighan implements RoutingAlgorithm {
+
+    /**
+     * number of nearest destinations which are candidates for the added edges
+     */
+    public static final int CANDIDATES = 8;
+
+    private final AllPairShortestPaths allPairShortestPaths;
+    private final int runs;
+    private final int kicks;
+
+    /**
+     * @param allPairShortestPaths dependency injection of an APSP implementation
+     * @param runs                 Amount of randomized runs, at least one per CPU core is sensible
+     * @param kicks                Amount of kicks per run (more kicks -> better results, but also longer runtime)
+     */
+    public LinKernighan(AllPairShortestPaths allPairShortestPaths, int runs, int kicks) {
+        this.allPairShortestPaths = allPairShortestPaths;
+        this.runs = runs;
+        this.kicks = kicks;
+    }
+
+    /**
+     * @see sphero.common.RoutingAlgorithm
+     * @return best solution over all runs
+     */
+    @Override
+    public RoutingResult calculate(Configuration config) {
+        Path[][] paths = allPairShortestPaths.allPairs(config.getOrderedLocations(), config.getMap());
+        if(paths == null) return new RoutingResult("Mindestens ein Ort auf der Karte ist unerreichbar.");
+        DistanceMatrix distances = new DistanceMatrix(paths);
+        LocalSearch.Solution s = runParallelized(config, distances);
+        List<Path> route = LocalSearch.toRoute(distances, s.best_tour);
+        return new RoutingResult(route, s.best_cost);
+    }
+
+    /**
+     * helper method for calculate() to execute the runs in parallel
+     */
+    protected LocalSearch.Solution runParallelized(Configuration config, DistanceMatrix distances) {
+        LocalSearch.Solution s = new LocalSearch.Solution();
+        NeighborLists neighbors = new NeighborLists(distances, CANDIDATES);
+        LocalSearchOptions start = new LocalSearchOptions().withMoves(LocalSearchOptions.Move.TWO_OPT, LocalSearchOptions.Move.OR_OPT);
+        try {
+            int threads = Runtime.getRuntime().availableProcessors();
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            CountDownLatch cdl = new CountDownLatch(runs);
+            for (int i = 0; i < runs; i++) {
+                pool.submit(() -> {
+                    Location[] tour = LocalSearch.randomOrder(config);
+                    minimize(distances, tour, neighbors, start);
+                    s.update(tour, cost(distances, tour));
+                    cdl.countDown();
+                });
+            }
+            cdl.await();
+            pool.shutdown();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        return s;
+    }
+
+    /**
+     * Performs one run
+     * Will overwrite the initial tour
+     */
+    protected void minimize(DistanceMatrix distances, Location[] tour, NeighborLists neighbors, LocalSearchOptions start) {
+        // the cheap moves remove most of the long edges of the random tour much faster than k-opt moves
+        new CandidateSearch(distances, neighbors, start).improve(tour);
+        new KOptSearch(distances, neighbors, new Random()).improve(tour, kicks);
+    }
+
+    /**
+     * Computes the cost for a route
+     */
+    protected double cost(DistanceMatrix matrix, Location[] tour) {
+        double sum = 0;
+        for (int i = 0; i < tour.length - 1; i++) {
+            sum += matrix.cost(tour[i], tour[i + 1]);
+        }
+        sum += matrix.cost(tour[tour.length - 1], tour[0]);
+        return sum;
+    }
+}
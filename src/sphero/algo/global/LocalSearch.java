@@ -6,6 +6,7 @@ import sphero.common.*;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -13,6 +14,7 @@ import java.util.concurrent.Executors;
 /**
  * Heuristic search for a good route
  * Starts with a random solution and improves it as much as possible through "2-Opt" and "Relocate"
+ * (or the moves selected in the {@link LocalSearchOptions})
  * Will run the algorithm multiple times in parallel with different initial solutions and select the best solution
  *
  * @see sphero.common.RoutingAlgorithm
@@ -20,8 +22,14 @@ import java.util.concurrent.Executors;
 public class LocalSearch implements RoutingAlgorithm {
 
 
+    /**
+     * smallest improvement of the Or-opt moves, so rounding errors cannot cause endless moves
+     */
+    private static final double MIN_GAIN = 1e-9;
+
     protected final AllPairShortestPaths allPairShortestPaths;
     protected final int iterations;
+    protected final LocalSearchOptions options;
 
     /**
      *
@@ -29,8 +37,18 @@ public class LocalSearch implements RoutingAlgorithm {
      * @param iterations           Amount of randomized runs (more runs -> better results, but also longer runtime)
      */
     public LocalSearch(AllPairShortestPaths allPairShortestPaths, int iterations) {
+        this(allPairShortestPaths, iterations, new LocalSearchOptions());
+    }
+
+    /**
+     * @param allPairShortestPaths dependency injection of an APSP implementation
+     * @param iterations           Amount of randomized runs (more runs -> better results, but also longer runtime)
+     * @param options              moves, neighbor lists and don't-look bits of the improvement steps
+     */
+    public LocalSearch(AllPairShortestPaths allPairShortestPaths, int iterations, LocalSearchOptions options) {
         this.allPairShortestPaths = allPairShortestPaths;
         this.iterations = iterations;
+        this.options = options;
     }
 
     /**
@@ -42,8 +60,9 @@ public class LocalSearch implements RoutingAlgorithm {
      */
     @Override
     public RoutingResult calculate(Configuration config) {
-        Path[][] distances = allPairShortestPaths.allPairs(config.getOrderedLocations(), config.getMap());
-        if(distances == null) return new RoutingResult("Mindestens ein Ort auf der Karte ist unerreichbar.");
+        Path[][] paths = allPairShortestPaths.allPairs(config.getOrderedLocations(), config.getMap());
+        if(paths == null) return new RoutingResult("Mindestens ein Ort auf der Karte ist unerreichbar.");
+        DistanceMatrix distances = new DistanceMatrix(paths);
         Solution s = runParallelized(config, distances);
         List<Path> route = toRoute(distances, s.best_tour);
         return new RoutingResult(route, s.best_cost);
@@ -52,8 +71,10 @@ public class LocalSearch implements RoutingAlgorithm {
     /**
      * helper method for calculate() to execute iterations in parallel
      */
-    protected Solution runParallelized(Configuration config, Path[][] distances) {
+    protected Solution runParallelized(Configuration config, DistanceMatrix distances) {
         Solution s = new Solution();
+        // shared by all runs, they only depend on the matrix
+        NeighborLists neighbors = options.getNeighbors() > 0 ? new NeighborLists(distances, options.getNeighbors()) : null;
         try {
             int threads = Runtime.getRuntime().availableProcessors();
             ExecutorService pool = Executors.newFixedThreadPool(threads);
@@ -61,7 +82,7 @@ public class LocalSearch implements RoutingAlgorithm {
             for (int i = 0; i < iterations; i++) {
                 pool.submit(() -> {
                     Location[] tour = randomOrder(config);
-                    minimize(distances, tour);
+                    minimize(distances, tour, neighbors);
                     double cost = cost(distances, tour);
                     s.update(tour, cost);
                     cdl.countDown();
@@ -90,24 +111,47 @@ public class LocalSearch implements RoutingAlgorithm {
         }
     }
 
+    /**
+     * Performs one run of the heuristic algorithm with the options of this instance
+     * Will overwrite the initial tour
+     *
+     * @param neighbors neighbor lists of the matrix, null for the full passes of {@link #minimize(DistanceMatrix, Location[])}
+     */
+    protected void minimize(DistanceMatrix distances, Location[] tour, NeighborLists neighbors) {
+        if (neighbors == null) {
+            minimize(distances, tour);
+        } else {
+            new CandidateSearch(distances, neighbors, options).improve(tour);
+        }
+    }
+
     /**
      * Performs one run of the heuristic algortihm to find a local minimum
      * Will overwrite the initial tour
      *
      * @param distances distance matrix for all destinations
      */
-    protected void minimize(Path[][] distances, Location[] tour) {
+    protected void minimize(DistanceMatrix distances, Location[] tour) {
+        Set<LocalSearchOptions.Move> moves = options.getMoves();
         int i = 0;
         double res = 0;
         double diff = 1;
         for (int j = 0; j < 10 && diff != 0; j++) {
-            while (diff != 0 && i < 100) {
+            while (diff != 0 && i < 100 && moves.contains(LocalSearchOptions.Move.TWO_OPT)) {
                 i++;
                 diff = improve_twoOpt(distances, tour);
                 res -= diff;
             }
             i = 0;
-            diff = improve_relocate(distances, tour);
+            diff = 0;
+            if (moves.contains(LocalSearchOptions.Move.RELOCATE)) diff += improve_relocate(distances, tour);
+            if (moves.contains(LocalSearchOptions.Move.OR_OPT)) {
+                diff += improve_orOpt(distances, tour, LocalSearchOptions.OR_OPT_LENGTH);
+            }
+            // the most expensive pass only runs in local minima of the other moves, both passes return positive gains
+            if (diff == 0 && moves.contains(LocalSearchOptions.Move.SEGMENT_INSERTION)) {
+                diff = improve_orOpt(distances, tour, tour.length);
+            }
         }
     }
 
@@ -118,21 +162,27 @@ public class LocalSearch implements RoutingAlgorithm {
      * @param tour      tour to be improved
      * @return improvement over given tour
      */
-    protected double improve_twoOpt(Path[][] distances, Location[] tour) {
+    protected double improve_twoOpt(DistanceMatrix distances, Location[] tour) {
         double diff = 0;
+        double[] cost = distances.getCosts();
+        int n = distances.size();
 
         for (int i = 0; i < tour.length - 1; i++) { //edge a
             Location a_from = tour[i];
             Location a_to = tour[i + 1];
             if(a_from == null ||a_to == null) break;
+            int a_row = a_from.getId() * n;
+            int a_to_id = a_to.getId();
             for (int j = i + 1; j < tour.length; j++) { //edge b
                 Location b_from = tour[j];
-                Location b_to = tour[(j + 1) % tour.length];
+                Location b_to = j + 1 < tour.length ? tour[j + 1] : tour[0];
                 if(b_from == null ||b_to == null) break;
-                double dist = distances[a_from.getId()][a_to.getId()].getCost() + distances[b_from.getId()][b_to.getId()].getCost();
-                double dist_alternative = distances[a_from.getId()][b_from.getId()].getCost() + distances[a_to.getId()][b_to.getId()].getCost();
+                int b_from_id = b_from.getId();
+                int b_to_id = b_to.getId();
+                double dist = cost[a_row + a_to_id] + cost[b_from_id * n + b_to_id];
+                double dist_alternative = cost[a_row + b_from_id] + cost[a_to_id * n + b_to_id];
                 if (dist > dist_alternative) { //found a 2-opt improvement
-                    a_to = b_from;
+                    a_to_id = b_from_id;
                     diff = dist - dist_alternative;
                     reverse(tour, i + 1, j);
                 }
@@ -165,25 +215,29 @@ public class LocalSearch implements RoutingAlgorithm {
      * @param tour      tour to be improved
      * @return improvement over given tour
      */
-    protected double improve_relocate(Path[][] distances, Location[] tour) {
+    protected double improve_relocate(DistanceMatrix distances, Location[] tour) {
         double diff = 0;
+        double[] cost = distances.getCosts();
+        int n = distances.size();
         for (int i = 0; i < tour.length; i++) { //Target node
             Location a_l = i == 0 ? tour[tour.length - 1] : tour[i - 1];
             Location m = tour[i];
             Location a_r = i == tour.length - 1 ? tour[0] : tour[i + 1];
+            int m_id = m.getId();
+            int m_row = m_id * n;
 
-            double dist_a = distances[a_l.getId()][m.getId()].getCost() + distances[m.getId()][a_r.getId()].getCost();
-            double dist_a_alt = distances[a_l.getId()][a_r.getId()].getCost();
+            double dist_a = cost[a_l.getId() * n + m_id] + cost[m_row + a_r.getId()];
+            double dist_a_alt = cost[a_l.getId() * n + a_r.getId()];
 
             double best_delta = Double.MIN_VALUE;
             int best_j = -1;
             for (int j = 0; j < tour.length - 1; j++) { //Connection, into which the node can be inserted
                 if (Math.abs(i - j) <= 1) continue;
-                Location b_l = tour[j];
-                Location b_r = tour[j + 1];
+                int b_l = tour[j].getId();
+                int b_r = tour[j + 1].getId();
 
-                double dist_b = distances[b_l.getId()][b_r.getId()].getCost();
-                double dist_b_alt = distances[b_l.getId()][m.getId()].getCost() + distances[m.getId()][b_r.getId()].getCost();
+                double dist_b = cost[b_l * n + b_r];
+                double dist_b_alt = cost[b_l * n + m_id] + cost[m_row + b_r];
                 double delta = (dist_a + dist_b) - (dist_a_alt + dist_b_alt);
                 if (delta > 0 && delta > best_delta) { //Found an improvment
                     best_delta = delta;
@@ -191,13 +245,90 @@ public class LocalSearch implements RoutingAlgorithm {
                 }
             }
             if (best_j != -1) {
-                diff -= best_delta;
+                diff += best_delta;
                 insert(tour, i, best_j + 1);
             }
         }
         return diff;
     }
 
+    /**
+     * Performs the Or-opt heuristic: moves segments of consecutive destinations to the best other position,
+     * forwards or reversed. With a maximum length of 1, this is relocate.
+     * The tour is treated as a cycle, but segments do not wrap around the end of the array.
+     *
+     * @param distances distance matrix for all destinations
+     * @param tour      tour to be improved
+     * @param maxLength maximum number of destinations in a segment
+     * @return improvement over given tour
+     */
+    protected double improve_orOpt(DistanceMatrix distances, Location[] tour, int maxLength) {
+        double diff = 0;
+        double[] cost = distances.getCosts();
+        int n = distances.size();
+        int length = tour.length;
+        maxLength = Math.min(maxLength, length - 3);
+        for (int l = 1; l <= maxLength; l++) { //Segment length
+            for (int i = 0; i + l <= length; i++) { //Segment tour[i..i+l-1]
+                int first = tour[i].getId();
+                int last = tour[i + l - 1].getId();
+                int prev = tour[i == 0 ? length - 1 : i - 1].getId();
+                int next = tour[i + l == length ? 0 : i + l].getId();
+                double removed = cost[prev * n + first] + cost[last * n + next] - cost[prev * n + next];
+                if (removed <= MIN_GAIN) continue;
+
+                double best_delta = MIN_GAIN;
+                int best_j = -1;
+                boolean best_reversed = false;
+                for (int j = 0; j < length; j++) { //Connection tour[j] -> tour[j+1], into which the segment can be inserted
+                    if ((j >= i - 1 && j < i + l) || (i == 0 && j == length - 1)) continue;
+                    int b_l = tour[j].getId();
+                    int b_r = tour[j + 1 == length ? 0 : j + 1].getId();
+                    double dist_b = cost[b_l * n + b_r];
+                    double delta = removed + dist_b - cost[b_l * n + first] - cost[last * n + b_r];
+                    if (delta > best_delta) {
+                        best_delta = delta;
+                        best_j = j;
+                        best_reversed = false;
+                    }
+                    delta = removed + dist_b - cost[b_l * n + last] - cost[first * n + b_r];
+                    if (l > 1 && delta > best_delta) {
+                        best_delta = delta;
+                        best_j = j;
+                        best_reversed = true;
+                    }
+                }
+                if (best_j != -1) {
+                    diff += best_delta;
+                    moveSegment(tour, i, l, best_j, best_reversed);
+                }
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * Moves a segment behind a different location, by rotating the part of the tour in between
+     *
+     * @param tour     target tour
+     * @param i        index of the first location of the segment
+     * @param l        number of locations in the segment
+     * @param j        index of the location behind which the segment is inserted, outside of the segment
+     * @param reversed true to insert the segment in reverse order
+     */
+    protected void moveSegment(Location[] tour, int i, int l, int j, boolean reversed) {
+        // rotating [A B] to [B A] is reversing A, B and then both, skipping A reverses the segment
+        if (j > i) {
+            if (!reversed) reverse(tour, i, i + l - 1);
+            reverse(tour, i + l, j);
+            reverse(tour, i, j);
+        } else {
+            reverse(tour, j + 1, i - 1);
+            if (!reversed) reverse(tour, i, i + l - 1);
+            reverse(tour, j + 1, i + l - 1);
+        }
+    }
+
     /**
      * Inserts a location at a different position in the tour
      * Parts of the array will be shifted
@@ -232,14 +363,12 @@ public class LocalSearch implements RoutingAlgorithm {
     /**
      * Computes the cost for a route
      */
-    protected double cost(Path[][] matrix, Location[] tour) {
+    protected double cost(DistanceMatrix matrix, Location[] tour) {
         double sum = 0;
         for (int i = 0; i < tour.length - 1; i++) {
-            Location a = tour[i];
-            Location b = tour[i + 1];
-            sum += matrix[a.getId()][b.getId()].getCost();
+            sum += matrix.cost(tour[i], tour[i + 1]);
         }
-        sum += matrix[tour[tour.length - 1].getId()][tour[0].getId()].getCost();
+        sum += matrix.cost(tour[tour.length - 1], tour[0]);
         return sum;
     }
 
@@ -260,7 +389,7 @@ public class LocalSearch implements RoutingAlgorithm {
     /**
      * Converts a tour (ordered list of destinations) to a route (list of paths)
      */
-    protected static List<Path> toRoute(Path[][] matrix, Location[] tour) {
+    protected static List<Path> toRoute(DistanceMatrix matrix, Location[] tour) {
         if(tour.length < 2) return new ArrayList<>();
         List<Path> route = new ArrayList<>(tour.length + 1);
         int start = 0;
@@ -271,7 +400,7 @@ public class LocalSearch implements RoutingAlgorithm {
             }
         }
         for (int i = 0; i < tour.length; i++) {
-            Path p = matrix[tour[(start + i) % tour.length].getId()][tour[(start + i + 1) % tour.length].getId()];
+            Path p = matrix.getPath(tour[(start + i) % tour.length], tour[(start + i + 1) % tour.length]);
             route.add(p);
         }
         return route;
@@ -0,0 +1,103 @@
+package sphero.algo.global;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Options of the improvement steps of {@link LocalSearch}
+ * <p>
+ * By default, every pass of 2-opt and relocate tries all O(n²) moves, which is exact but too slow for
+ * more than a few hundred destinations. With neighbor lists, only moves to the k nearest destinations
+ * of a destination are tried (see {@link NeighborLists}), and don't-look bits skip destinations
+ * whose surroundings have not changed since they were last checked without success.
+ * <p>
+ * The move set decides which neighborhoods are searched. Larger neighborhoods take longer per run,
+ * but every run ends in a better local minimum, so fewer randomized runs are needed for the same cost.
+ * <p>
+ * Example: new LocalSearch(apsp, 30, new LocalSearchOptions().withNeighbors(LocalSearchOptions.DEFAULT_NEIGHBORS));
+ */
+public class LocalSearchOptions {
+
+    /**
+     * number of neighbors which keeps the tours within about 1% of the full passes (see LSBenchmarkTools)
+     */
+    public static final int DEFAULT_NEIGHBORS = 10;
+
+    /**
+     * maximum number of destinations which are moved by an Or-opt move
+     */
+    public static final int OR_OPT_LENGTH = 3;
+
+    /**
+     * Moves of the local search, all of them are evaluated in O(1) on the distance matrix
+     */
+    public enum Move {
+        /**
+         * replaces two edges of the tour by two shorter ones and reverses the part in between
+         */
+        TWO_OPT,
+        /**
+         * moves one destination to a different place in the tour
+         */
+        RELOCATE,
+        /**
+         * moves a segment of up to {@link #OR_OPT_LENGTH} destinations to a different place, optionally reversed
+         */
+        OR_OPT,
+        /**
+         * moves a segment of any length to a different place, optionally reversed (the 3-opt moves which
+         * keep the order of two of the three parts). Takes O(n³) per pass, so it is only tried when no other
+         * move improves the tour, and only by the full passes, not with neighbor lists.
+         */
+        SEGMENT_INSERTION
+    }
+
+    private int neighbors = 0;
+    private boolean dontLookBits = true;
+    private Set<Move> moves = EnumSet.of(Move.TWO_OPT, Move.RELOCATE);
+
+    /**
+     * @param k number of nearest destinations which are tried per destination, 0 to try all moves in every pass
+     */
+    public LocalSearchOptions withNeighbors(int k) {
+        if (k < 0) throw new IllegalArgumentException("number of neighbors must not be negative");
+        this.neighbors = k;
+        return this;
+    }
+
+    /**
+     * Only used with neighbor lists
+     *
+     * @param dontLookBits true to only check destinations again whose tour neighbors have changed,
+     *                     false to check all destinations until a whole round finds no improvement
+     */
+    public LocalSearchOptions withDontLookBits(boolean dontLookBits) {
+        this.dontLookBits = dontLookBits;
+        return this;
+    }
+
+    /**
+     * @param moves moves which are tried, 2-opt and relocate by default
+     */
+    public LocalSearchOptions withMoves(Move... moves) {
+        if (moves.length == 0) throw new IllegalArgumentException("at least one move is required");
+        this.moves = EnumSet.of(moves[0], moves);
+        return this;
+    }
+
+    /**
+     * @return number of nearest destinations which are tried per destination, 0 if all moves are tried
+     */
+    public int getNeighbors() {
+        return neighbors;
+    }
+
+    public boolean isDontLookBits() {
+        return dontLookBits;
+    }
+
+    public Set<Move> getMoves() {
+        return Collections.unmodifiableSet(moves);
+    }
+}
@@ -2,6 +2,7 @@ package sphero.algo.global;
 
 import sphero.algo.local.AllPairShortestPaths;
 import sphero.common.Configuration;
+import sphero.common.DistanceMatrix;
 import sphero.common.Location;
 import sphero.common.Path;
 import sphero.common.RoutingResult;
@@ -57,7 +58,7 @@ public class LocalSearch_TimeCritical extends LocalSearch {
      * @param distances distance matrix for all destinations
      */
     @Override
-    protected void minimize(Path[][] distances, Location[] tour) {
+    protected void minimize(DistanceMatrix distances, Location[] tour) {
         int i = 0;
         double res = 0;
         double diff = 1;
@@ -70,39 +71,47 @@ public class LocalSearch_TimeCritical extends LocalSearch {
 
     /**
      * Führt die 2-Opt-Heuristik auf einer gegebenen Tour aus
+     * Jeder Kandidat wird ohne Kopie der Tour bewertet: Der unveränderte Anfang der Tour kommt aus den
+     * Präfix-Arrays, nur ab der umgedrehten Teilstrecke wird weitergerechnet (siehe {@link Prefixes}).
+     * Die Kosten sind dieselben wie bei {@link #cost(DistanceMatrix, Location[])} der umgedrehten Tour.
      *
-     * @param distances Path-Matrix von AllPairShortestPaths
+     * @param distances Distanzmatrix von AllPairShortestPaths
      * @param tour      zu verbessernde Tour
      * @return Größe der Verbesserung durch 2-Opt
      */
     @Override
-    protected double improve_twoOpt(Path[][] distances, Location[] tour) {
+    protected double improve_twoOpt(DistanceMatrix distances, Location[] tour) {
+        Prefixes prefixes = new Prefixes(distances, tour);
         double diff = 0;
-        double cost = cost(distances, tour);
-        Location[] res = tour;
+        double cost = prefixes.cost();
+        int best_i = -1;
+        int best_j = -1;
         for (int i = 0; i < tour.length - 1; i++) {
             for (int j = i + 1; j < tour.length; j++) {
-                Location[] alt = reversed(tour, i + 1, j);
-                double alt_cost = cost(distances, alt);
+                double alt_cost = prefixes.reversedCost(i, j, cost);
                 if (cost > alt_cost) {
                     diff = cost - alt_cost;
-                    res = alt;
+                    best_i = i;
+                    best_j = j;
                     cost = alt_cost;
                 }
             }
         }
-        System.arraycopy(res, 0, tour, 0, tour.length);
+        if (best_i >= 0) reverse(tour, best_i + 1, best_j);
         return diff;
     }
 
-
     /**
      * Reversed the order of a sub-array
      *
      * @param tour tour array
      * @param i    start of the region to be reversed (inclusive)
      * @param j    end of the region to be reversed (inclusive)
+     * @return copy of the tour with the region reversed
+     * @deprecated {@link #improve_twoOpt(DistanceMatrix, Location[])} no longer copies the tour for every
+     * candidate, use {@link #reverse(Location[], int, int)} to reverse in place
      */
+    @Deprecated
     protected Location[] reversed(Location[] tour, int i, int j) {
         Location[] copy = new Location[tour.length];
         System.arraycopy(tour, 0, copy, 0, i);
@@ -113,6 +122,118 @@ public class LocalSearch_TimeCritical extends LocalSearch {
         return copy;
     }
 
+    /**
+     * Distance, arrival time and penalty of every prefix of a tour, in the order of {@link #cost(DistanceMatrix, Location[])}
+     * <p>
+     * The tour with the part i+1..j reversed has the same first i edges, so its cost continues from the
+     * values of prefix i and adds the edges of the reversed part, of the rest and back to the start.
+     * The sums are added in the same order as in cost(), so the result is exactly the same.
+     * <p>
+     * Most candidates are rejected in O(1) by a lower bound from the prefix sums: the distance with the
+     * reversed edges, the penalty of the unchanged beginning and, if the rest of the tour is reached later
+     * than before, at least its old penalty. The others stop as soon as the partial cost reaches the bound.
+     */
+    static class Prefixes {
+
+        /**
+         * relative error which is allowed for the values estimated from differences of prefix sums
+         */
+        private static final double TOLERANCE = 1e-9;
+
+        private final double[] costs;
+        private final double[] times;
+        private final int n;
+        private final int[] ids;
+        private final boolean[] critical;
+        private final double[] deadlines;
+
+        /**
+         * values after the first k edges, at index k
+         */
+        private final double[] distance;
+        private final double[] time;
+        private final double[] penalty;
+        /**
+         * distance and travel time of the first k edges in the opposite direction, at index k
+         */
+        private final double[] back;
+        private final double[] backTime;
+
+        Prefixes(DistanceMatrix matrix, Location[] tour) {
+            costs = matrix.getCosts();
+            times = matrix.getTimes();
+            n = matrix.size();
+            int length = tour.length;
+            ids = new int[length];
+            critical = new boolean[n];
+            deadlines = new double[n];
+            for (int i = 0; i < length; i++) {
+                int id = tour[i].getId();
+                ids[i] = id;
+                critical[id] = tour[i].isTimeCritical();
+                deadlines[id] = tour[i].getDeadline();
+            }
+            distance = new double[length + 1];
+            time = new double[length + 1];
+            penalty = new double[length + 1];
+            back = new double[length + 1];
+            backTime = new double[length + 1];
+            for (int i = 0; i < length; i++) {
+                int a = ids[i];
+                int b = ids[i + 1 < length ? i + 1 : 0];
+                int edge = a * n + b;
+                distance[i + 1] = distance[i] + costs[edge];
+                time[i + 1] = time[i] + times[edge];
+                penalty[i + 1] = penalty[i];
+                if (critical[b] && deadlines[b] < time[i + 1]) {
+                    penalty[i + 1] += 100000 * time[i + 1] / deadlines[b];
+                }
+                back[i + 1] = back[i] + costs[b * n + a];
+                backTime[i + 1] = backTime[i] + times[b * n + a];
+            }
+        }
+
+        double cost() {
+            return distance[ids.length] + penalty[ids.length];
+        }
+
+        /**
+         * @param bound cost which the candidate has to beat
+         * @return cost of the tour with the part i+1..j reversed, or infinity if it is not below the bound
+         */
+        double reversedCost(int i, int j, double bound) {
+            int length = ids.length;
+            int after = j + 1 < length ? ids[j + 1] : ids[0];
+            int first = ids[i] * n + ids[j];
+            int last = ids[i + 1] * n + after;
+            double estimate = distance[i] + costs[first] + back[j] - back[i + 1]
+                    + costs[last] + distance[length] - distance[j + 1] + penalty[i];
+            // every deadline of the rest is missed by at least as much as before if it is reached later
+            double delay = time[i] + times[first] + backTime[j] - backTime[i + 1] + times[last] - time[j + 1];
+            if (delay > TOLERANCE * time[length]) estimate += penalty[length] - penalty[j + 1];
+            if (estimate - TOLERANCE * bound >= bound) return Double.POSITIVE_INFINITY;
+
+            double d = distance[i];
+            double t = time[i];
+            double p = penalty[i];
+            int a = ids[i];
+            for (int k = i + 1; k <= length; k++) {
+                // the reversed part, then the rest of the tour and back to the start
+                int b = k <= j ? ids[i + 1 + j - k] : k < length ? ids[k] : ids[0];
+                int edge = a * n + b;
+                d += costs[edge];
+                t += times[edge];
+                if (critical[b] && deadlines[b] < t) {
+                    p += 100000 * t / deadlines[b];
+                }
+                // distance and penalty only grow
+                if (d + p >= bound) return Double.POSITIVE_INFINITY;
+                a = b;
+            }
+            return d + p;
+        }
+    }
+
     /**
      * Computes the cost for a given route
      * Adds a heavy penalty for missed deadlines
@@ -137,15 +258,18 @@ public class LocalSearch_TimeCritical extends LocalSearch {
      * Adds a heavy penalty for missed deadlines
      */
     @Override
-    protected double cost(Path[][] matrix, Location[] tour) {
+    protected double cost(DistanceMatrix matrix, Location[] tour) {
+        double[] costs = matrix.getCosts();
+        double[] times = matrix.getTimes();
+        int n = matrix.size();
         double distance = 0;
         double time = 0;
         double penalty = 0;
         for (int i = 0; i < tour.length; i++) {
-            Location a = tour[i];
-            Location b = tour[(i + 1) % tour.length];
-            distance += matrix[a.getId()][b.getId()].getDistance();
-            time += matrix[a.getId()][b.getId()].getTravelTime();
+            Location b = i + 1 < tour.length ? tour[i + 1] : tour[0];
+            int edge = tour[i].getId() * n + b.getId();
+            distance += costs[edge];
+            time += times[edge];
             if (b.isTimeCritical() && b.getDeadline() < time) {
                 penalty += 100000 * time / b.getDeadline();
             }
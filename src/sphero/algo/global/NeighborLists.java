@@ -0,0 +1,62 @@
+package sphero.algo.global;
+
+import sphero.common.DistanceMatrix;
+
+/**
+ * The k nearest other destinations of every destination, by the costs of a {@link DistanceMatrix}
+ * <p>
+ * Good tours almost only use edges between near destinations, so a local search which only tries moves
+ * creating an edge to one of these candidates looks at O(n * k) instead of O(n²) moves per pass.
+ */
+public class NeighborLists {
+
+    private final int k;
+    /**
+     * neighbors of location id at index id * k, nearest first
+     */
+    private final int[] neighbors;
+
+    /**
+     * @param k number of neighbors per destination, at most n - 1 are kept
+     */
+    public NeighborLists(DistanceMatrix distances, int k) {
+        int n = distances.size();
+        this.k = Math.max(0, Math.min(k, n - 1));
+        this.neighbors = new int[n * this.k];
+        double[] cost = distances.getCosts();
+        double[] nearest = new double[this.k];
+        for (int a = 0; a < n; a++) {
+            // insertion into the sorted list of the k nearest so far
+            int base = a * this.k;
+            int count = 0;
+            for (int b = 0; b < n; b++) {
+                if (b == a) continue;
+                double c = cost[a * n + b];
+                if (count == this.k && (this.k == 0 || c >= nearest[count - 1])) continue;
+                int p = count < this.k ? count++ : count - 1;
+                while (p > 0 && nearest[p - 1] > c) {
+                    nearest[p] = nearest[p - 1];
+                    neighbors[base + p] = neighbors[base + p - 1];
+                    p--;
+                }
+                nearest[p] = c;
+                neighbors[base + p] = b;
+            }
+        }
+    }
+
+    /**
+     * @return number of neighbors of every destination
+     */
+    public int size() {
+        return k;
+    }
+
+    /**
+     * @param rank 0 for the nearest neighbor
+     * @return location id of a neighbor
+     */
+    public int get(int id, int rank) {
+        return neighbors[id * k + rank];
+    }
+}
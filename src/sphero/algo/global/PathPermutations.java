@@ -32,13 +32,15 @@ public class PathPermutations implements RoutingAlgorithm {
     public RoutingResult calculate(Configuration config) {
         Path[][] paths = allPairShortestPaths.allPairs(config.getOrderedLocations(), config.getMap());
         if(paths == null) return new RoutingResult("Mindestens ein Ort auf der Karte ist unerreichbar.");
-        CalculationContext context = new CalculationContext(config.getOrderedLocations(), paths);
+        CalculationContext context = new CalculationContext(config.getOrderedLocations(), new DistanceMatrix(paths));
         return new RoutingResult(context.getShortestRoute(), context.getDistance());
     }
 
     private static class CalculationContext {
         private final List<Location> locationList;
-        private final Path[][] paths;
+        private final DistanceMatrix paths;
+        private final double[] costs;
+        private final int n;
 
         private final boolean[] used; //marks already visited destinations
         private final int[] currentRoute; //ordered array of destinations (partial solution)
@@ -47,9 +49,11 @@ public class PathPermutations implements RoutingAlgorithm {
         private double min_distance = Double.MAX_VALUE; //cost of the min_route
 
 
-        public CalculationContext(List<Location> locationList, Path[][] paths) {
+        public CalculationContext(List<Location> locationList, DistanceMatrix paths) {
             this.locationList = locationList;
             this.paths = paths;
+            this.costs = paths.getCosts();
+            this.n = paths.size();
             used = new boolean[locationList.size()];
             used[0] = true;
             currentRoute = new int[locationList.size()];
@@ -67,17 +71,17 @@ public class PathPermutations implements RoutingAlgorithm {
         void recurse(int v, int i, double distance) {
             if (distance >= min_distance) return; //simple bounding
 
-            if (i == paths.length) {
-                distance += paths[v][0].getCost();
+            if (i == n) {
+                distance += costs[v * n];
                 if (distance >= min_distance) return;
                 min_distance = distance;
                 System.arraycopy(currentRoute, 0, min_route, 0, i);
             } else {
-                for (int w = 1; w < paths.length; w++) {
+                for (int w = 1; w < n; w++) {
                     if (!used[w]) {
                         used[w] = true;
                         currentRoute[i] = w;
-                        recurse(w, i + 1, distance + paths[v][w].getCost());
+                        recurse(w, i + 1, distance + costs[v * n + w]);
                         used[w] = false;
                     }
                 }
@@ -88,7 +92,7 @@ public class PathPermutations implements RoutingAlgorithm {
             if(min_route.length < 2) return new ArrayList<>();
             List<Path> route = new ArrayList<>(locationList.size());
             for (int i = 0; i < min_route.length; i++) {
-                Path p = paths[min_route[i]][min_route[(i + 1)%min_route.length]];
+                Path p = paths.getPath(min_route[i], min_route[(i + 1)%min_route.length]);
                 route.add(p);
             }
             return route;
@@ -0,0 +1,61 @@
+package sphero.algo.global;
+
+import sphero.common.Location;
+
+/**
+ * Cyclic order of location ids, which is only changed through 2-opt moves
+ * <p>
+ * The improvement steps only need the neighbors of a location, the order of three locations
+ * and the exchange of two edges, so the representation can be chosen by the size of the tour:
+ * an array for small tours and a two-level list for large ones (see {@link #of(Location[], int)}).
+ * The direction of the cycle is not fixed, a flip may reverse the whole tour.
+ */
+interface Tour {
+
+    /**
+     * number of locations from which on the two-level list is used
+     * The array reverses the shorter side of a flip, which is only a few locations for most moves between
+     * near locations, so the two-level list only catches up at about ten thousand locations.
+     */
+    int TWO_LEVEL_SIZE = 10000;
+
+    /**
+     * @param tour locations in tour order
+     * @param n    number of location ids, all ids of the tour are smaller
+     */
+    static Tour of(Location[] tour, int n) {
+        int[] order = new int[tour.length];
+        for (int i = 0; i < tour.length; i++) order[i] = tour[i].getId();
+        return tour.length >= TWO_LEVEL_SIZE ? new TwoLevelTour(order, n) : new ArrayTour(order, n);
+    }
+
+    int next(int id);
+
+    int previous(int id);
+
+    /**
+     * @return true if b is on the path from a to c in the direction of {@link #next(int)}, a and c included
+     */
+    boolean between(int a, int b, int c);
+
+    /**
+     * Replaces the edges (a, b) and (c, d) by (a, c) and (b, d), where the cycle reads a, b, ..., c, d
+     * in one of its two directions. flip(a, c, b, d) reverts the move.
+     */
+    void flip(int a, int b, int c, int d);
+
+    /**
+     * Writes the tour back into the array it was created from, the first location stays in place
+     */
+    default void write(Location[] tour) {
+        int n = 0;
+        for (Location l : tour) n = Math.max(n, l.getId() + 1);
+        Location[] byId = new Location[n];
+        for (Location l : tour) byId[l.getId()] = l;
+        int id = tour[0].getId();
+        for (int i = 0; i < tour.length; i++) {
+            tour[i] = byId[id];
+            id = next(id);
+        }
+    }
+}
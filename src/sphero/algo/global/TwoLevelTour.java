@@ -0,0 +1,249 @@
+package sphero.algo.global;
+
+/**
+ * Tour as an array which is divided into about √n segments, each with an orientation bit and a rank
+ * <p>
+ * The slots of a segment are read backwards if it is reversed. A path inside of one segment (or a path whose
+ * rest of the cycle is inside of one segment) is reversed in its slots. Otherwise, a flip splits at most two segments
+ * so that the reversed path consists of whole segments, and then reverses the order of these segments and
+ * toggles their orientation, which takes O(√n) instead of O(n) for the array. next, previous and between
+ * take O(1). Splitting makes the segments smaller over time, so the array is rewritten in tour order
+ * once there are three times as many segments as at the start.
+ */
+class TwoLevelTour implements Tour {
+
+    private final int length;
+    private final int segmentSize;
+    private final int maxSegments;
+
+    /**
+     * location ids, every segment is a range of slots
+     */
+    private final int[] slots;
+    /**
+     * slot and segment of every location id
+     */
+    private final int[] slot;
+    private final int[] segment;
+
+    /**
+     * first slot, number of slots, orientation and rank of every segment
+     */
+    private final int[] start;
+    private final int[] size;
+    private final boolean[] reversed;
+    private final int[] rank;
+    /**
+     * segments in tour order
+     */
+    private final int[] sequence;
+    private int count;
+
+    /**
+     * @param order location ids in tour order
+     * @param n     number of location ids
+     */
+    TwoLevelTour(int[] order, int n) {
+        this.length = order.length;
+        this.segmentSize = Math.max(1, (int) Math.sqrt(length));
+        this.maxSegments = 3 * ((length + segmentSize - 1) / segmentSize);
+        this.slots = new int[length];
+        this.slot = new int[n];
+        this.segment = new int[n];
+        // a flip splits at most two segments before the number is checked
+        this.start = new int[maxSegments + 2];
+        this.size = new int[maxSegments + 2];
+        this.reversed = new boolean[maxSegments + 2];
+        this.rank = new int[maxSegments + 2];
+        this.sequence = new int[maxSegments + 2];
+        build(order);
+    }
+
+    private void build(int[] order) {
+        System.arraycopy(order, 0, slots, 0, length);
+        count = 0;
+        for (int first = 0; first < length; first += segmentSize) {
+            int s = count++;
+            start[s] = first;
+            size[s] = Math.min(segmentSize, length - first);
+            reversed[s] = false;
+            rank[s] = s;
+            sequence[s] = s;
+        }
+        for (int i = 0; i < length; i++) {
+            slot[order[i]] = i;
+            segment[order[i]] = i / segmentSize;
+        }
+    }
+
+    /**
+     * @return position of an id in the tour order of its segment
+     */
+    private int position(int id) {
+        int s = segment[id];
+        return reversed[s] ? start[s] + size[s] - 1 - slot[id] : slot[id] - start[s];
+    }
+
+    /**
+     * @return id at a position in the tour order of a segment
+     */
+    private int at(int s, int p) {
+        return slots[reversed[s] ? start[s] + size[s] - 1 - p : start[s] + p];
+    }
+
+    @Override
+    public int next(int id) {
+        int s = segment[id];
+        int i = slot[id];
+        if (reversed[s]) {
+            if (i > start[s]) return slots[i - 1];
+        } else {
+            if (i + 1 < start[s] + size[s]) return slots[i + 1];
+        }
+        return at(sequence[rank[s] + 1 == count ? 0 : rank[s] + 1], 0);
+    }
+
+    @Override
+    public int previous(int id) {
+        int s = segment[id];
+        int i = slot[id];
+        if (reversed[s]) {
+            if (i + 1 < start[s] + size[s]) return slots[i + 1];
+        } else {
+            if (i > start[s]) return slots[i - 1];
+        }
+        int t = sequence[rank[s] == 0 ? count - 1 : rank[s] - 1];
+        return at(t, size[t] - 1);
+    }
+
+    @Override
+    public boolean between(int a, int b, int c) {
+        long i = key(a);
+        long j = key(b);
+        long k = key(c);
+        return i <= k ? i <= j && j <= k : j >= i || j <= k;
+    }
+
+    /**
+     * @return number which is ascending in tour order from the first segment on
+     */
+    private long key(int id) {
+        return ((long) rank[segment[id]] << 32) | position(id);
+    }
+
+    @Override
+    public void flip(int a, int b, int c, int d) {
+        if (next(a) == b) reversePath(b, c);
+        else reversePath(c, b);
+    }
+
+    /**
+     * Reverses the path from x to y in the direction of next
+     */
+    private void reversePath(int x, int y) {
+        // most paths of moves between near locations are short, and so is either the path or the rest of the cycle
+        if (segment[x] == segment[y] && position(x) <= position(y)) {
+            reverseSlots(x, y);
+            return;
+        }
+        int a = previous(x);
+        int d = next(y);
+        if (d == x) return;
+        if (segment[d] == segment[a] && position(d) <= position(a)) {
+            reverseSlots(d, a);
+            return;
+        }
+
+        int p = position(x);
+        if (p > 0) split(segment[x], p);
+        p = position(y);
+        if (p < size[segment[y]] - 1) split(segment[y], p + 1);
+
+        int from = rank[segment[x]];
+        int to = rank[segment[y]];
+        int inner = (to - from + count) % count + 1;
+        // a path through all segments is the whole cycle, reversing it does not change the cycle
+        if (inner < count) {
+            if (2 * inner > count) {
+                int temp = from;
+                from = (to + 1) % count;
+                to = (temp - 1 + count) % count;
+                inner = count - inner;
+            }
+            reverseSegments(from, to, inner);
+        }
+        if (count > maxSegments) rebuild();
+    }
+
+    /**
+     * Reverses the path from x to y inside of their segment
+     */
+    private void reverseSlots(int x, int y) {
+        int i = Math.min(slot[x], slot[y]);
+        int j = Math.max(slot[x], slot[y]);
+        for (; i < j; i++, j--) {
+            int u = slots[i];
+            int v = slots[j];
+            slots[i] = v;
+            slots[j] = u;
+            slot[v] = i;
+            slot[u] = j;
+        }
+    }
+
+    /**
+     * Reverses the order and the orientation of the segments from rank i to rank j (inclusive, cyclic)
+     */
+    private void reverseSegments(int i, int j, int inner) {
+        int first = i;
+        for (int k = 0; k < inner / 2; k++) {
+            int temp = sequence[i];
+            sequence[i] = sequence[j];
+            sequence[j] = temp;
+            i = i + 1 == count ? 0 : i + 1;
+            j = j == 0 ? count - 1 : j - 1;
+        }
+        for (int k = 0, r = first; k < inner; k++, r = r + 1 == count ? 0 : r + 1) {
+            int s = sequence[r];
+            reversed[s] = !reversed[s];
+            rank[s] = r;
+        }
+    }
+
+    /**
+     * Splits a segment in front of a position, the second part becomes a new segment after it
+     */
+    private void split(int s, int p) {
+        int t = count;
+        size[t] = size[s] - p;
+        reversed[t] = reversed[s];
+        if (reversed[s]) {
+            // the first positions are the last slots
+            start[t] = start[s];
+            start[s] += size[t];
+        } else {
+            start[t] = start[s] + p;
+        }
+        size[s] = p;
+        for (int i = start[t]; i < start[t] + size[t]; i++) segment[slots[i]] = t;
+
+        int r = rank[s] + 1;
+        System.arraycopy(sequence, r, sequence, r + 1, count - r);
+        sequence[r] = t;
+        count++;
+        for (; r < count; r++) rank[sequence[r]] = r;
+    }
+
+    /**
+     * Writes the ids in tour order and creates segments of the initial size again
+     */
+    private void rebuild() {
+        int[] order = new int[length];
+        int id = at(sequence[0], 0);
+        for (int i = 0; i < length; i++) {
+            order[i] = id;
+            id = next(id);
+        }
+        build(order);
+    }
+}
@@ -1,10 +1,15 @@
 package sphero.algo.global.benchmarks;
 
 import sphero.algo.MazeGenerator;
+import sphero.algo.global.LinKernighan;
 import sphero.algo.global.LocalSearch;
+import sphero.algo.global.LocalSearchOptions;
+import sphero.algo.global.NeighborLists;
 import sphero.algo.global.PathPermutations;
 import sphero.algo.local.AllPairShortestPaths;
 import sphero.common.Configuration;
+import sphero.common.DistanceMatrix;
+import sphero.common.Location;
 import sphero.common.Path;
 import sphero.common.RoutingResult;
 
@@ -18,6 +23,10 @@ public class LSBenchmarkTools extends LocalSearch {
         super(allPairShortestPaths, iterations);
     }
 
+    public LSBenchmarkTools(AllPairShortestPaths allPairShortestPaths, int iterations, LocalSearchOptions options) {
+        super(allPairShortestPaths, iterations, options);
+    }
+
     public static void main(String[] args) throws IOException {
         printBenchmarkReport();
         /*GUI gui = new GUI("Hello Darkness my old friend");
@@ -56,6 +65,155 @@ public class LSBenchmarkTools extends LocalSearch {
         System.out.println("Avrg  = " + avrg_t);
         System.out.println("Worst = " + worst_t);
         System.out.println("-------------------------");
+
+        for (int size : new int[]{100, 300, 1000}) {
+            double[] neighbor_results = benchmarkNeighbors(size, 10);
+            System.out.println("------Neighbor lists, " + size + " locations---------");
+            System.out.println("Full passes        = " + neighbor_results[0] + " ms/run");
+            System.out.println("k=" + LocalSearchOptions.DEFAULT_NEIGHBORS + ", don't-look bits = " + neighbor_results[1] + " ms/run");
+            System.out.println("Cost ratio         = " + neighbor_results[2]);
+            System.out.println("-------------------------");
+        }
+
+        benchmarkLinKernighan(300, new int[]{300}); //warm up
+        for (int size : new int[]{500, 1000, 2000}) {
+            int[] kicks = {0, size / 10, size / 4, size};
+            double[] lk_results = benchmarkLinKernighan(size, kicks);
+            System.out.println("------Lin-Kernighan, " + size + " locations---------");
+            System.out.println("LocalSearch, 30 restarts = " + lk_results[1] + " in " + lk_results[0] + " ms");
+            for (int i = 0; i < kicks.length; i++) {
+                System.out.println("LinKernighan, " + kicks[i] + " kicks = " + lk_results[3 + 2 * i] + " in " + lk_results[2 + 2 * i] + " ms");
+            }
+            System.out.println("-------------------------");
+        }
+
+        int[] restarts = {1, 2, 5, 10, 20, 50, 100};
+        benchmarkMoves(100, restarts); //warm up
+        for (int size : new int[]{100, 300}) {
+            double[][] move_results = benchmarkMoves(size, restarts);
+            System.out.println("------Move sets, " + size + " locations (restarts: ms / cost relative to the best)---------");
+            for (int s = 0; s < MOVE_SETS.length; s++) {
+                StringBuilder line = new StringBuilder(Arrays.toString(MOVE_SETS[s]) + ":");
+                for (int c = 0; c < restarts.length; c++) {
+                    line.append(String.format("  %d: %.1f / %.4f", restarts[c], move_results[s][2 * c], move_results[s][2 * c + 1]));
+                }
+                System.out.println(line);
+            }
+            System.out.println("-------------------------");
+        }
+    }
+
+    /**
+     * move sets which are compared by {@link #benchmarkMoves(int, int[])}
+     */
+    public static final LocalSearchOptions.Move[][] MOVE_SETS = {
+            {LocalSearchOptions.Move.TWO_OPT, LocalSearchOptions.Move.RELOCATE},
+            {LocalSearchOptions.Move.TWO_OPT, LocalSearchOptions.Move.OR_OPT},
+            {LocalSearchOptions.Move.TWO_OPT, LocalSearchOptions.Move.OR_OPT, LocalSearchOptions.Move.SEGMENT_INSERTION}
+    };
+
+    /**
+     * Cost over time: runs the randomized restarts of every move set in {@link #MOVE_SETS} one after another
+     * on the same random tours (full passes, single thread) and records the best cost after some of them
+     *
+     * @param restarts ascending numbers of runs after which the best cost is recorded
+     * @return per move set: milliseconds and best cost relative to the best tour of all move sets, for every entry of restarts
+     */
+    public static double[][] benchmarkMoves(int size, int[] restarts) {
+        Configuration config = (new MazeGenerator(true)).generate(1000, 1000, size - 1, true);
+        Path[][] paths = (new MazeGenerator()).mockDistanceMatrix(config.getOrderedLocations())
+                .allPairs(config.getOrderedLocations(), config.getMap());
+        DistanceMatrix matrix = new DistanceMatrix(paths);
+        int runs = restarts[restarts.length - 1];
+        Location[][] tours = new Location[runs][];
+        for (int i = 0; i < runs; i++) tours[i] = randomOrder(config);
+
+        double[][] results = new double[MOVE_SETS.length][2 * restarts.length];
+        double best = Double.MAX_VALUE;
+        for (int s = 0; s < MOVE_SETS.length; s++) {
+            LSBenchmarkTools t = new LSBenchmarkTools(null, 1, new LocalSearchOptions().withMoves(MOVE_SETS[s]));
+            double bestCost = Double.MAX_VALUE;
+            long time = 0;
+            int next = 0;
+            for (int i = 0; i < runs; i++) {
+                Location[] tour = Arrays.copyOf(tours[i], tours[i].length);
+                long t1 = System.nanoTime();
+                t.minimize(matrix, tour, null);
+                time += System.nanoTime() - t1;
+                bestCost = Math.min(bestCost, t.cost(matrix, tour));
+                if (i + 1 == restarts[next]) {
+                    results[s][2 * next] = time / 1e6;
+                    results[s][2 * next + 1] = bestCost;
+                    next++;
+                }
+            }
+            best = Math.min(best, bestCost);
+        }
+        for (double[] r : results) {
+            for (int c = 1; c < r.length; c += 2) r[c] /= best;
+        }
+        return results;
+    }
+
+    /**
+     * Compares the configuration of LocalSearch for large tours (30 restarts on neighbor lists) with one run
+     * of LinKernighan, on the same map (single thread)
+     *
+     * @param kicks numbers of kicks of LinKernighan
+     * @return milliseconds and cost of LocalSearch, then milliseconds and cost of LinKernighan for every number of kicks
+     */
+    public static double[] benchmarkLinKernighan(int size, int[] kicks) {
+        Configuration config = (new MazeGenerator(true)).generate(1000, 1000, size - 1, true);
+        AllPairShortestPaths mock = (new MazeGenerator()).mockDistanceMatrix(config.getOrderedLocations());
+        LocalSearch localSearch = new LocalSearch(mock, 30, new LocalSearchOptions().withNeighbors(LocalSearchOptions.DEFAULT_NEIGHBORS));
+        double[] results = new double[2 + 2 * kicks.length];
+        long t1 = System.nanoTime();
+        results[1] = localSearch.calculate(config).getCost();
+        long t2 = System.nanoTime();
+        results[0] = (t2 - t1) / 1e6;
+        for (int i = 0; i < kicks.length; i++) {
+            t1 = System.nanoTime();
+            results[3 + 2 * i] = new LinKernighan(mock, 1, kicks[i]).calculate(config).getCost();
+            t2 = System.nanoTime();
+            results[2 + 2 * i] = (t2 - t1) / 1e6;
+        }
+        return results;
+    }
+
+    /**
+     * Improves the same random tours with full passes and with neighbor lists and don't-look bits
+     *
+     * @return milliseconds per run of both, and the average cost with neighbor lists relative to the full passes
+     */
+    public static double[] benchmarkNeighbors(int size, int runs) {
+        Configuration config = (new MazeGenerator(true)).generate(1000, 1000, size - 1, true);
+        Path[][] paths = (new MazeGenerator()).mockDistanceMatrix(config.getOrderedLocations())
+                .allPairs(config.getOrderedLocations(), config.getMap());
+        DistanceMatrix matrix = new DistanceMatrix(paths);
+        LSBenchmarkTools full = new LSBenchmarkTools(null, 1);
+        LSBenchmarkTools candidates = new LSBenchmarkTools(null, 1,
+                new LocalSearchOptions().withNeighbors(LocalSearchOptions.DEFAULT_NEIGHBORS));
+        NeighborLists neighbors = new NeighborLists(matrix, LocalSearchOptions.DEFAULT_NEIGHBORS);
+        long timeFull = 0;
+        long timeCandidates = 0;
+        double costFull = 0;
+        double costCandidates = 0;
+        for (int i = 0; i < runs; i++) {
+            Location[] tour = randomOrder(config);
+            Location[] copy = Arrays.copyOf(tour, tour.length);
+
+            long t1 = System.nanoTime();
+            full.minimize(matrix, tour, null);
+            long t2 = System.nanoTime();
+            candidates.minimize(matrix, copy, neighbors);
+            long t3 = System.nanoTime();
+
+            timeFull += t2 - t1;
+            timeCandidates += t3 - t2;
+            costFull += full.cost(matrix, tour);
+            costCandidates += candidates.cost(matrix, copy);
+        }
+        return new double[]{timeFull / 1e6 / runs, timeCandidates / 1e6 / runs, costCandidates / costFull};
     }
 
     public double[] benchmarkOptimality(int scenarios, int min_size, int max_size) {
@@ -0,0 +1,93 @@
+package sphero.algo.global.benchmarks;
+
+import sphero.algo.MazeGenerator;
+import sphero.algo.global.LocalSearch;
+import sphero.algo.local.AllPairShortestPaths;
+import sphero.common.Configuration;
+import sphero.common.DistanceMatrix;
+import sphero.common.Location;
+import sphero.common.Path;
+
+import java.util.Arrays;
+
+/**
+ * Compares 2-opt passes on the path matrix against 2-opt passes on the flat {@link DistanceMatrix}
+ */
+public class TwoOptBenchmarkTools extends LocalSearch {
+    public TwoOptBenchmarkTools(AllPairShortestPaths allPairShortestPaths, int iterations) {
+        super(allPairShortestPaths, iterations);
+    }
+
+    public static void main(String[] args) {
+        printBenchmarkReport();
+    }
+
+    public static void printBenchmarkReport() {
+        TwoOptBenchmarkTools t = new TwoOptBenchmarkTools(new AllPairShortestPaths(), 1);
+        t.benchmarkPasses(200, 5); //warm up
+        for (int size : new int[]{100, 200, 500, 1000}) {
+            double[] results = t.benchmarkPasses(size, 10);
+            System.out.println("------" + size + " locations---------");
+            System.out.println("Path[][]       = " + results[0] + " ms/pass");
+            System.out.println("DistanceMatrix = " + results[1] + " ms/pass");
+            System.out.println("Speedup        = " + results[0] / results[1]);
+            System.out.println("-------------------------");
+        }
+    }
+
+    /**
+     * Improves the same random tours with both matrices until 2-opt finds no further improvement
+     *
+     * @return average milliseconds per 2-opt pass on the path matrix and on the flat matrix
+     */
+    public double[] benchmarkPasses(int size, int tours) {
+        Configuration config = (new MazeGenerator(true)).generate(1000, 1000, size - 1, true);
+        Path[][] paths = (new MazeGenerator()).mockDistanceMatrix(config.getOrderedLocations())
+                .allPairs(config.getOrderedLocations(), config.getMap());
+        DistanceMatrix matrix = new DistanceMatrix(paths);
+        long passesPaths = 0;
+        long passesMatrix = 0;
+        long timePaths = 0;
+        long timeMatrix = 0;
+        for (int i = 0; i < tours; i++) {
+            Location[] tour = randomOrder(config);
+            Location[] copy = Arrays.copyOf(tour, tour.length);
+
+            long t1 = System.nanoTime();
+            while (improve_twoOpt(paths, tour) != 0) passesPaths++;
+            long t2 = System.nanoTime();
+            while (improve_twoOpt(matrix, copy) != 0) passesMatrix++;
+            long t3 = System.nanoTime();
+
+            if (!Arrays.equals(tour, copy)) throw new IllegalStateException("2-opt results differ");
+            timePaths += t2 - t1;
+            timeMatrix += t3 - t2;
+        }
+        return new double[]{timePaths / 1e6 / passesPaths, timeMatrix / 1e6 / passesMatrix};
+    }
+
+    /**
+     * 2-opt pass on the path matrix, as it was done before the introduction of {@link DistanceMatrix}
+     */
+    protected double improve_twoOpt(Path[][] distances, Location[] tour) {
+        double diff = 0;
+        for (int i = 0; i < tour.length - 1; i++) { //edge a
+            Location a_from = tour[i];
+            Location a_to = tour[i + 1];
+            if (a_from == null || a_to == null) break;
+            for (int j = i + 1; j < tour.length; j++) { //edge b
+                Location b_from = tour[j];
+                Location b_to = tour[(j + 1) % tour.length];
+                if (b_from == null || b_to == null) break;
+                double dist = distances[a_from.getId()][a_to.getId()].getCost() + distances[b_from.getId()][b_to.getId()].getCost();
+                double dist_alternative = distances[a_from.getId()][b_from.getId()].getCost() + distances[a_to.getId()][b_to.getId()].getCost();
+                if (dist > dist_alternative) { //found a 2-opt improvement
+                    a_to = b_from;
+                    diff = dist - dist_alternative;
+                    reverse(tour, i + 1, j);
+                }
+            }
+        }
+        return diff;
+    }
+}
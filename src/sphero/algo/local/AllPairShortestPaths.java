@@ -1,20 +1,102 @@
 package sphero.algo.local;
 
+import sphero.common.EncodedPath;
+import sphero.common.Field;
 import sphero.common.Location;
 import sphero.common.Map;
+import sphero.common.MapEdit;
 import sphero.common.Path;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.IntStream;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class AllPairShortestPaths {
 
+    private final Strategy strategy;
+    private final boolean lazyPaths;
+    private final PathCache cache;
+    private final PairScheduler scheduler;
+    private final BFS bfs = new BFS();
+    private final BidirectionalSearch bidirectional = new BidirectionalSearch();
+    private final JumpPointSearch jumpPoint = new JumpPointSearch();
+
+    /**
+     * Uses a separate A* search for every pair of destinations
+     */
+    public AllPairShortestPaths() {
+        this(Strategy.PAIRWISE_ASTAR);
+    }
+
+    /**
+     * @param strategy search strategy used to fill the distance matrix
+     */
+    public AllPairShortestPaths(Strategy strategy) {
+        this(strategy, false);
+    }
+
+    /**
+     * @param strategy  search strategy used to fill the distance matrix
+     * @param lazyPaths if true, the matrix only keeps cost, travel time and the run-length encoding of every path.
+     *                  The list of fields of a path is created when {@link Path#getFields()} is called.
+     */
+    public AllPairShortestPaths(Strategy strategy, boolean lazyPaths) {
+        this(strategy, lazyPaths, null);
+    }
+
+    /**
+     * @param strategy  search strategy used to fill the distance matrix
+     * @param lazyPaths see {@link #AllPairShortestPaths(Strategy, boolean)}
+     * @param cache     cache of search results which is shared with other calculations on the same map,
+     *                  only pairs which are not in the cache are searched. null to search every pair.
+     */
+    public AllPairShortestPaths(Strategy strategy, boolean lazyPaths, PathCache cache) {
+        this(strategy, lazyPaths, cache, null);
+    }
+
+    /**
+     * @param strategy  search strategy used to fill the distance matrix
+     * @param lazyPaths see {@link #AllPairShortestPaths(Strategy, boolean)}
+     * @param cache     see {@link #AllPairShortestPaths(Strategy, boolean, PathCache)}
+     * @param scheduler workers which run the searches, null for {@link PairScheduler#getDefault()}
+     */
+    public AllPairShortestPaths(Strategy strategy, boolean lazyPaths, PathCache cache, PairScheduler scheduler) {
+        this.strategy = strategy;
+        this.lazyPaths = lazyPaths;
+        this.cache = cache;
+        this.scheduler = scheduler == null ? PairScheduler.getDefault() : scheduler;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public boolean isLazy() {
+        return lazyPaths;
+    }
+
+    /**
+     * @return cache of search results, null if every pair is searched
+     */
+    public PathCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return workers which run the searches, {@link PairScheduler#getLastReport()} shows their utilization
+     */
+    public PairScheduler getScheduler() {
+        return scheduler;
+    }
+
     /**
      * Calculates the shortest Path between every possible pair of destinations.
+     * Destinations in different components of the map (see {@link Components}) are rejected before any search.
      *
      * @param locationList - destinations for which the shortest Paths are calculated
      * @return - a 2-dimensional array of Paths, where the index of each dimension corresponds to the index of that
@@ -22,34 +104,385 @@ public class AllPairShortestPaths {
      **/
     //return null falls das Ergebnis einer Path Berechnung null ist
     public Path[][] allPairs(List<Location> locationList, Map map) {
-        Path[][] pair_array = new Path[locationList.size()][locationList.size()];
-        BFS d = new BFS();
+        if (Components.get(map).firstUnreachable(locationList) >= 0) return null;
+        int n = locationList.size();
+        Path[][] pair_array = new Path[n][n];
         AtomicBoolean invalidFlag = new AtomicBoolean(false);
-        IntStream.range(0, locationList.size()).parallel().forEach(i -> {
+        Preprocessing preprocessing = preprocess(map, locationList);
+        for (int i = 0; i < n; i++) {
             Location current1 = locationList.get(i);
+            pair_array[i][i] = new Path(Arrays.asList(current1.getField(), current1.getField()), current1, current1, 0);
+            //pair_array[i][i] = null; Alternativ
+        }
+
+        if (strategy == Strategy.ONE_TO_MANY) {
+            // a row search stops at its farthest target
+            int[] radius = new int[n];
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) radius[i] = Math.max(radius[i], estimate(locationList, i, j));
+            }
+            scheduler.forEach(n, i -> radius[i], i -> {
+                List<Location> targets = locationList.subList(i + 1, n);
+                Path[] row = searchRow(locationList.get(i), targets, map, SearchWorkspace.get(map));
+                if (row == null) {
+                    invalidFlag.set(true);
+                    return false;
+                }
+                for (int j = i + 1; j < n; j++) {
+                    store(pair_array, i, j, row[j - i - 1], map);
+                }
+                return true;
+            });
+        } else {
+            scheduler.forEachPair(n, (i, j) -> estimate(locationList, i, j), (i, j) -> {
+                Path ab = cachedSearch(locationList.get(i), locationList.get(j), map, preprocessing, SearchWorkspace.get(map));
+                if (ab == null) {
+                    invalidFlag.set(true);
+                    return false;
+                }
+                store(pair_array, i, j, ab, map);
+                return true;
+            });
+        }
+        if(invalidFlag.get()) return null;
+        return pair_array;
+    }
 
-            for (int j = i; j < locationList.size(); j++) {
-                Location current2 = locationList.get(j);
+    /**
+     * Manhattan distance of two destinations, the scheduler starts with the pairs which are far apart
+     */
+    private static int estimate(List<Location> locationList, int i, int j) {
+        Field a = locationList.get(i).getField();
+        Field b = locationList.get(j).getField();
+        return Math.abs(a.getX() - b.getX()) + Math.abs(a.getY() - b.getY());
+    }
 
-                if (current1 == current2) {
-                    pair_array[i][j] = new Path(Arrays.asList(current1.getField(), current2.getField()), current1, current2, 0);
-                    //pair_array[i][j] = null; Alternativ
+    /**
+     * Updates a matrix of {@link #allPairs} after the map has been edited, instead of calculating it again
+     * <p>
+     * Only two kinds of pairs are searched again: pairs whose path uses a removed connection and
+     * pairs which become shorter through an added connection. The second kind is found with one breadth-first
+     * search from each end of every added connection, which stops at the length of the longest path in the matrix.
+     *
+     * @param pair_array   matrix of {@link #allPairs} for the same locations, updated in place
+     * @param locationList destinations of the matrix
+     * @param map          map after the edits have been applied
+     * @param edits        edits since the matrix was calculated
+     * @return number of pairs which were searched again (out of n * (n - 1) / 2),
+     * -1 if a destination is no longer reachable, the matrix is then incomplete
+     */
+    public int repair(Path[][] pair_array, List<Location> locationList, Map map, List<MapEdit> edits) {
+        int n = locationList.size();
+        Set<Long> removed = new HashSet<>();
+        List<MapEdit> added = new ArrayList<>();
+        for (MapEdit edit : edits) {
+            if (edit.isConnected()) {
+                added.add(edit);
+            } else {
+                removed.add(edgeKey(edit.getA().getId(), edit.getB().getId()));
+            }
+        }
+
+        boolean[] affected = new boolean[n * n];
+        double longest = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                Path ab = pair_array[i][j];
+                if (!removed.isEmpty() && usesEdge(ab, removed)) {
+                    affected[i * n + j] = true;
                 } else {
-                    Path ab = d.shortestDistanceAStar(current1, current2, map);
-                    if(ab == null){
-                        invalidFlag.set(true);
-                        return;
-                    }
-                    Path ba = new Path(new ArrayList<>(ab.getFields()), ab.getTo(), ab.getFrom(), ab.getCost());
-                    Collections.reverse(ba.getFields());
-                    ab.getFields().add(ab.getTo().getField());
-                    ba.getFields().add(ba.getTo().getField());
-                    pair_array[i][j] = ab;
-                    pair_array[j][i] = ba;
+                    longest = Math.max(longest, ab.getDistance());
+                }
+            }
+        }
+        SearchWorkspace workspace = SearchWorkspace.get(map);
+        for (MapEdit edit : added) {
+            int[] toA = distancesWithin(edit.getA().getId(), locationList, map, (int) longest, workspace);
+            int[] toB = distancesWithin(edit.getB().getId(), locationList, map, (int) longest, workspace);
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    double via = Math.min((double) toA[i] + 1 + toB[j], (double) toB[i] + 1 + toA[j]);
+                    if (via < pair_array[i][j].getDistance()) affected[i * n + j] = true;
                 }
             }
+        }
+
+        AtomicBoolean invalidFlag = new AtomicBoolean(false);
+        AtomicInteger repaired = new AtomicInteger();
+        Preprocessing preprocessing = preprocess(map, locationList);
+        scheduler.forEachPair(n, (i, j) -> affected[i * n + j] ? estimate(locationList, i, j) : -1, (i, j) -> {
+            Path ab = cachedSearch(locationList.get(i), locationList.get(j), map, preprocessing, SearchWorkspace.get(map));
+            if (ab == null) {
+                invalidFlag.set(true);
+                return false;
+            }
+            store(pair_array, i, j, ab, map);
+            repaired.incrementAndGet();
+            return true;
         });
-        if(invalidFlag.get()) return null;
-        return pair_array;
+        if (invalidFlag.get()) return -1;
+        return repaired.get();
+    }
+
+    /**
+     * @return true if two consecutive fields of the path are the ends of one of the edges
+     */
+    private static boolean usesEdge(Path path, Set<Long> edges) {
+        int previous = path.getFrom().getField().getId();
+        for (Field f : path.getFields()) {
+            if (edges.contains(edgeKey(previous, f.getId()))) return true;
+            previous = f.getId();
+        }
+        return false;
+    }
+
+    private static long edgeKey(int a, int b) {
+        return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    /**
+     * Breadth-first search from a field, which stops once every destination is reached or the bound is exceeded
+     *
+     * @return distance of every destination, Integer.MAX_VALUE if it is farther away than the bound
+     */
+    private static int[] distancesWithin(int root, List<Location> locationList, Map map, int bound, SearchWorkspace workspace) {
+        int[] result = new int[locationList.size()];
+        Arrays.fill(result, Integer.MAX_VALUE);
+        workspace.begin();
+        int[] dist = workspace.dist();
+        int[] targetCount = workspace.counts;
+        int[] queue = workspace.queue;
+        int[] neighbors = workspace.neighbors;
+        int remaining = 0;
+        for (Location l : locationList) {
+            targetCount[l.getField().getId()]++;
+            remaining++;
+        }
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = root;
+        workspace.visit(root);
+        dist[root] = 0;
+        remaining -= targetCount[root];
+        while (remaining > 0 && head < tail) {
+            int current = queue[head++];
+            if (dist[current] >= bound) break;
+            int count = map.getNeighbors(current, neighbors);
+            for (int k = 0; k < count; k++) {
+                int neighbor = neighbors[k];
+                if (!workspace.isVisited(neighbor)) {
+                    workspace.visit(neighbor);
+                    dist[neighbor] = dist[current] + 1;
+                    queue[tail++] = neighbor;
+                    remaining -= targetCount[neighbor];
+                }
+            }
+        }
+        for (int i = 0; i < locationList.size(); i++) {
+            int id = locationList.get(i).getField().getId();
+            targetCount[id] = 0;
+            if (workspace.isVisited(id)) result[i] = dist[id];
+        }
+        return result;
+    }
+
+    /**
+     * One-to-many search from a destination to all targets, which are not in the cache
+     *
+     * @return paths to the targets in the order of the list, null if a target is not reachable
+     */
+    private Path[] searchRow(Location from, List<Location> targets, Map map, SearchWorkspace workspace) {
+        if (cache == null) return bfs.shortestDistancesBFS(from, targets, map, workspace);
+        Path[] row = new Path[targets.size()];
+        List<Location> missing = new ArrayList<>();
+        for (int k = 0; k < targets.size(); k++) {
+            row[k] = cache.get(from, targets.get(k), map);
+            if (row[k] == null) missing.add(targets.get(k));
+        }
+        if (missing.isEmpty()) return row;
+        Path[] found = bfs.shortestDistancesBFS(from, missing, map, workspace);
+        if (found == null) return null;
+        int m = 0;
+        for (int k = 0; k < row.length; k++) {
+            if (row[k] != null) continue;
+            row[k] = found[m++];
+            if (row[k] == null) return null;
+            cache.put(row[k], map);
+        }
+        return row;
+    }
+
+    /**
+     * Looks up a pair in the cache and searches it on a miss
+     */
+    private Path cachedSearch(Location a, Location b, Map map, Preprocessing preprocessing, SearchWorkspace workspace) {
+        if (cache == null) return search(a, b, map, preprocessing, workspace);
+        Path ab = cache.get(a, b, map);
+        if (ab != null) return ab;
+        ab = search(a, b, map, preprocessing, workspace);
+        if (ab != null) cache.put(ab, map);
+        return ab;
+    }
+
+    /**
+     * single search between two destinations with the search algorithm of the strategy
+     */
+    private Path search(Location a, Location b, Map map, Preprocessing preprocessing, SearchWorkspace workspace) {
+        switch (strategy) {
+            case ONE_TO_MANY:
+                // visits the fields in the same order as the one-to-many search and finds the same path
+                return bfs.shortestDistanceBFS(a, b, map, workspace);
+            case BIDIRECTIONAL_ASTAR:
+                return bidirectional.shortestDistanceAStar(a, b, map, workspace);
+            case BIDIRECTIONAL_BFS:
+                return bidirectional.shortestDistanceBFS(a, b, map, workspace);
+            case JUMP_POINT_SEARCH:
+                return jumpPoint.shortestDistance(a, b, map, workspace);
+            case LANDMARK_ASTAR:
+                return bfs.shortestDistanceALT(a, b, map, preprocessing.landmarks, workspace);
+            case JUNCTION_GRAPH:
+                return preprocessing.junctions.shortestDistance(a, b, map, workspace);
+            case CONTRACTION_HIERARCHY:
+                return preprocessing.hierarchy.shortestDistance(a, b, map, workspace);
+            case HIERARCHICAL:
+                return preprocessing.clusters.shortestDistance(a, b, map, workspace);
+            default:
+                return bfs.shortestDistanceAStar(a, b, map, workspace);
+        }
+    }
+
+    /**
+     * Stores a search result and its reversed counterpart in the matrix
+     * Appends the destination field to both paths, since the searches return the path without its end points.
+     * Both paths share one run-length encoding, which is much smaller than a list of fields.
+     */
+    private void store(Path[][] pair_array, int i, int j, Path ab, Map map) {
+        if (lazyPaths) {
+            storeLazy(pair_array, i, j, ab, map);
+            return;
+        }
+        EncodedPath route = encode(ab, map);
+        if (route == null) {
+            Path ba = new Path(new ArrayList<>(ab.getFields()), ab.getTo(), ab.getFrom(), ab.getCost());
+            Collections.reverse(ba.getFields());
+            ab.getFields().add(ab.getTo().getField());
+            ba.getFields().add(ba.getTo().getField());
+            pair_array[i][j] = ab;
+            pair_array[j][i] = ba;
+            return;
+        }
+        pair_array[i][j] = new Path(route, ab.getFrom(), ab.getTo(), ab.getDistance());
+        pair_array[j][i] = new Path(route.reverse(), ab.getTo(), ab.getFrom(), ab.getDistance());
+    }
+
+    /**
+     * Stores lazy paths, which keep the run-length encoding of the search result and only create their list of
+     * fields when it is accessed, so materializing a path never searches again on a map which may have changed
+     */
+    private void storeLazy(Path[][] pair_array, int i, int j, Path ab, Map map) {
+        Location a = ab.getFrom();
+        Location b = ab.getTo();
+        EncodedPath route = encode(ab, map);
+        if (route == null) {
+            // start and destination are on the same field
+            pair_array[i][j] = new Path(a, b, ab.getDistance(), b.getTimeImpact(),
+                    () -> new ArrayList<>(Collections.singletonList(b.getField())));
+            pair_array[j][i] = new Path(b, a, ab.getDistance(), a.getTimeImpact(),
+                    () -> new ArrayList<>(Collections.singletonList(a.getField())));
+            return;
+        }
+        pair_array[i][j] = new Path(a, b, ab.getDistance(), route);
+        pair_array[j][i] = new Path(b, a, ab.getDistance(), route.reverse());
+    }
+
+    /**
+     * Appends the destination to a search result and encodes it
+     *
+     * @return null if start and destination are on the same field
+     */
+    private static EncodedPath encode(Path ab, Map map) {
+        if (ab.getFrom().getField().equals(ab.getTo().getField())) return null;
+        List<Field> fields = ab.getFields();
+        fields.add(ab.getTo().getField());
+        return EncodedPath.encode(map, ab.getFrom().getField(), fields);
+    }
+
+    /**
+     * Builds or looks up the data the search of the strategy needs for a map
+     */
+    private Preprocessing preprocess(Map map, List<Location> locationList) {
+        Preprocessing preprocessing = new Preprocessing();
+        switch (strategy) {
+            case LANDMARK_ASTAR:
+                preprocessing.landmarks = Landmarks.get(map);
+                break;
+            case JUNCTION_GRAPH:
+                preprocessing.junctions = JunctionGraph.forLocations(map, locationList);
+                break;
+            case CONTRACTION_HIERARCHY:
+                preprocessing.hierarchy = ContractionHierarchy.get(map);
+                break;
+            case HIERARCHICAL:
+                preprocessing.clusters = HierarchicalSearch.get(map);
+                break;
+        }
+        return preprocessing;
+    }
+
+    /**
+     * data shared by all searches of one matrix, only the field of the strategy is set
+     */
+    private static class Preprocessing {
+        Landmarks landmarks;
+        JunctionGraph junctions;
+        ContractionHierarchy hierarchy;
+        HierarchicalSearch clusters;
+    }
+
+    /**
+     * Search strategies for filling the distance matrix
+     * All strategies produce identical distances
+     */
+    public enum Strategy {
+        /**
+         * one A* search for every pair of destinations
+         */
+        PAIRWISE_ASTAR,
+        /**
+         * one breadth-first search per destination, which stops once all remaining destinations are reached
+         * and fills a whole row of the matrix
+         */
+        ONE_TO_MANY,
+        /**
+         * one bidirectional A* search for every pair of destinations
+         */
+        BIDIRECTIONAL_ASTAR,
+        /**
+         * one bidirectional breadth-first search for every pair of destinations
+         */
+        BIDIRECTIONAL_BFS,
+        /**
+         * one jump point search for every pair of destinations, best suited for open maps
+         */
+        JUMP_POINT_SEARCH,
+        /**
+         * one A* search with the ALT heuristic for every pair of destinations, the landmarks are built once per map
+         */
+        LANDMARK_ASTAR,
+        /**
+         * one A* search for every pair of destinations on the {@link JunctionGraph} of the destinations,
+         * best suited for mazes
+         */
+        JUNCTION_GRAPH,
+        /**
+         * one query on the {@link ContractionHierarchy} of the map for every pair of destinations,
+         * the hierarchy is built once per map
+         */
+        CONTRACTION_HIERARCHY,
+        /**
+         * one exact HPA* search on the clusters of the map for every pair of destinations,
+         * the clusters are built once per map, see {@link HierarchicalSearch}
+         */
+        HIERARCHICAL
     }
 }
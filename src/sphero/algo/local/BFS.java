@@ -37,25 +37,44 @@ public class BFS {
      * @return the path to the destination
      */
     public Path shortestDistanceBFS(Location from, Location to, Map map) {
+        return shortestDistanceBFS(from, to, map, SearchWorkspace.get(map));
+    }
+
+    /**
+     * Finds the shortest Distance between two Locations by applying breadth-first search (BFS).
+     *
+     * @param from      : the starting position of the bolt
+     * @param to        : the first destination of the bolt
+     * @param workspace : reusable search memory of the calling thread
+     * @return the path to the destination
+     */
+    public Path shortestDistanceBFS(Location from, Location to, Map map, SearchWorkspace workspace) {
         Field startPosition = from.getField();
         Field destination = to.getField();
         if(startPosition.equals(destination)) {
             return new Path(Arrays.asList(startPosition, destination),from,to,0);
         }
-        boolean[] visited = new boolean[map.getSizeX() * map.getSizeY()];
-        Queue<Field> queue = new LinkedList<>();
-        queue.add(startPosition);
-        visited[startPosition.getId()] = true;
-        int[] parent = new int[map.getSizeY() * map.getSizeX()];
+        workspace.begin();
+        int[] queue = workspace.queue;
+        int[] parent = workspace.parent;
+        int[] neighbors = workspace.neighbors;
+        int target = destination.getId();
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = startPosition.getId();
+        workspace.visit(startPosition.getId());
         boolean destFound = false;
-        while (queue.size() != 0) {
-            Field current = queue.poll();
-            for (Field neighbor : current.getNeighbors()) {
-                if (!visited[neighbor.getId()]) {
-                    visited[neighbor.getId()] = true;
-                    queue.add(neighbor);
-                    parent[neighbor.getId()] = current.getId();
-                    if (neighbor.equals(destination)) {
+        while (head < tail && !destFound) {
+            int current = queue[head++];
+            workspace.expand();
+            int count = map.getNeighbors(current, neighbors);
+            for (int k = 0; k < count; k++) {
+                int neighbor = neighbors[k];
+                if (!workspace.isVisited(neighbor)) {
+                    workspace.visit(neighbor);
+                    queue[tail++] = neighbor;
+                    parent[neighbor] = current;
+                    if (neighbor == target) {
                         destFound = true;
                         break;
                     }
@@ -63,61 +82,275 @@ public class BFS {
             }
         }
         if (!destFound) return null;
-        LinkedList<Field> path = new LinkedList<>();
-        Field currentField = destination;
-        while (true) {
-            currentField = map.getField(parent[currentField.getId()]);
-            if (currentField.equals(startPosition)) {
-                break;
+        return toPath(parent, from, to, map);
+    }
+
+    /**
+     * Finds the shortest Paths from one Location to several other Locations with a single breadth-first search.
+     * The search keeps going until every target has been reached, so each region of the map is expanded only once.
+     *
+     * @param from    : the starting position
+     * @param targets : the destinations that need to be reached from the starting position
+     * @return the paths to the destinations (in the same order as the targets), or null if a destination is unreachable
+     */
+    public Path[] shortestDistancesBFS(Location from, List<Location> targets, Map map) {
+        return shortestDistancesBFS(from, targets, map, SearchWorkspace.get(map));
+    }
+
+    /**
+     * Finds the shortest Paths from one Location to several other Locations with a single breadth-first search.
+     * The search keeps going until every target has been reached, so each region of the map is expanded only once.
+     *
+     * @param from      : the starting position
+     * @param targets   : the destinations that need to be reached from the starting position
+     * @param workspace : reusable search memory of the calling thread
+     * @return the paths to the destinations (in the same order as the targets), or null if a destination is unreachable
+     */
+    public Path[] shortestDistancesBFS(Location from, List<Location> targets, Map map, SearchWorkspace workspace) {
+        Path[] paths = new Path[targets.size()];
+        Field startPosition = from.getField();
+        workspace.begin();
+        int[] targetCount = workspace.counts;
+        int[] queue = workspace.queue;
+        int[] parent = workspace.parent;
+        int[] neighbors = workspace.neighbors;
+        int remaining = 0;
+        for (Location to : targets) {
+            if (!startPosition.equals(to.getField())) {
+                targetCount[to.getField().getId()]++;
+                remaining++;
             }
-            path.addFirst(currentField);
         }
-        return new Path(path, from, to, path.size() + 1);
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = startPosition.getId();
+        workspace.visit(startPosition.getId());
+        while (remaining > 0 && head < tail) {
+            int current = queue[head++];
+            workspace.expand();
+            int count = map.getNeighbors(current, neighbors);
+            for (int k = 0; k < count; k++) {
+                int neighbor = neighbors[k];
+                if (!workspace.isVisited(neighbor)) {
+                    workspace.visit(neighbor);
+                    queue[tail++] = neighbor;
+                    parent[neighbor] = current;
+                    remaining -= targetCount[neighbor];
+                }
+            }
+        }
+        for (Location to : targets) {
+            targetCount[to.getField().getId()] = 0;
+        }
+        if (remaining > 0) return null;
+        for (int i = 0; i < targets.size(); i++) {
+            Location to = targets.get(i);
+            if (startPosition.equals(to.getField())) {
+                paths[i] = new Path(Arrays.asList(startPosition, to.getField()), from, to, 0);
+            } else {
+                paths[i] = toPath(parent, from, to, map);
+            }
+        }
+        return paths;
     }
 
     public Path shortestDistanceAStar(Location from, Location to, Map map) {
+        return shortestDistanceAStar(from, to, map, SearchWorkspace.get(map));
+    }
+
+    /**
+     * @param workspace : reusable search memory of the calling thread
+     */
+    public Path shortestDistanceAStar(Location from, Location to, Map map, SearchWorkspace workspace) {
         Field startPosition = from.getField();
         Field destination = to.getField();
         if(startPosition.equals(destination)) {
             return new Path(Arrays.asList(startPosition, destination),from,to,0);
         }
-        boolean[] visited = new boolean[map.getSizeX() * map.getSizeY()];
-        IndexMinPQ<Entry> queue = new IndexMinPQ<>(map.getAllFields().size());
-        Entry[] entries = new Entry[map.getAllFields().size()];
-        entries[startPosition.getId()] = new Entry(startPosition,0,destination);
+        workspace.begin();
+        IndexMinPQ<Entry> queue = workspace.entryQueue();
+        Entry[] entries = workspace.entries();
+        int[] parent = workspace.parent;
+        entries[startPosition.getId()] = entry(entries, startPosition, 0, destination);
         queue.insert(startPosition.getId(), entries[startPosition.getId()]);
-        visited[startPosition.getId()] = true;
-        int[] parent = new int[map.getSizeY() * map.getSizeX()];
+        workspace.visit(startPosition.getId());
         boolean destFound = false;
         while (queue.size() != 0) {
             Entry current = queue.minKey();
             queue.delMin();
+            workspace.expand();
             if (current.f.equals(destination)) {
                 destFound = true;
                 break;
             }
             for (Field neighbor : current.f.getNeighbors()) {
-               // if (!visited[neighbor.getId()]) {
-
-                    //visited[neighbor.getId()] = true;
-                    if(entries[neighbor.getId()] == null) {
-                        entries[neighbor.getId()] = new Entry(neighbor, current.d+1, destination);
+                if(!workspace.isVisited(neighbor.getId())) {
+                    workspace.visit(neighbor.getId());
+                    entries[neighbor.getId()] = entry(entries, neighbor, current.d+1, destination);
+                    parent[neighbor.getId()] = current.f.getId();
+                    queue.insert(neighbor.getId(),entries[neighbor.getId()]);
+                } else {
+                    if(entries[neighbor.getId()].d > current.d+1){
+                        entries[neighbor.getId()].d = current.d+1;
+                        queue.decreaseKey(neighbor.getId(),entries[neighbor.getId()]);
                         parent[neighbor.getId()] = current.f.getId();
-                        queue.insert(neighbor.getId(),entries[neighbor.getId()]);
-                    } else {
-                        if(entries[neighbor.getId()].d > current.d+1){
-                            entries[neighbor.getId()].d = current.d+1;
-                            queue.decreaseKey(neighbor.getId(),entries[neighbor.getId()]);
-                            parent[neighbor.getId()] = current.f.getId();
-                        }
                     }
+                }
+            }
+        }
+        if (!destFound) return null;
+        return toPath(parent, from, to, map);
+    }
+
+    /**
+     * reuses the entry object of a previous search, if there is one
+     */
+    private static Entry entry(Entry[] entries, Field f, int d, Field destination) {
+        Entry e = entries[f.getId()];
+        if (e == null) return new Entry(f, d, destination);
+        e.f = f;
+        e.d = d;
+        e.h = manhattan(f, destination);
+        return e;
+    }
+
+    /**
+     * A* search on a primitive indexed heap
+     * Finds the same distances as {@link #shortestDistanceAStar(Location, Location, Map)},
+     * but does not create any objects for the fields it expands
+     *
+     * @param from : the starting position of the bolt
+     * @param to   : the destination of the bolt
+     * @return the path to the destination
+     */
+    public Path shortestDistanceAStarPrimitive(Location from, Location to, Map map) {
+        return shortestDistanceAStarPrimitive(from, to, map, SearchWorkspace.get(map));
+    }
 
-               // }
+    /**
+     * A* search on a primitive indexed heap
+     *
+     * @param from      : the starting position of the bolt
+     * @param to        : the destination of the bolt
+     * @param workspace : reusable search memory of the calling thread
+     * @return the path to the destination
+     */
+    public Path shortestDistanceAStarPrimitive(Location from, Location to, Map map, SearchWorkspace workspace) {
+        Field startPosition = from.getField();
+        Field destination = to.getField();
+        if(startPosition.equals(destination)) {
+            return new Path(Arrays.asList(startPosition, destination),from,to,0);
+        }
+        int sizeY = map.getSizeY();
+        workspace.begin();
+        int[] parent = workspace.parent;
+        int[] neighbors = workspace.neighbors;
+        IntIndexMinPQ queue = workspace.intQueue();
+        int target = destination.getId();
+        queue.insert(startPosition.getId(), manhattan(startPosition, destination), 0);
+        workspace.visit(startPosition.getId());
+        boolean destFound = false;
+        while (!queue.isEmpty()) {
+            int current = queue.delMin();
+            workspace.expand();
+            if (current == target) {
+                destFound = true;
+                break;
+            }
+            int d = queue.gOf(current) + 1;
+            int count = map.getNeighbors(current, neighbors);
+            for (int k = 0; k < count; k++) {
+                int id = neighbors[k];
+                if (!workspace.isVisited(id)) {
+                    workspace.visit(id);
+                    parent[id] = current;
+                    queue.insert(id, d + manhattan(id, target, sizeY), d);
+                } else if (queue.contains(id) && queue.gOf(id) > d) {
+                    parent[id] = current;
+                    queue.decreaseKey(id, d + manhattan(id, target, sizeY), d);
+                }
+            }
+        }
+        if (!destFound) return null;
+        return toPath(parent, from, to, map);
+    }
+
+    /**
+     * A* search with the ALT heuristic
+     * Uses the larger one of the landmark bound and the manhattan distance as heuristic.
+     * The landmarks of the map are built on the first call and reused afterwards (see {@link Landmarks#get(Map)}).
+     *
+     * @param from : the starting position of the bolt
+     * @param to   : the destination of the bolt
+     * @return the path to the destination
+     */
+    public Path shortestDistanceALT(Location from, Location to, Map map) {
+        return shortestDistanceALT(from, to, map, Landmarks.get(map), SearchWorkspace.get(map));
+    }
+
+    /**
+     * A* search with the ALT heuristic
+     *
+     * @param from      : the starting position of the bolt
+     * @param to        : the destination of the bolt
+     * @param landmarks : landmarks of the map
+     * @param workspace : reusable search memory of the calling thread
+     * @return the path to the destination
+     */
+    public Path shortestDistanceALT(Location from, Location to, Map map, Landmarks landmarks, SearchWorkspace workspace) {
+        Field startPosition = from.getField();
+        Field destination = to.getField();
+        if(startPosition.equals(destination)) {
+            return new Path(Arrays.asList(startPosition, destination),from,to,0);
+        }
+        int sizeY = map.getSizeY();
+        workspace.begin();
+        int[] parent = workspace.parent;
+        int[] neighbors = workspace.neighbors;
+        IntIndexMinPQ queue = workspace.intQueue();
+        int target = destination.getId();
+        int[] targetDistances = landmarks.distancesOf(target, workspace.landmarkDistances(landmarks.getCount()));
+        queue.insert(startPosition.getId(), heuristic(startPosition.getId(), target, sizeY, landmarks, targetDistances), 0);
+        workspace.visit(startPosition.getId());
+        boolean destFound = false;
+        while (!queue.isEmpty()) {
+            int current = queue.delMin();
+            workspace.expand();
+            if (current == target) {
+                destFound = true;
+                break;
+            }
+            int d = queue.gOf(current) + 1;
+            int count = map.getNeighbors(current, neighbors);
+            for (int k = 0; k < count; k++) {
+                int id = neighbors[k];
+                if (!workspace.isVisited(id)) {
+                    workspace.visit(id);
+                    parent[id] = current;
+                    queue.insert(id, d + heuristic(id, target, sizeY, landmarks, targetDistances), d);
+                } else if (queue.contains(id) && queue.gOf(id) > d) {
+                    parent[id] = current;
+                    queue.decreaseKey(id, d + queue.fOf(id) - queue.gOf(id), d);
+                }
             }
         }
         if (!destFound) return null;
+        return toPath(parent, from, to, map);
+    }
+
+    private static int heuristic(int id, int target, int sizeY, Landmarks landmarks, int[] targetDistances) {
+        return Math.max(manhattan(id, target, sizeY), landmarks.lowerBound(id, targetDistances));
+    }
+
+    /**
+     * Follows the parent references from the destination back to the start
+     *
+     * @return path without the start and the destination field
+     */
+    static Path toPath(int[] parent, Location from, Location to, Map map) {
+        Field startPosition = from.getField();
         LinkedList<Field> path = new LinkedList<>();
-        Field currentField = destination;
+        Field currentField = to.getField();
         while (true) {
             currentField = map.getField(parent[currentField.getId()]);
             if (currentField.equals(startPosition)) {
@@ -160,4 +393,11 @@ public class BFS {
     static int manhattan(Field a, Field b){
         return Math.abs(a.getX()-b.getX()) + Math.abs(a.getY()-b.getY());
     }
+
+    /**
+     * manhattan distance between two field ids of a map with the given length of the y axis
+     */
+    static int manhattan(int a, int b, int sizeY){
+        return Math.abs(a / sizeY - b / sizeY) + Math.abs(a % sizeY - b % sizeY);
+    }
 }
@@ -0,0 +1,221 @@
+package sphero.algo.local;
+
+import sphero.common.*;
+import sphero.common.Map;
+
+import java.util.*;
+
+/**
+ * Point-to-point searches which grow a forward frontier from the start and a backward frontier from the destination
+ * until both frontiers meet. Finds the same distances as the one-directional searches in {@link BFS},
+ * but expands far fewer fields on long paths.
+ */
+public class BidirectionalSearch {
+
+    /**
+     * Bidirectional breadth-first search
+     * Always expands a complete level of the smaller frontier and stops after the first level in which the
+     * frontiers meet, which guarantees a shortest path.
+     *
+     * @param from : the starting position of the bolt
+     * @param to   : the destination of the bolt
+     * @return the path to the destination
+     */
+    public Path shortestDistanceBFS(Location from, Location to, Map map) {
+        return shortestDistanceBFS(from, to, map, SearchWorkspace.get(map));
+    }
+
+    /**
+     * Bidirectional breadth-first search
+     *
+     * @param from      : the starting position of the bolt
+     * @param to        : the destination of the bolt
+     * @param workspace : reusable search memory of the calling thread
+     * @return the path to the destination
+     */
+    public Path shortestDistanceBFS(Location from, Location to, Map map, SearchWorkspace workspace) {
+        Field startPosition = from.getField();
+        Field destination = to.getField();
+        if (startPosition.equals(destination)) {
+            return new Path(Arrays.asList(startPosition, destination), from, to, 0);
+        }
+        SearchWorkspace backward = workspace.backward();
+        workspace.begin();
+        backward.begin();
+        Frontier f = new Frontier(workspace, startPosition.getId());
+        Frontier b = new Frontier(backward, destination.getId());
+        int[] neighbors = workspace.neighbors;
+
+        int best = Integer.MAX_VALUE;
+        int meetFrom = -1;
+        int meetTo = -1;
+        while (best == Integer.MAX_VALUE && !f.isExhausted() && !b.isExhausted()) {
+            boolean forward = f.levelSize() <= b.levelSize();
+            Frontier side = forward ? f : b;
+            Frontier other = forward ? b : f;
+            int levelEnd = side.tail;
+            while (side.head < levelEnd) {
+                int current = side.workspace.queue[side.head++];
+                side.workspace.expand();
+                int d = side.dist[current] + 1;
+                int count = map.getNeighbors(current, neighbors);
+                for (int k = 0; k < count; k++) {
+                    int neighbor = neighbors[k];
+                    if (other.workspace.isVisited(neighbor) && d + other.dist[neighbor] < best) {
+                        best = d + other.dist[neighbor];
+                        meetFrom = forward ? current : neighbor;
+                        meetTo = forward ? neighbor : current;
+                    }
+                    if (!side.workspace.isVisited(neighbor)) {
+                        side.visit(neighbor, current, d);
+                    }
+                }
+            }
+        }
+        workspace.addExpansions(backward.getExpansions());
+        if (best == Integer.MAX_VALUE) return null;
+        return toPath(workspace.parent, backward.parent, meetFrom, meetTo, from, to, map, best);
+    }
+
+    /**
+     * Bidirectional A* search
+     * Both directions use the average of the manhattan distances to the destination and to the start as potential,
+     * which keeps the potentials consistent for both searches. The search stops as soon as the sum of the minimal
+     * keys of both queues reaches the length of the best path found so far.
+     *
+     * @param from : the starting position of the bolt
+     * @param to   : the destination of the bolt
+     * @return the path to the destination
+     */
+    public Path shortestDistanceAStar(Location from, Location to, Map map) {
+        return shortestDistanceAStar(from, to, map, SearchWorkspace.get(map));
+    }
+
+    /**
+     * Bidirectional A* search
+     *
+     * @param from      : the starting position of the bolt
+     * @param to        : the destination of the bolt
+     * @param workspace : reusable search memory of the calling thread
+     * @return the path to the destination
+     */
+    public Path shortestDistanceAStar(Location from, Location to, Map map, SearchWorkspace workspace) {
+        Field startPosition = from.getField();
+        Field destination = to.getField();
+        if (startPosition.equals(destination)) {
+            return new Path(Arrays.asList(startPosition, destination), from, to, 0);
+        }
+        SearchWorkspace backward = workspace.backward();
+        workspace.begin();
+        backward.begin();
+        IntIndexMinPQ queueF = workspace.intQueue();
+        IntIndexMinPQ queueB = backward.intQueue();
+        int[] neighbors = workspace.neighbors;
+        int s = startPosition.getId();
+        int t = destination.getId();
+        int sizeY = map.getSizeY();
+
+        // keys are doubled, so the averaged potentials stay integers
+        queueF.insert(s, potential(s, s, t, sizeY), 0);
+        workspace.visit(s);
+        queueB.insert(t, -potential(t, s, t, sizeY), 0);
+        backward.visit(t);
+
+        int best = Integer.MAX_VALUE;
+        int meetFrom = -1;
+        int meetTo = -1;
+        while (!queueF.isEmpty() && !queueB.isEmpty()) {
+            if (best != Integer.MAX_VALUE
+                    && (long) queueF.fOf(queueF.minIndex()) + queueB.fOf(queueB.minIndex()) >= 2L * best) break;
+            boolean forward = queueF.size() <= queueB.size();
+            SearchWorkspace side = forward ? workspace : backward;
+            SearchWorkspace other = forward ? backward : workspace;
+            IntIndexMinPQ queue = forward ? queueF : queueB;
+            IntIndexMinPQ otherQueue = forward ? queueB : queueF;
+            int sign = forward ? 1 : -1;
+
+            int current = queue.delMin();
+            side.expand();
+            int d = queue.gOf(current) + 1;
+            int count = map.getNeighbors(current, neighbors);
+            for (int k = 0; k < count; k++) {
+                int neighbor = neighbors[k];
+                if (other.isVisited(neighbor) && d + otherQueue.gOf(neighbor) < best) {
+                    best = d + otherQueue.gOf(neighbor);
+                    meetFrom = forward ? current : neighbor;
+                    meetTo = forward ? neighbor : current;
+                }
+                int key = 2 * d + sign * potential(neighbor, s, t, sizeY);
+                if (!side.isVisited(neighbor)) {
+                    side.visit(neighbor);
+                    side.parent[neighbor] = current;
+                    queue.insert(neighbor, key, d);
+                } else if (queue.contains(neighbor) && queue.gOf(neighbor) > d) {
+                    side.parent[neighbor] = current;
+                    queue.decreaseKey(neighbor, key, d);
+                }
+            }
+        }
+        workspace.addExpansions(backward.getExpansions());
+        if (best == Integer.MAX_VALUE) return null;
+        return toPath(workspace.parent, backward.parent, meetFrom, meetTo, from, to, map, best);
+    }
+
+    /**
+     * doubled potential of the forward search (manhattan distance to the destination minus manhattan distance to
+     * the start), the backward search uses the negated value
+     */
+    private static int potential(int id, int s, int t, int sizeY) {
+        return BFS.manhattan(id, t, sizeY) - BFS.manhattan(id, s, sizeY);
+    }
+
+    /**
+     * Joins the forward path to meetFrom with the backward path from meetTo
+     *
+     * @return path without the start and the destination field
+     */
+    private static Path toPath(int[] parentF, int[] parentB, int meetFrom, int meetTo,
+                               Location from, Location to, Map map, int distance) {
+        int s = from.getField().getId();
+        int t = to.getField().getId();
+        LinkedList<Field> path = new LinkedList<>();
+        for (int id = meetFrom; id != s; id = parentF[id]) {
+            path.addFirst(map.getField(id));
+        }
+        for (int id = meetTo; id != t; id = parentB[id]) {
+            path.addLast(map.getField(id));
+        }
+        return new Path(path, from, to, distance);
+    }
+
+    /**
+     * one direction of the bidirectional breadth-first search
+     */
+    private static class Frontier {
+        final SearchWorkspace workspace;
+        final int[] dist;
+        int head = 0;
+        int tail = 0;
+
+        Frontier(SearchWorkspace workspace, int root) {
+            this.workspace = workspace;
+            this.dist = workspace.dist();
+            visit(root, root, 0);
+        }
+
+        void visit(int id, int parent, int d) {
+            workspace.visit(id);
+            workspace.parent[id] = parent;
+            dist[id] = d;
+            workspace.queue[tail++] = id;
+        }
+
+        int levelSize() {
+            return tail - head;
+        }
+
+        boolean isExhausted() {
+            return head == tail;
+        }
+    }
+}
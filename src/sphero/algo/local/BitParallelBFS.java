@@ -0,0 +1,454 @@
+package sphero.algo.local;
+
+import sphero.common.GridGraph;
+import sphero.common.Location;
+import sphero.common.Map;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Breadth-first search on the bitmap of a {@link GridGraph}, which advances 64 cells per step
+ * <p>
+ * Frontier, visited cells and the connections of every cell to its south neighbor (id + 1) and east neighbor
+ * (id + sizeY) are bitmaps with one bit per cell. The cells of the next level within one word of 64 cells are
+ * computed from the frontier words around it with a few shifts and masks, so a single step handles a whole
+ * stretch of a column. Levels are computed one after another (level-synchronous): small levels only compute the
+ * words next to the frontier (top-down), large levels compute every word which still has unvisited cells
+ * (bottom-up), whichever is less work. Large levels are split across the workers of a {@link PairScheduler}.
+ * <p>
+ * The distances are the same as the ones of {@link BFS#shortestDistanceBFS}. The bitmaps are copied from the
+ * grid of the map and copied again when the map has been changed. A search allocates three bitmaps of the size
+ * of the map and, for the distances to all fields, an int per field.
+ * <p>
+ * Experimental: the routing algorithms need the fields of the paths, so they do not use this search yet.
+ * See BitParallelBFSBenchmarkTools for its throughput compared to {@link BFS}.
+ */
+public class BitParallelBFS {
+
+    /**
+     * distance of fields which can not be reached
+     */
+    public static final int UNREACHABLE = -1;
+
+    /**
+     * levels with less words to compute are not split across the workers
+     */
+    public static final int PARALLEL_WORDS = 1 << 13;
+    /**
+     * a frontier word changes at most 7 words: itself, the words next to it and two words in each
+     * neighboring column
+     */
+    private static final int TOP_DOWN_FANOUT = 7;
+
+    private final Map map;
+    private final PairScheduler scheduler;
+    private final int parallelWords;
+    private int version = -1;
+    private int sizeY;
+    private int size;
+    private int words;
+    private long[] south;
+    private long[] east;
+
+    /**
+     * Uses the workers of {@link PairScheduler#getDefault()}
+     */
+    public BitParallelBFS(Map map) {
+        this(map, PairScheduler.getDefault());
+    }
+
+    /**
+     * @param scheduler workers for large levels
+     */
+    public BitParallelBFS(Map map, PairScheduler scheduler) {
+        this(map, scheduler, PARALLEL_WORDS);
+    }
+
+    /**
+     * @param scheduler     workers for large levels
+     * @param parallelWords levels with less words to compute run on the calling thread, {@link #PARALLEL_WORDS}
+     *                      by default
+     */
+    public BitParallelBFS(Map map, PairScheduler scheduler, int parallelWords) {
+        if (parallelWords < 1) throw new IllegalArgumentException("parallelWords must be positive");
+        this.map = map;
+        this.scheduler = scheduler;
+        this.parallelWords = parallelWords;
+    }
+
+    /**
+     * @return distance of every field to the location, {@link #UNREACHABLE} if there is no path
+     */
+    public int[] distances(Location from) {
+        int[] dist = new int[map.getSizeX() * map.getSizeY()];
+        Arrays.fill(dist, UNREACHABLE);
+        new Search(from.getField().getId(), dist, null).run();
+        return dist;
+    }
+
+    /**
+     * Searches from one location until all targets are reached, without storing the distances of other fields
+     *
+     * @return distance of every target in the order of the list, {@link #UNREACHABLE} if there is no path
+     */
+    public int[] distances(Location from, List<Location> targets) {
+        int[] cells = new int[targets.size()];
+        for (int k = 0; k < cells.length; k++) cells[k] = targets.get(k).getField().getId();
+        int[] sorted = Arrays.stream(cells).distinct().sorted().toArray();
+        Search search = new Search(from.getField().getId(), null, sorted);
+        search.run();
+        int[] result = new int[cells.length];
+        for (int k = 0; k < cells.length; k++) {
+            result[k] = search.found[Arrays.binarySearch(sorted, cells[k])];
+        }
+        return result;
+    }
+
+    /**
+     * Copies the connections of the grid into one bitmap per direction, if the map has changed
+     */
+    private synchronized void update() {
+        if (version == map.getVersion() && south != null) return;
+        GridGraph grid = map.getGrid();
+        sizeY = grid.getSizeY();
+        size = grid.size();
+        words = (size + 63) >>> 6;
+        long[] bits = grid.getWords();
+        long[] s = new long[words];
+        long[] e = new long[words];
+        for (int w = 0; w < words; w++) {
+            long low = 2 * w < bits.length ? bits[2 * w] : 0;
+            long high = 2 * w + 1 < bits.length ? bits[2 * w + 1] : 0;
+            // the grid stores the east bit of a cell at an even and the south bit at an odd position
+            e[w] = evenBits(low) | evenBits(high) << 32;
+            s[w] = evenBits(low >>> 1) | evenBits(high >>> 1) << 32;
+        }
+        // the last cell of a column has no south neighbor, its bit would lead into the next column
+        for (int id = sizeY - 1; id < size; id += sizeY) {
+            s[id >>> 6] &= ~(1L << id);
+        }
+        if (size % 64 != 0) {
+            e[words - 1] &= (1L << size) - 1;
+            s[words - 1] &= (1L << size) - 1;
+        }
+        south = s;
+        east = e;
+        version = map.getVersion();
+    }
+
+    /**
+     * @return the bits at even positions, packed into the lower 32 bits
+     */
+    private static long evenBits(long x) {
+        x &= 0x5555555555555555L;
+        x = (x | (x >>> 1)) & 0x3333333333333333L;
+        x = (x | (x >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x >>> 4)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x >>> 8)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x >>> 16)) & 0x00000000FFFFFFFFL;
+        return x;
+    }
+
+    /**
+     * state of one search
+     */
+    private class Search {
+        private final long[] south;
+        private final long[] east;
+        private final int sizeY;
+        private final int size;
+        private final int words;
+        private final int root;
+        private final int[] dist;
+        private final int[] targets;
+        private final int[] found;
+        private final AtomicInteger remaining;
+
+        private final long[] visited;
+        private long[] frontier;
+        private long[] next;
+        private final AtomicIntegerArray stamps;
+        private final int[] touched;
+        private int[] scratch = new int[0];
+        private int[] frontierWords;
+        private int frontierCount;
+        private int[] openWords;
+        private int openCount;
+        private int level = 0;
+
+        /**
+         * @param dist    distances of all fields, or null
+         * @param targets sorted cells to search for, or null to search all fields
+         */
+        Search(int root, int[] dist, int[] targets) {
+            update();
+            synchronized (BitParallelBFS.this) {
+                this.south = BitParallelBFS.this.south;
+                this.east = BitParallelBFS.this.east;
+                this.sizeY = BitParallelBFS.this.sizeY;
+                this.size = BitParallelBFS.this.size;
+                this.words = BitParallelBFS.this.words;
+            }
+            this.root = root;
+            this.dist = dist;
+            this.targets = targets;
+            this.found = targets == null ? null : new int[targets.length];
+            if (found != null) Arrays.fill(found, UNREACHABLE);
+            this.remaining = new AtomicInteger(targets == null ? Integer.MAX_VALUE : targets.length);
+            visited = new long[words];
+            frontier = new long[words];
+            next = new long[words];
+            stamps = new AtomicIntegerArray(words);
+            touched = new int[words];
+        }
+
+        void run() {
+            visited[root >>> 6] |= 1L << root;
+            frontier[root >>> 6] |= 1L << root;
+            frontierWords = new int[]{root >>> 6};
+            frontierCount = 1;
+            record(root >>> 6, 1L << root);
+            openCount = words;
+            while (frontierCount > 0 && remaining.get() > 0) {
+                level++;
+                boolean topDown = (long) frontierCount * TOP_DOWN_FANOUT < openCount;
+                if (!topDown && openWords == null) {
+                    openWords = new int[words];
+                    for (int w = 0; w < words; w++) openWords[w] = w;
+                    openCount = words;
+                }
+                int work = topDown ? frontierCount * TOP_DOWN_FANOUT : openCount;
+                int[][] nextWords;
+                if (work < parallelWords || scheduler.getWorkers() == 1) {
+                    nextWords = new int[][]{topDown ? scatter() : bottomUp(0, openCount)};
+                } else {
+                    int chunks = scheduler.getWorkers() * 4;
+                    int total = topDown ? frontierCount : openCount;
+                    nextWords = new int[chunks][];
+                    scheduler.forEach(chunks, k -> 0, k -> {
+                        int from = (int) ((long) total * k / chunks);
+                        int to = (int) ((long) total * (k + 1) / chunks);
+                        nextWords[k] = topDown ? topDown(from, to) : bottomUp(from, to);
+                        return true;
+                    });
+                }
+                if (!topDown) compactOpenWords();
+                advance(nextWords);
+            }
+        }
+
+        /**
+         * Sequential top-down step, which moves the frontier bits of every word into the words of the neighbor cells
+         * Unlike {@link #topDown}, only the frontier word and the connections are read.
+         *
+         * @return words with cells of the next level, the first element is the number of words
+         */
+        private int[] scatter() {
+            int capacity = 1 + (int) Math.min(words, (long) frontierCount * TOP_DOWN_FANOUT);
+            if (scratch.length < capacity) scratch = new int[Math.max(capacity, scratch.length * 2)];
+            int[] out = scratch;
+            out[0] = 0;
+            for (int k = 0; k < frontierCount; k++) {
+                int w = frontierWords[k];
+                long f = frontier[w];
+                long fs = f & south[w];
+                // south neighbors c + 1
+                add(w, fs << 1, out);
+                if (w + 1 < words) add(w + 1, fs >>> 63, out);
+                // north neighbors c - 1 over their south connection
+                add(w, f >>> 1 & south[w], out);
+                if (w > 0) add(w - 1, f << 63 & south[w - 1], out);
+                // east neighbors c + sizeY, west neighbors c - sizeY over their east connection
+                move(w, f & east[w], sizeY, false, out);
+                move(w, f, -sizeY, true, out);
+            }
+            int count = 0;
+            for (int k = 1; k <= out[0]; k++) {
+                int w = out[k];
+                long reached = next[w] & ~visited[w];
+                next[w] = reached;
+                if (reached == 0) continue;
+                visited[w] |= reached;
+                record(w, reached);
+                out[++count] = w;
+            }
+            out[0] = count;
+            return out;
+        }
+
+        /**
+         * moves the cells of word w by offset cells
+         *
+         * @param eastOnly true to only keep the moved cells with an east connection
+         */
+        private void move(int w, long bits, int offset, boolean eastOnly, int[] out) {
+            if (bits == 0) return;
+            long first = ((long) w << 6) + offset;
+            int word = (int) Math.floorDiv(first, 64);
+            int shift = Math.floorMod(first, 64);
+            if (word >= 0 && word < words) add(word, eastOnly ? bits << shift & east[word] : bits << shift, out);
+            if (shift != 0 && word + 1 >= 0 && word + 1 < words)
+                add(word + 1, eastOnly ? bits >>> (64 - shift) & east[word + 1] : bits >>> (64 - shift), out);
+        }
+
+        /**
+         * collects candidate cells of a word in the next bitmap
+         */
+        private void add(int w, long bits, int[] out) {
+            if (bits == 0) return;
+            if (touched[w] != level) {
+                touched[w] = level;
+                out[++out[0]] = w;
+            }
+            next[w] |= bits;
+        }
+
+        /**
+         * computes the words around the frontier words from index from to index to, on several workers
+         *
+         * @return words with cells of the next level, the first element is the number of words
+         */
+        private int[] topDown(int from, int to) {
+            int[] out = new int[1 + (to - from) * TOP_DOWN_FANOUT];
+            for (int k = from; k < to; k++) {
+                int w = frontierWords[k];
+                long first = (long) w << 6;
+                claim(w - 1, out);
+                claim(w, out);
+                claim(w + 1, out);
+                claim((int) ((first + sizeY) >>> 6), out);
+                claim((int) ((first + 63 + sizeY) >>> 6), out);
+                if (first - sizeY >= 0) claim((int) ((first - sizeY) >>> 6), out);
+                if (first + 63 - sizeY >= 0) claim((int) ((first + 63 - sizeY) >>> 6), out);
+            }
+            return out;
+        }
+
+        /**
+         * computes a word once per level, several frontier words can have it as neighbor
+         */
+        private void claim(int w, int[] out) {
+            if (w < 0 || w >= words) return;
+            int stamp = stamps.get(w);
+            if (stamp == level || !stamps.compareAndSet(w, stamp, level)) return;
+            compute(w, out);
+        }
+
+        /**
+         * computes the open words from index from to index to, which still have unvisited cells
+         *
+         * @return words with cells of the next level, the first element is the number of words
+         */
+        private int[] bottomUp(int from, int to) {
+            int[] out = new int[1 + to - from];
+            for (int k = from; k < to; k++) {
+                compute(openWords[k], out);
+            }
+            return out;
+        }
+
+        /**
+         * Finds the cells of a word which are reached in this level
+         */
+        private void compute(int w, int[] out) {
+            long reached = gather(w) & ~visited[w];
+            if (reached == 0) return;
+            next[w] = reached;
+            visited[w] |= reached;
+            out[++out[0]] = w;
+            record(w, reached);
+        }
+
+        /**
+         * @return cells of a word which have a connected neighbor in the frontier
+         */
+        private long gather(int w) {
+            long here = frontier[w];
+            long before = w > 0 ? frontier[w - 1] : 0;
+            long after = w + 1 < words ? frontier[w + 1] : 0;
+            // north neighbor c - 1 over its south connection
+            long fromNorth = (here & south[w]) << 1 | (w > 0 ? (before & south[w - 1]) >>> 63 : 0);
+            // south neighbor c + 1 over the south connection of c
+            long fromSouth = south[w] & (here >>> 1 | after << 63);
+            // west neighbor c - sizeY over its east connection
+            long fromWest = shifted(w, -sizeY, true);
+            // east neighbor c + sizeY over the east connection of c
+            long fromEast = east[w] & shifted(w, sizeY, false);
+            return fromNorth | fromSouth | fromWest | fromEast;
+        }
+
+        /**
+         * @param offset   distance of the neighbor cells
+         * @param eastOnly true to only take frontier cells with an east connection
+         * @return frontier bits of cell c + offset at the position of every cell c of the word
+         */
+        private long shifted(int w, int offset, boolean eastOnly) {
+            long first = ((long) w << 6) + offset;
+            int word = (int) Math.floorDiv(first, 64);
+            int shift = Math.floorMod(first, 64);
+            long low = frontierWord(word, eastOnly);
+            if (shift == 0) return low;
+            return low >>> shift | frontierWord(word + 1, eastOnly) << (64 - shift);
+        }
+
+        private long frontierWord(int w, boolean eastOnly) {
+            if (w < 0 || w >= words) return 0;
+            return eastOnly ? frontier[w] & east[w] : frontier[w];
+        }
+
+        /**
+         * stores the distance of newly reached cells
+         */
+        private void record(int w, long reached) {
+            if (dist != null) {
+                for (long bits = reached; bits != 0; bits &= bits - 1) {
+                    dist[(w << 6) + Long.numberOfTrailingZeros(bits)] = level;
+                }
+            }
+            if (targets != null) {
+                int k = Arrays.binarySearch(targets, w << 6);
+                if (k < 0) k = -k - 1;
+                for (; k < targets.length && targets[k] < (w + 1) << 6; k++) {
+                    if ((reached >>> (targets[k] & 63) & 1) != 0) {
+                        found[k] = level;
+                        remaining.decrementAndGet();
+                    }
+                }
+            }
+        }
+
+        /**
+         * drops the words without unvisited cells from the open words
+         */
+        private void compactOpenWords() {
+            int count = 0;
+            for (int k = 0; k < openCount; k++) {
+                int w = openWords[k];
+                long valid = w == words - 1 && size % 64 != 0 ? (1L << size) - 1 : -1L;
+                if ((visited[w] & valid) != valid) openWords[count++] = w;
+            }
+            openCount = count;
+        }
+
+        /**
+         * clears the frontier and makes the next level the new frontier
+         */
+        private void advance(int[][] nextWords) {
+            for (int k = 0; k < frontierCount; k++) frontier[frontierWords[k]] = 0;
+            long[] temp = frontier;
+            frontier = next;
+            next = temp;
+            int count = 0;
+            for (int[] out : nextWords) count += out[0];
+            if (frontierWords.length < count) frontierWords = new int[Math.max(count, frontierWords.length * 2)];
+            frontierCount = 0;
+            for (int[] out : nextWords) {
+                System.arraycopy(out, 1, frontierWords, frontierCount, out[0]);
+                frontierCount += out[0];
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package sphero.algo.local;
+
+import sphero.common.Location;
+import sphero.common.Map;
+
+import java.util.List;
+
+/**
+ * Connected components of a map
+ * <p>
+ * Every field is labelled with the number of its component by one flood fill per component, which takes O(fields)
+ * time. Two fields are connected by a path if and only if they have the same label, so an unreachable destination
+ * is found before any search instead of after a search which has visited a whole part of the map.
+ * <p>
+ * The labels are built once per map (see {@link #get(Map)}) and rebuilt after the map has been changed
+ * through {@link Map#connect} or {@link Map#disconnect}.
+ */
+public class Components {
+
+    private static final MapScopedCache<Components> cache = new MapScopedCache<>();
+
+    private final int version;
+    private final int[] labels;
+    private final int count;
+
+    public Components(Map map) {
+        this.version = map.getVersion();
+        int size = map.getSizeX() * map.getSizeY();
+        this.labels = new int[size];
+        int[] stack = new int[size];
+        int[] neighbors = new int[4];
+        int label = 0;
+        for (int root = 0; root < size; root++) {
+            if (labels[root] != 0) continue;
+            // labels start at 1 while filling, so 0 marks unvisited fields
+            label++;
+            int top = 0;
+            stack[top++] = root;
+            labels[root] = label;
+            while (top > 0) {
+                int current = stack[--top];
+                int degree = map.getNeighbors(current, neighbors);
+                for (int k = 0; k < degree; k++) {
+                    if (labels[neighbors[k]] == 0) {
+                        labels[neighbors[k]] = label;
+                        stack[top++] = neighbors[k];
+                    }
+                }
+            }
+        }
+        for (int id = 0; id < size; id++) labels[id]--;
+        this.count = label;
+    }
+
+    /**
+     * Returns the components of a map, labelling them if there are none or the map has changed since they were built
+     * The labels are shared by all threads and all configurations on the same map.
+     */
+    public static Components get(Map map) {
+        return cache.get(map, c -> c.isValidFor(map), Components::new);
+    }
+
+    /**
+     * @return false if the map has been changed after the components were labelled
+     */
+    public boolean isValidFor(Map map) {
+        return version == map.getVersion();
+    }
+
+    /**
+     * @return number of components, a field without connections is a component of its own
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return component of a field, between 0 and {@link #getCount()} - 1
+     */
+    public int label(int id) {
+        return labels[id];
+    }
+
+    /**
+     * @return true if there is a path between the fields
+     */
+    public boolean connected(int a, int b) {
+        return labels[a] == labels[b];
+    }
+
+    /**
+     * @return index of the first location which is not in the component of the first location,
+     * -1 if all locations are connected
+     */
+    public int firstUnreachable(List<Location> locations) {
+        if (locations.isEmpty()) return -1;
+        int label = labels[locations.get(0).getField().getId()];
+        for (int i = 1; i < locations.size(); i++) {
+            if (labels[locations.get(i).getField().getId()] != label) return i;
+        }
+        return -1;
+    }
+}
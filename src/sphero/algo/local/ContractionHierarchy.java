@@ -0,0 +1,589 @@
+package sphero.algo.local;
+
+import sphero.common.Field;
+import sphero.common.GridGraph;
+import sphero.common.Location;
+import sphero.common.Map;
+import sphero.common.Path;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Contraction Hierarchies for many queries on a map which rarely changes
+ * <p>
+ * The preprocessing removes (contracts) the fields one after another and connects the remaining neighbors of a
+ * contracted field by a shortcut, unless a witness search finds a path of the same length that avoids it.
+ * The order of the fields is the rank in the hierarchy. Every edge and shortcut is stored once, at the endpoint with
+ * the lower rank, so a query is a bidirectional Dijkstra search which only moves up in the hierarchy and
+ * settles a few hundred fields even on large mazes. Shortcuts remember the field they bypass, so the result is
+ * unpacked into the same kind of {@link Path} as {@link BFS#shortestDistanceAStar}.
+ * <p>
+ * A hierarchy can be written to disk with {@link #save(File)}. It keeps a fingerprint of the connections of the map,
+ * see {@link #isValidFor(Map)}, so {@link #loadOrBuild(File, Map)} only repeats the preprocessing after the map has
+ * changed.
+ */
+public class ContractionHierarchy {
+
+    private static final int MAGIC = 0x53504348; // "SPCH"
+    private static final int FORMAT_VERSION = 1;
+    /**
+     * maximum number of fields settled by a witness search, a search which stops early only adds a shortcut too many
+     */
+    private static final int WITNESS_LIMIT = 100;
+    private static final int NO_MIDDLE = -1;
+
+    private static final MapScopedCache<ContractionHierarchy> cache = new MapScopedCache<>();
+
+    private final int sizeX;
+    private final int sizeY;
+    private final long fingerprint;
+    /**
+     * version of the map the hierarchy was built for, -1 if it was loaded
+     */
+    private final int version;
+    private final int[] rank;
+    /**
+     * upward edges of field v are stored at the indices upStart[v] until upStart[v + 1]
+     */
+    private final int[] upStart;
+    private final int[] upSource;
+    private final int[] upTarget;
+    private final int[] upWeight;
+    /**
+     * contracted field which is bypassed by a shortcut, {@link #NO_MIDDLE} for edges of the map
+     */
+    private final int[] upMiddle;
+
+    /**
+     * Contracts all fields of a map
+     */
+    public ContractionHierarchy(Map map) {
+        this(new Builder(map.getGrid()), map.getVersion());
+    }
+
+    private ContractionHierarchy(Builder builder, int version) {
+        this(builder.grid.getSizeX(), builder.grid.getSizeY(), fingerprint(builder.grid), version, builder.rank,
+                builder.upStart, builder.upTarget, builder.upWeight, builder.upMiddle);
+    }
+
+    private ContractionHierarchy(int sizeX, int sizeY, long fingerprint, int version, int[] rank,
+                                 int[] upStart, int[] upTarget, int[] upWeight, int[] upMiddle) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.fingerprint = fingerprint;
+        this.version = version;
+        this.rank = rank;
+        this.upStart = upStart;
+        this.upTarget = upTarget;
+        this.upWeight = upWeight;
+        this.upMiddle = upMiddle;
+        this.upSource = new int[upTarget.length];
+        for (int v = 0; v < rank.length; v++) {
+            Arrays.fill(upSource, upStart[v], upStart[v + 1], v);
+        }
+    }
+
+    /**
+     * Returns the hierarchy of a map, building it if there is none or the map has changed since it was built
+     * The hierarchy is shared by all threads and all configurations on the same map.
+     */
+    public static ContractionHierarchy get(Map map) {
+        return cache.get(map, h -> h.version == map.getVersion(), ContractionHierarchy::new);
+    }
+
+    /**
+     * Loads the hierarchy of a map from a file, or builds it and writes it to the file if the file does not exist
+     * or belongs to a different version of the map
+     */
+    public static ContractionHierarchy loadOrBuild(File file, Map map) throws IOException {
+        if (file.exists()) {
+            ContractionHierarchy hierarchy = load(file);
+            if (hierarchy.isValidFor(map)) return hierarchy;
+        }
+        ContractionHierarchy hierarchy = new ContractionHierarchy(map);
+        hierarchy.save(file);
+        return hierarchy;
+    }
+
+    /**
+     * @return false if the map has different connections than the map the hierarchy was built for
+     */
+    public boolean isValidFor(Map map) {
+        return map.getSizeX() == sizeX && map.getSizeY() == sizeY && fingerprint(map.getGrid()) == fingerprint;
+    }
+
+    /**
+     * @return number of upward edges, including the shortcuts
+     */
+    public int getEdgeCount() {
+        return upTarget.length;
+    }
+
+    /**
+     * @return number of shortcuts added by the preprocessing
+     */
+    public int getShortcutCount() {
+        int count = 0;
+        for (int middle : upMiddle) {
+            if (middle != NO_MIDDLE) count++;
+        }
+        return count;
+    }
+
+    /**
+     * @param from : the starting position of the bolt
+     * @param to   : the destination of the bolt
+     * @return the path to the destination
+     */
+    public Path shortestDistance(Location from, Location to, Map map) {
+        return shortestDistance(from, to, map, SearchWorkspace.get(map));
+    }
+
+    /**
+     * Bidirectional upward search, which stops once neither direction can improve the best meeting point
+     *
+     * @param from      : the starting position of the bolt
+     * @param to        : the destination of the bolt
+     * @param workspace : reusable search memory of the calling thread
+     * @return the path to the destination, null if there is none
+     */
+    public Path shortestDistance(Location from, Location to, Map map, SearchWorkspace workspace) {
+        Field startPosition = from.getField();
+        Field destination = to.getField();
+        if (startPosition.equals(destination)) {
+            return new Path(Arrays.asList(startPosition, destination), from, to, 0);
+        }
+        SearchWorkspace backward = workspace.backward();
+        workspace.begin();
+        backward.begin();
+        IntIndexMinPQ forwardQueue = workspace.intQueue();
+        IntIndexMinPQ backwardQueue = backward.intQueue();
+        int s = startPosition.getId();
+        int t = destination.getId();
+        forwardQueue.insert(s, 0, 0);
+        workspace.visit(s);
+        backwardQueue.insert(t, 0, 0);
+        backward.visit(t);
+        int best = Integer.MAX_VALUE;
+        int meeting = -1;
+        while (true) {
+            boolean forwardOpen = !forwardQueue.isEmpty() && forwardQueue.fOf(forwardQueue.minIndex()) < best;
+            boolean backwardOpen = !backwardQueue.isEmpty() && backwardQueue.fOf(backwardQueue.minIndex()) < best;
+            if (!forwardOpen && !backwardOpen) break;
+            boolean forward = forwardOpen && (!backwardOpen || forwardQueue.size() <= backwardQueue.size());
+            SearchWorkspace ws = forward ? workspace : backward;
+            SearchWorkspace other = forward ? backward : workspace;
+            IntIndexMinPQ queue = forward ? forwardQueue : backwardQueue;
+            IntIndexMinPQ otherQueue = forward ? backwardQueue : forwardQueue;
+            int current = queue.delMin();
+            int g = queue.gOf(current);
+            ws.expand();
+            if (other.isVisited(current) && g + otherQueue.gOf(current) < best) {
+                best = g + otherQueue.gOf(current);
+                meeting = current;
+            }
+            for (int e = upStart[current]; e < upStart[current + 1]; e++) {
+                int next = upTarget[e];
+                int d = g + upWeight[e];
+                if (!ws.isVisited(next)) {
+                    ws.visit(next);
+                    ws.parent[next] = e;
+                    queue.insert(next, d, d);
+                } else if (queue.contains(next) && queue.gOf(next) > d) {
+                    ws.parent[next] = e;
+                    queue.decreaseKey(next, d, d);
+                }
+            }
+        }
+        workspace.addExpansions(backward.getExpansions());
+        if (meeting < 0) return null;
+        return toPath(workspace.parent, backward.parent, s, t, meeting, from, to, map);
+    }
+
+    /**
+     * Unpacks the upward edges from the start to the meeting point and from the destination to the meeting point
+     *
+     * @return path without the start and the destination field
+     */
+    private Path toPath(int[] forwardParent, int[] backwardParent, int s, int t, int meeting,
+                        Location from, Location to, Map map) {
+        List<Integer> up = new ArrayList<>();
+        for (int v = meeting; v != s; v = upSource[forwardParent[v]]) up.add(forwardParent[v]);
+        List<Integer> ids = new ArrayList<>();
+        ids.add(s);
+        for (int k = up.size() - 1; k >= 0; k--) {
+            int e = up.get(k);
+            unpack(upSource[e], upTarget[e], upMiddle[e], ids);
+        }
+        for (int v = meeting; v != t; v = upSource[backwardParent[v]]) {
+            int e = backwardParent[v];
+            unpack(upTarget[e], upSource[e], upMiddle[e], ids);
+        }
+        List<Field> path = new ArrayList<>(ids.size());
+        for (int k = 1; k < ids.size() - 1; k++) path.add(map.getField(ids.get(k)));
+        return new Path(path, from, to, path.size() + 1);
+    }
+
+    /**
+     * Appends the fields of an edge after its first field, shortcuts are replaced by the two edges they bypass
+     */
+    private void unpack(int a, int b, int middle, List<Integer> ids) {
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = a;
+        stack[top++] = b;
+        stack[top++] = middle;
+        while (top > 0) {
+            int m = stack[--top];
+            int y = stack[--top];
+            int x = stack[--top];
+            if (m == NO_MIDDLE) {
+                ids.add(y);
+                continue;
+            }
+            if (top + 6 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+            // the second half is pushed first, so the first half is unpacked first
+            stack[top++] = m;
+            stack[top++] = y;
+            stack[top++] = middleOf(m, y);
+            stack[top++] = x;
+            stack[top++] = m;
+            stack[top++] = middleOf(x, m);
+        }
+    }
+
+    /**
+     * @return field bypassed by the edge between two fields, which is stored at the field with the lower rank
+     */
+    private int middleOf(int a, int b) {
+        int low = rank[a] < rank[b] ? a : b;
+        int high = low == a ? b : a;
+        for (int e = upStart[low]; e < upStart[low + 1]; e++) {
+            if (upTarget[e] == high) return upMiddle[e];
+        }
+        throw new IllegalStateException("no edge between " + a + " and " + b);
+    }
+
+    public void save(File file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            save(out);
+        }
+    }
+
+    /**
+     * Writes the hierarchy in a binary format, which can be read with {@link #load(InputStream)}
+     */
+    public void save(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(sizeX);
+        out.writeInt(sizeY);
+        out.writeLong(fingerprint);
+        out.writeInt(upTarget.length);
+        writeInts(out, rank);
+        writeInts(out, upStart);
+        writeInts(out, upTarget);
+        writeInts(out, upWeight);
+        writeInts(out, upMiddle);
+        out.flush();
+    }
+
+    public static ContractionHierarchy load(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return load(in);
+        }
+    }
+
+    /**
+     * Reads a hierarchy written by {@link #save(OutputStream)}
+     *
+     * @throws IOException if the data is not a hierarchy of a supported format version, is truncated or inconsistent
+     */
+    public static ContractionHierarchy load(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+        if (in.readInt() != MAGIC) throw new IOException("not a contraction hierarchy");
+        int format = in.readInt();
+        if (format != FORMAT_VERSION) throw new IOException("unsupported format version " + format);
+        int sizeX = in.readInt();
+        int sizeY = in.readInt();
+        long fingerprint = in.readLong();
+        int edges = in.readInt();
+        if (sizeX <= 0 || sizeY <= 0 || (long) sizeX * sizeY >= Integer.MAX_VALUE) {
+            throw new IOException("invalid map size " + sizeX + " x " + sizeY);
+        }
+        if (edges < 0) throw new IOException("invalid number of edges " + edges);
+        int n = sizeX * sizeY;
+        int[] rank = readInts(in, n);
+        for (int r : rank) {
+            if (r < 0 || r >= n) throw new IOException("rank out of range: " + r);
+        }
+        int[] upStart = readInts(in, n + 1);
+        if (upStart[0] != 0 || upStart[n] != edges) throw new IOException("edge offsets do not match the number of edges");
+        for (int v = 0; v < n; v++) {
+            if (upStart[v] > upStart[v + 1]) throw new IOException("edge offsets are not ascending");
+        }
+        int[] upTarget = readInts(in, edges);
+        int[] upWeight = readInts(in, edges);
+        int[] upMiddle = readInts(in, edges);
+        for (int e = 0; e < edges; e++) {
+            if (upTarget[e] < 0 || upTarget[e] >= n) throw new IOException("edge target out of range: " + upTarget[e]);
+            if (upWeight[e] <= 0) throw new IOException("edge weight must be positive: " + upWeight[e]);
+            if (upMiddle[e] != NO_MIDDLE && (upMiddle[e] < 0 || upMiddle[e] >= n)) {
+                throw new IOException("shortcut middle out of range: " + upMiddle[e]);
+            }
+        }
+        return new ContractionHierarchy(sizeX, sizeY, fingerprint, -1, rank, upStart, upTarget, upWeight, upMiddle);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) out.writeInt(value);
+    }
+
+    /**
+     * Grows the array while reading, so a wrong count in a truncated file ends with an EOFException
+     * instead of allocating the whole array first
+     */
+    private static int[] readInts(DataInputStream in, int count) throws IOException {
+        int[] values = new int[Math.min(count, 1 << 16)];
+        for (int i = 0; i < count; i++) {
+            if (i == values.length) values = Arrays.copyOf(values, (int) Math.min(count, 2L * values.length));
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    /**
+     * 64 bit hash of the size and all connections of a grid
+     */
+    static long fingerprint(GridGraph grid) {
+        long h = 31L * grid.getSizeX() + grid.getSizeY();
+        for (long word : grid.getWords()) {
+            h = (h ^ word) * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 29;
+        }
+        return h;
+    }
+
+    /**
+     * Contraction of all fields, ordered by edge difference and the number of contracted neighbors
+     */
+    private static class Builder {
+        final GridGraph grid;
+        final int n;
+        /**
+         * edges of the remaining graph as (target, weight, middle) triples
+         */
+        final int[][] adjacency;
+        final int[] degree;
+        final boolean[] contracted;
+        final int[] contractedNeighbors;
+        final int[] rank;
+
+        final IntIndexMinPQ witnessQueue;
+        final int[] stamps;
+        int generation = 0;
+
+        int[] upStart;
+        int[] upTarget;
+        int[] upWeight;
+        int[] upMiddle;
+
+        Builder(GridGraph grid) {
+            this.grid = grid;
+            this.n = grid.size();
+            adjacency = new int[n][];
+            degree = new int[n];
+            contracted = new boolean[n];
+            contractedNeighbors = new int[n];
+            rank = new int[n];
+            witnessQueue = new IntIndexMinPQ(n);
+            stamps = new int[n];
+            int[] neighbors = new int[4];
+            for (int v = 0; v < n; v++) {
+                int count = grid.neighbors(v, neighbors);
+                adjacency[v] = new int[3 * Math.max(count, 1)];
+                for (int k = 0; k < count; k++) addEdge(v, neighbors[k], 1, NO_MIDDLE);
+            }
+            contract();
+        }
+
+        /**
+         * Contracts the fields in the order of their priority, priorities are updated lazily:
+         * a field whose priority has grown since it was queued goes back to the queue
+         */
+        void contract() {
+            IntIndexMinPQ order = new IntIndexMinPQ(n);
+            for (int v = 0; v < n; v++) order.insert(v, priority(v), 0);
+            // upward edges in the order of contraction
+            int[] start = new int[n];
+            int[] count = new int[n];
+            IntList target = new IntList();
+            IntList weight = new IntList();
+            IntList middle = new IntList();
+            int next = 0;
+            while (!order.isEmpty()) {
+                int v = order.delMin();
+                int p = priority(v);
+                if (!order.isEmpty() && p > order.fOf(order.minIndex())) {
+                    order.insert(v, p, 0);
+                    continue;
+                }
+                rank[v] = next++;
+                start[v] = target.size;
+                count[v] = degree[v];
+                for (int k = 0; k < degree[v]; k++) {
+                    target.add(adjacency[v][3 * k]);
+                    weight.add(adjacency[v][3 * k + 1]);
+                    middle.add(adjacency[v][3 * k + 2]);
+                }
+                addShortcuts(v, true);
+                contracted[v] = true;
+                for (int k = 0; k < degree[v]; k++) {
+                    int u = adjacency[v][3 * k];
+                    removeEdge(u, v);
+                    contractedNeighbors[u]++;
+                    int q = priority(u);
+                    if (q < order.fOf(u)) order.decreaseKey(u, q, 0);
+                }
+                adjacency[v] = null;
+            }
+
+            // sort the upward edges by field id
+            upStart = new int[n + 1];
+            upTarget = new int[target.size];
+            upWeight = new int[target.size];
+            upMiddle = new int[target.size];
+            int e = 0;
+            for (int v = 0; v < n; v++) {
+                upStart[v] = e;
+                System.arraycopy(target.values, start[v], upTarget, e, count[v]);
+                System.arraycopy(weight.values, start[v], upWeight, e, count[v]);
+                System.arraycopy(middle.values, start[v], upMiddle, e, count[v]);
+                e += count[v];
+            }
+            upStart[n] = e;
+        }
+
+        int priority(int v) {
+            return addShortcuts(v, false) - degree[v] + contractedNeighbors[v];
+        }
+
+        /**
+         * Finds the pairs of neighbors, whose shortest connection leads through v
+         *
+         * @param add false to only count the shortcuts
+         * @return number of shortcuts
+         */
+        int addShortcuts(int v, boolean add) {
+            int shortcuts = 0;
+            int[] edges = adjacency[v];
+            int deg = degree[v];
+            int maxWeight = 0;
+            for (int k = 0; k < deg; k++) maxWeight = Math.max(maxWeight, edges[3 * k + 1]);
+            for (int i = 0; i < deg; i++) {
+                int u = edges[3 * i];
+                int wu = edges[3 * i + 1];
+                witnessSearch(u, v, wu + maxWeight);
+                for (int j = i + 1; j < deg; j++) {
+                    int w = edges[3 * j];
+                    int via = wu + edges[3 * j + 1];
+                    if (stamps[w] == generation && witnessQueue.gOf(w) <= via) continue;
+                    shortcuts++;
+                    if (add) {
+                        addEdge(u, w, via, v);
+                        addEdge(w, u, via, v);
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Dijkstra search from u on the remaining graph without v, which stops at the given distance or after
+         * {@link #WITNESS_LIMIT} fields. Reached fields are stamped with the current generation and their distance
+         * is left in the queue.
+         */
+        void witnessSearch(int u, int v, int limit) {
+            generation++;
+            witnessQueue.clear();
+            witnessQueue.insert(u, 0, 0);
+            stamps[u] = generation;
+            int settled = 0;
+            while (!witnessQueue.isEmpty() && settled++ < WITNESS_LIMIT) {
+                int x = witnessQueue.delMin();
+                int d = witnessQueue.gOf(x);
+                if (d > limit) break;
+                int[] edges = adjacency[x];
+                for (int k = 0; k < degree[x]; k++) {
+                    int y = edges[3 * k];
+                    if (y == v) continue;
+                    int nd = d + edges[3 * k + 1];
+                    if (stamps[y] != generation) {
+                        stamps[y] = generation;
+                        witnessQueue.insert(y, nd, nd);
+                    } else if (witnessQueue.contains(y) && witnessQueue.gOf(y) > nd) {
+                        witnessQueue.decreaseKey(y, nd, nd);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds an edge from a to b or shortens the existing one
+         */
+        void addEdge(int a, int b, int weight, int middle) {
+            int[] edges = adjacency[a];
+            for (int k = 0; k < degree[a]; k++) {
+                if (edges[3 * k] == b) {
+                    if (weight < edges[3 * k + 1]) {
+                        edges[3 * k + 1] = weight;
+                        edges[3 * k + 2] = middle;
+                    }
+                    return;
+                }
+            }
+            if (3 * degree[a] == edges.length) adjacency[a] = edges = Arrays.copyOf(edges, edges.length * 2);
+            edges[3 * degree[a]] = b;
+            edges[3 * degree[a] + 1] = weight;
+            edges[3 * degree[a] + 2] = middle;
+            degree[a]++;
+        }
+
+        void removeEdge(int a, int b) {
+            int[] edges = adjacency[a];
+            for (int k = 0; k < degree[a]; k++) {
+                if (edges[3 * k] == b) {
+                    degree[a]--;
+                    System.arraycopy(edges, 3 * degree[a], edges, 3 * k, 3);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * growing array of ints
+     */
+    private static class IntList {
+        int[] values = new int[1024];
+        int size = 0;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package sphero.algo.local;
+
+import sphero.common.Field;
+import sphero.common.GridGraph;
+import sphero.common.Location;
+import sphero.common.Map;
+import sphero.common.MapEdit;
+import sphero.common.Path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Hierarchical path finding (HPA*) for very large maps
+ * <p>
+ * The map is split into square clusters. Fields at the border of a cluster, which are connected to a field of the
+ * neighboring cluster, are entrances. For every cluster the distances between its entrances are precomputed with
+ * breadth-first searches that stay inside the cluster. A query connects start and destination to the entrances of
+ * their clusters, runs A* on the entrances and only searches the fields of the clusters on the chosen route again.
+ * <p>
+ * In exact mode every connection between two clusters is an entrance, so the distances are the same as those of
+ * {@link BFS}. Otherwise each continuous opening between two clusters only gets an entrance in its middle (or one at
+ * both ends, if it is long) for every pair of connected parts of the two clusters. This keeps the cluster graph much
+ * smaller and still finds a path whenever there is one, but paths can take small detours through the chosen
+ * entrances.
+ * <p>
+ * After the map has been changed, {@link #update(Map, List)} rebuilds only the clusters containing the edited fields
+ * (and in inexact mode their neighbors, whose entrances depend on the connected parts of the edited clusters).
+ */
+public class HierarchicalSearch {
+
+    /**
+     * default edge length of a cluster
+     */
+    public static final int DEFAULT_CLUSTER_SIZE = 32;
+    /**
+     * openings of at least this length get an entrance at both ends in inexact mode
+     */
+    private static final int LONG_OPENING = 6;
+    private static final int UNREACHABLE = -1;
+
+    private static final MapScopedCache<HierarchicalSearch> cache = new MapScopedCache<>();
+
+    private final GridGraph grid;
+    private final int sizeX;
+    private final int sizeY;
+    private final int clusterSize;
+    private final int clustersY;
+    private final boolean exact;
+    private final Cluster[] clusters;
+    /**
+     * index of a field among the entrances of its cluster, -1 if it is no entrance
+     */
+    private final int[] entranceIndex;
+    private volatile int version;
+    /**
+     * queries hold the read lock, {@link #update(Map, List)} holds the write lock
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Builds the clusters in parallel
+     *
+     * @param clusterSize edge length of a cluster
+     * @param exact       true for the same distances as {@link BFS}, false for a smaller cluster graph
+     */
+    public HierarchicalSearch(Map map, int clusterSize, boolean exact) {
+        if (clusterSize < 2) throw new IllegalArgumentException("clusters need at least 2 fields per side");
+        this.grid = map.getGrid();
+        this.sizeX = map.getSizeX();
+        this.sizeY = map.getSizeY();
+        this.clusterSize = clusterSize;
+        this.clustersY = (sizeY + clusterSize - 1) / clusterSize;
+        this.exact = exact;
+        int clustersX = (sizeX + clusterSize - 1) / clusterSize;
+        this.clusters = new Cluster[clustersX * clustersY];
+        this.entranceIndex = new int[sizeX * sizeY];
+        Arrays.fill(entranceIndex, -1);
+        this.version = map.getVersion();
+        IntStream.range(0, clusters.length).parallel().forEach(this::rebuild);
+    }
+
+    /**
+     * Returns the exact hierarchy of a map with the default cluster size, building it if there is none or the map
+     * has changed without an {@link #update(Map, List)} since it was built
+     */
+    public static HierarchicalSearch get(Map map) {
+        return cache.get(map, h -> h.isValidFor(map), m -> new HierarchicalSearch(m, DEFAULT_CLUSTER_SIZE, true));
+    }
+
+    /**
+     * Rebuilds the clusters containing the fields of the edits, after the edits have been applied to the map
+     * An edit between two clusters changes the entrances of both clusters. In inexact mode an edit inside a cluster
+     * can change its connected parts, by which both sides of an opening choose their entrances, so the up to four
+     * neighbors of every edited cluster are rebuilt as well.
+     * Waits for running queries and blocks new ones until the clusters are rebuilt.
+     *
+     * @return number of rebuilt clusters
+     */
+    public int update(Map map, List<MapEdit> edits) {
+        lock.writeLock().lock();
+        try {
+            return rebuildAffected(map, edits);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int rebuildAffected(Map map, List<MapEdit> edits) {
+        Set<Integer> affected = new HashSet<>();
+        for (MapEdit edit : edits) {
+            affected.add(clusterOf(edit.getA().getId()));
+            affected.add(clusterOf(edit.getB().getId()));
+        }
+        if (!exact) {
+            for (int c : new ArrayList<>(affected)) {
+                int cx = c / clustersY;
+                int cy = c % clustersY;
+                if (cx > 0) affected.add(c - clustersY);
+                if (c + clustersY < clusters.length) affected.add(c + clustersY);
+                if (cy > 0) affected.add(c - 1);
+                if (cy + 1 < clustersY) affected.add(c + 1);
+            }
+        }
+        affected.parallelStream().forEach(this::rebuild);
+        version = map.getVersion();
+        return affected.size();
+    }
+
+    /**
+     * @return false if the map has been changed since the clusters were built or updated
+     */
+    public boolean isValidFor(Map map) {
+        return version == map.getVersion();
+    }
+
+    public boolean isExact() {
+        return exact;
+    }
+
+    public int getClusterSize() {
+        return clusterSize;
+    }
+
+    /**
+     * @return number of entrances of all clusters
+     */
+    public int getEntranceCount() {
+        int count = 0;
+        for (Cluster c : clusters) count += c.entrances.length;
+        return count;
+    }
+
+    /**
+     * @param from : the starting position of the bolt
+     * @param to   : the destination of the bolt
+     * @return the path to the destination
+     */
+    public Path shortestDistance(Location from, Location to, Map map) {
+        return shortestDistance(from, to, map, SearchWorkspace.get(map));
+    }
+
+    /**
+     * A* on the entrances of the clusters, start and destination are connected to the entrances of their clusters
+     * Queries can run in parallel, but not during an {@link #update(Map, List)}.
+     *
+     * @param from      : the starting position of the bolt
+     * @param to        : the destination of the bolt
+     * @param workspace : reusable search memory of the calling thread
+     * @return the path to the destination, null if there is none
+     */
+    public Path shortestDistance(Location from, Location to, Map map, SearchWorkspace workspace) {
+        lock.readLock().lock();
+        try {
+            return search(from, to, map, workspace);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Path search(Location from, Location to, Map map, SearchWorkspace workspace) {
+        Field startPosition = from.getField();
+        Field destination = to.getField();
+        if (startPosition.equals(destination)) {
+            return new Path(Arrays.asList(startPosition, destination), from, to, 0);
+        }
+        int s = startPosition.getId();
+        int t = destination.getId();
+        int startCluster = clusterOf(s);
+        int destCluster = clusterOf(t);
+        // distances inside the clusters of start and destination
+        int area = clusterSize * clusterSize;
+        int[] fromStart = workspace.clusterArray(0, area);
+        int[] toDest = workspace.clusterArray(1, area);
+        int[] queue = workspace.clusterArray(2, area);
+        int[] neighbors = workspace.neighbors;
+        breadthFirst(startCluster, s, fromStart, null, queue, neighbors);
+        breadthFirst(destCluster, t, toDest, null, queue, neighbors);
+
+        workspace.begin();
+        int[] parent = workspace.parent;
+        IntIndexMinPQ pq = workspace.intQueue();
+        pq.insert(s, BFS.manhattan(s, t, sizeY), 0);
+        workspace.visit(s);
+        boolean destFound = false;
+        while (!pq.isEmpty()) {
+            int current = pq.delMin();
+            workspace.expand();
+            if (current == t) {
+                destFound = true;
+                break;
+            }
+            int g = pq.gOf(current);
+            int c = clusterOf(current);
+            Cluster cluster = clusters[c];
+            if (current == s) {
+                for (int j = 0; j < cluster.entrances.length; j++) {
+                    int d = fromStart[local(c, cluster.entrances[j])];
+                    if (d != UNREACHABLE) relax(workspace, pq, current, cluster.entrances[j], g + d, t);
+                }
+            } else {
+                int i = entranceIndex[current];
+                int k = cluster.entrances.length;
+                for (int j = 0; j < k; j++) {
+                    int d = cluster.distances[i * k + j];
+                    if (d != UNREACHABLE && j != i) relax(workspace, pq, current, cluster.entrances[j], g + d, t);
+                }
+            }
+            if (entranceIndex[current] >= 0) {
+                int count = grid.neighbors(current, neighbors);
+                for (int k = 0; k < count; k++) {
+                    int next = neighbors[k];
+                    if (clusterOf(next) != c && entranceIndex[next] >= 0) relax(workspace, pq, current, next, g + 1, t);
+                }
+            }
+            if (c == destCluster) {
+                int d = toDest[local(c, current)];
+                if (d != UNREACHABLE) relax(workspace, pq, current, t, g + d, t);
+            }
+        }
+        if (!destFound) return null;
+        return refine(parent, s, t, from, to, map, workspace, queue, neighbors);
+    }
+
+    private void relax(SearchWorkspace workspace, IntIndexMinPQ pq, int current, int next, int d, int t) {
+        if (!workspace.isVisited(next)) {
+            workspace.visit(next);
+            workspace.parent[next] = current;
+            pq.insert(next, d + BFS.manhattan(next, t, sizeY), d);
+        } else if (pq.contains(next) && pq.gOf(next) > d) {
+            workspace.parent[next] = current;
+            pq.decreaseKey(next, d + BFS.manhattan(next, t, sizeY), d);
+        }
+    }
+
+    /**
+     * Replaces the steps between consecutive entrances by the fields of a search inside their cluster
+     *
+     * @return path without the start and the destination field
+     */
+    private Path refine(int[] parent, int s, int t, Location from, Location to, Map map,
+                        SearchWorkspace workspace, int[] queue, int[] neighbors) {
+        List<Integer> route = new ArrayList<>();
+        for (int v = t; v != s; v = parent[v]) route.add(v);
+        route.add(s);
+        Collections.reverse(route);
+        int[] dist = workspace.clusterArray(3, clusterSize * clusterSize);
+        int[] localParent = workspace.clusterArray(4, clusterSize * clusterSize);
+        List<Field> path = new ArrayList<>();
+        for (int k = 0; k + 1 < route.size(); k++) {
+            int a = route.get(k);
+            int b = route.get(k + 1);
+            int c = clusterOf(a);
+            if (c == clusterOf(b)) {
+                breadthFirst(c, a, dist, localParent, queue, neighbors);
+                int start = path.size();
+                for (int v = b; v != a; v = global(c, localParent[local(c, v)])) {
+                    path.add(map.getField(v));
+                }
+                Collections.reverse(path.subList(start, path.size()));
+            } else {
+                path.add(map.getField(b));
+            }
+        }
+        path.remove(path.size() - 1);
+        return new Path(path, from, to, path.size() + 1);
+    }
+
+    /**
+     * Finds the entrances of a cluster and the distances between them
+     */
+    private void rebuild(int c) {
+        Cluster old = clusters[c];
+        if (old != null) {
+            for (int e : old.entrances) entranceIndex[e] = -1;
+        }
+        int x0 = (c / clustersY) * clusterSize;
+        int y0 = (c % clustersY) * clusterSize;
+        int x1 = Math.min(x0 + clusterSize, sizeX) - 1;
+        int y1 = Math.min(y0 + clusterSize, sizeY) - 1;
+        int[] dist = new int[clusterSize * clusterSize];
+        int[] queue = new int[clusterSize * clusterSize];
+        int[] neighbors = new int[4];
+        int[] inside = null;
+        int[] outside = null;
+        if (!exact) {
+            inside = new int[clusterSize * clusterSize];
+            outside = new int[clusterSize * clusterSize];
+            label(c, inside, queue, neighbors);
+        }
+        int[] border = new int[clusterSize];
+        int[] across = new int[clusterSize];
+        boolean[] open = new boolean[clusterSize];
+        Set<Integer> entrances = new HashSet<>();
+        // west, east, north and south side: first field, step along the side, step to the neighboring cluster
+        int[][] sides = {
+                {x0 > 0 ? grid.id(x0, y0) : -1, 1, -sizeY, y1 - y0 + 1},
+                {x1 < sizeX - 1 ? grid.id(x1, y0) : -1, 1, sizeY, y1 - y0 + 1},
+                {y0 > 0 ? grid.id(x0, y0) : -1, sizeY, -1, x1 - x0 + 1},
+                {y1 < sizeY - 1 ? grid.id(x0, y1) : -1, sizeY, 1, x1 - x0 + 1}};
+        for (int[] side : sides) {
+            if (side[0] < 0) continue;
+            int length = side[3];
+            for (int k = 0; k < length; k++) {
+                border[k] = side[0] + k * side[1];
+                across[k] = border[k] + side[2];
+                open[k] = grid.isConnected(border[k], across[k]);
+            }
+            if (!exact) label(clusterOf(across[0]), outside, queue, neighbors);
+            addEntrances(c, border, across, open, length, inside, outside, entrances);
+        }
+
+        int[] ids = new int[entrances.size()];
+        int n = 0;
+        for (int e : entrances) ids[n++] = e;
+        Arrays.sort(ids);
+        int[] distances = new int[n * n];
+        for (int i = 0; i < n; i++) {
+            breadthFirst(c, ids[i], dist, null, queue, neighbors);
+            for (int j = 0; j < n; j++) distances[i * n + j] = dist[local(c, ids[j])];
+        }
+        clusters[c] = new Cluster(ids, distances);
+        for (int i = 0; i < n; i++) entranceIndex[ids[i]] = i;
+    }
+
+    /**
+     * Adds the entrances of one side of a cluster
+     * In inexact mode the connections of a continuous opening are grouped by the parts of both clusters they
+     * connect, and every group gets an entrance in its middle, or at both ends if it is long. So every connection
+     * between two parts of the clusters keeps an entrance, even in mazes.
+     * Both clusters of a side choose the same fields, since the choice only depends on the connections.
+     *
+     * @param inside  component labels of this cluster, null in exact mode
+     * @param outside component labels of the neighboring cluster, null in exact mode
+     */
+    private void addEntrances(int c, int[] border, int[] across, boolean[] open, int length,
+                              int[] inside, int[] outside, Set<Integer> entrances) {
+        int k = 0;
+        while (k < length) {
+            if (!open[k]) {
+                k++;
+                continue;
+            }
+            int start = k;
+            while (k < length && open[k]) k++;
+            if (exact) {
+                for (int i = start; i < k; i++) entrances.add(border[i]);
+                continue;
+            }
+            int neighbor = clusterOf(across[start]);
+            java.util.Map<Long, List<Integer>> groups = new LinkedHashMap<>();
+            for (int i = start; i < k; i++) {
+                long key = ((long) inside[local(c, border[i])] << 32) | outside[local(neighbor, across[i])];
+                groups.computeIfAbsent(key, g -> new ArrayList<>()).add(i);
+            }
+            for (List<Integer> group : groups.values()) {
+                if (group.size() >= LONG_OPENING) {
+                    entrances.add(border[group.get(0)]);
+                    entrances.add(border[group.get(group.size() - 1)]);
+                } else {
+                    entrances.add(border[group.get((group.size() - 1) / 2)]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Numbers the connected parts of a cluster
+     *
+     * @param labels component of every field by local index
+     */
+    private void label(int c, int[] labels, int[] queue, int[] neighbors) {
+        Arrays.fill(labels, UNREACHABLE);
+        int x0 = (c / clustersY) * clusterSize;
+        int y0 = (c % clustersY) * clusterSize;
+        int x1 = Math.min(x0 + clusterSize, sizeX) - 1;
+        int y1 = Math.min(y0 + clusterSize, sizeY) - 1;
+        int component = 0;
+        for (int x = x0; x <= x1; x++) {
+            for (int y = y0; y <= y1; y++) {
+                int root = grid.id(x, y);
+                if (labels[local(c, root)] != UNREACHABLE) continue;
+                int head = 0;
+                int tail = 0;
+                queue[tail++] = root;
+                labels[local(c, root)] = component;
+                while (head < tail) {
+                    int current = queue[head++];
+                    int count = grid.neighbors(current, neighbors);
+                    for (int i = 0; i < count; i++) {
+                        int next = neighbors[i];
+                        if (clusterOf(next) == c && labels[local(c, next)] == UNREACHABLE) {
+                            labels[local(c, next)] = component;
+                            queue[tail++] = next;
+                        }
+                    }
+                }
+                component++;
+            }
+        }
+    }
+
+    /**
+     * Breadth-first search which does not leave the cluster
+     *
+     * @param dist   distances of the fields of the cluster by local index, {@link #UNREACHABLE} if not reachable
+     * @param parent local index of the predecessor of every reached field, null if not needed
+     */
+    private void breadthFirst(int c, int root, int[] dist, int[] parent, int[] queue, int[] neighbors) {
+        Arrays.fill(dist, 0, clusterSize * clusterSize, UNREACHABLE);
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = root;
+        dist[local(c, root)] = 0;
+        while (head < tail) {
+            int current = queue[head++];
+            int currentLocal = local(c, current);
+            int count = grid.neighbors(current, neighbors);
+            for (int k = 0; k < count; k++) {
+                int next = neighbors[k];
+                if (clusterOf(next) != c) continue;
+                int nextLocal = local(c, next);
+                if (dist[nextLocal] == UNREACHABLE) {
+                    dist[nextLocal] = dist[currentLocal] + 1;
+                    if (parent != null) parent[nextLocal] = currentLocal;
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    private int clusterOf(int id) {
+        return (id / sizeY / clusterSize) * clustersY + (id % sizeY) / clusterSize;
+    }
+
+    /**
+     * index of a field within the square of its cluster
+     */
+    private int local(int c, int id) {
+        return (id / sizeY - (c / clustersY) * clusterSize) * clusterSize + (id % sizeY - (c % clustersY) * clusterSize);
+    }
+
+    private int global(int c, int local) {
+        int x = (c / clustersY) * clusterSize + local / clusterSize;
+        int y = (c % clustersY) * clusterSize + local % clusterSize;
+        return x * sizeY + y;
+    }
+
+    /**
+     * entrances of a cluster, sorted by field id, and their distances inside the cluster
+     */
+    private static class Cluster {
+        final int[] entrances;
+        /**
+         * distance between entrance i and j at index i * entrances.length + j
+         */
+        final int[] distances;
+
+        Cluster(int[] entrances, int[] distances) {
+            this.entrances = entrances;
+            this.distances = distances;
+        }
+    }
+}
@@ -248,6 +248,19 @@ public class IndexMinPQ<Key extends Comparable<Key>> implements Iterable<Integer
         qp[i] = -1;
     }
 
+    /**
+     * Removes all keys from this priority queue.
+     * Takes time proportional to the number of keys on the priority queue, not to its capacity.
+     */
+    public void clear() {
+        for (int i = 1; i <= n; i++) {
+            qp[pq[i]] = -1;
+            keys[pq[i]] = null;
+            pq[i] = -1;
+        }
+        n = 0;
+    }
+
     // throw an IllegalArgumentException if i is an invalid index
     private void validateIndex(int i) {
         if (i < 0) throw new IllegalArgumentException("index is negative: " + i);
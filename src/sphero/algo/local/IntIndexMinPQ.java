@@ -0,0 +1,214 @@
+package sphero.algo.local;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Indexed d-ary min heap for search algorithms on the field grid
+ * <p>
+ * Unlike {@link IndexMinPQ}, the priorities are not stored as objects:
+ * every index (= field id) has an f value (priority) and a g value (distance from the start),
+ * both kept in parallel int arrays. Ties in f are resolved by a {@link TieBreaker} on the g values.
+ * No objects are created while the heap is in use.
+ * <p>
+ * The g value of an index stays available after it has been removed from the heap,
+ * so searches can use the heap as their distance table.
+ */
+public class IntIndexMinPQ {
+    private final int d;           // arity of the heap
+    private final int maxN;        // maximum number of elements on PQ
+    private final TieBreaker tieBreaker;
+    private int n;                 // number of elements on PQ
+    private final int[] pq;        // d-ary heap using 0-based indexing
+    private final int[] qp;        // inverse of pq - qp[pq[i]] = pq[qp[i]] = i, -1 if not on the heap
+    private final int[] f;         // f[i] = priority of i
+    private final int[] g;         // g[i] = distance of i
+
+    /**
+     * Creates a 4-ary heap, which prefers entries with a larger g value on equal priorities
+     *
+     * @param maxN indices are between 0 and maxN - 1
+     */
+    public IntIndexMinPQ(int maxN) {
+        this(maxN, 4, TieBreaker.LARGER_G);
+    }
+
+    /**
+     * @param maxN       indices are between 0 and maxN - 1
+     * @param d          arity of the heap (at least 2)
+     * @param tieBreaker order of entries with equal priority
+     */
+    public IntIndexMinPQ(int maxN, int d, TieBreaker tieBreaker) {
+        if (maxN < 0 || d < 2) throw new IllegalArgumentException();
+        this.maxN = maxN;
+        this.d = d;
+        this.tieBreaker = tieBreaker;
+        pq = new int[maxN];
+        qp = new int[maxN];
+        f = new int[maxN];
+        g = new int[maxN];
+        for (int i = 0; i < maxN; i++)
+            qp[i] = -1;
+    }
+
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public int capacity() {
+        return maxN;
+    }
+
+    /**
+     * @return true if index i is currently on the heap
+     */
+    public boolean contains(int i) {
+        return qp[i] != -1;
+    }
+
+    /**
+     * Adds index i with the given priority and distance
+     *
+     * @throws IllegalArgumentException if i is already on the heap
+     */
+    public void insert(int i, int fValue, int gValue) {
+        if (contains(i)) throw new IllegalArgumentException("index is already in the priority queue");
+        f[i] = fValue;
+        g[i] = gValue;
+        qp[i] = n;
+        pq[n] = i;
+        swim(n++);
+    }
+
+    /**
+     * Lowers the priority of an index on the heap
+     *
+     * @throws NoSuchElementException if i is not on the heap
+     */
+    public void decreaseKey(int i, int fValue, int gValue) {
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        f[i] = fValue;
+        g[i] = gValue;
+        swim(qp[i]);
+    }
+
+    /**
+     * @return index with the minimal priority
+     */
+    public int minIndex() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+        return pq[0];
+    }
+
+    /**
+     * Removes the index with the minimal priority
+     *
+     * @return removed index
+     */
+    public int delMin() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+        int min = pq[0];
+        n--;
+        if (n > 0) {
+            pq[0] = pq[n];
+            qp[pq[0]] = 0;
+            sink(0);
+        }
+        qp[min] = -1;
+        return min;
+    }
+
+    /**
+     * @return priority of index i (last value, if i is no longer on the heap)
+     */
+    public int fOf(int i) {
+        return f[i];
+    }
+
+    /**
+     * @return distance of index i (last value, if i is no longer on the heap)
+     */
+    public int gOf(int i) {
+        return g[i];
+    }
+
+    /**
+     * Removes all remaining entries
+     * Takes time proportional to the number of entries on the heap, not to its capacity
+     */
+    public void clear() {
+        for (int k = 0; k < n; k++) {
+            qp[pq[k]] = -1;
+        }
+        n = 0;
+    }
+
+    /***************************************************************************
+     * Heap helper functions.
+     ***************************************************************************/
+    private boolean less(int i, int j) {
+        if (f[i] != f[j]) return f[i] < f[j];
+        return tieBreaker.compare(g[i], g[j]) < 0;
+    }
+
+    private void swim(int k) {
+        int i = pq[k];
+        while (k > 0) {
+            int parent = (k - 1) / d;
+            int p = pq[parent];
+            if (!less(i, p)) break;
+            pq[k] = p;
+            qp[p] = k;
+            k = parent;
+        }
+        pq[k] = i;
+        qp[i] = k;
+    }
+
+    private void sink(int k) {
+        int i = pq[k];
+        while (true) {
+            int first = k * d + 1;
+            if (first >= n) break;
+            int last = Math.min(first + d, n);
+            int best = first;
+            for (int c = first + 1; c < last; c++) {
+                if (less(pq[c], pq[best])) best = c;
+            }
+            if (!less(pq[best], i)) break;
+            pq[k] = pq[best];
+            qp[pq[k]] = k;
+            k = best;
+        }
+        pq[k] = i;
+        qp[i] = k;
+    }
+
+    /**
+     * Order of heap entries with equal priority, based on their g values
+     */
+    @FunctionalInterface
+    public interface TieBreaker {
+        /**
+         * prefers entries that are further away from the start (usually closer to the destination)
+         */
+        TieBreaker LARGER_G = (a, b) -> Integer.compare(b, a);
+        /**
+         * prefers entries that are closer to the start
+         */
+        TieBreaker SMALLER_G = Integer::compare;
+        /**
+         * no preference, entries with equal priority are returned in heap order
+         */
+        TieBreaker NONE = (a, b) -> 0;
+
+        /**
+         * @return negative value if the entry with distance a should be removed first,
+         * positive value if the entry with distance b should be removed first, 0 otherwise
+         */
+        int compare(int a, int b);
+    }
+}
@@ -0,0 +1,269 @@
+package sphero.algo.local;
+
+import sphero.common.*;
+import sphero.common.Map;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * Jump Point Search for 4-connected grids with uniform costs
+ * <p>
+ * Instead of pushing every field into the queue, the search jumps along straight lines and only queues
+ * jump points: the destination and fields at which a shortest path may have to turn. A horizontal jump scans
+ * both vertical directions at every field it passes, a vertical jump stops at fields with a neighbor to the side
+ * that can not be reached as fast along the neighboring column. Walls are the missing connections of the
+ * {@link GridGraph} of the map.
+ * <p>
+ * Finds the same distances as the searches in {@link BFS}, but expands far fewer fields on open maps.
+ * The returned paths contain every field between start and destination.
+ */
+public class JumpPointSearch {
+
+    private static final int EAST = 0;
+    private static final int WEST = 1;
+    private static final int SOUTH = 2;
+    private static final int NORTH = 3;
+
+    /**
+     * @param from : the starting position of the bolt
+     * @param to   : the destination of the bolt
+     * @return the path to the destination
+     */
+    public Path shortestDistance(Location from, Location to, Map map) {
+        return shortestDistance(from, to, map, SearchWorkspace.get(map));
+    }
+
+    /**
+     * @param from      : the starting position of the bolt
+     * @param to        : the destination of the bolt
+     * @param workspace : reusable search memory of the calling thread
+     * @return the path to the destination
+     */
+    public Path shortestDistance(Location from, Location to, Map map, SearchWorkspace workspace) {
+        Field startPosition = from.getField();
+        Field destination = to.getField();
+        if (startPosition.equals(destination)) {
+            return new Path(Arrays.asList(startPosition, destination), from, to, 0);
+        }
+        GridGraph grid = map.getGrid();
+        int sizeY = map.getSizeY();
+        workspace.begin();
+        int[] parent = workspace.parent;
+        IntIndexMinPQ queue = workspace.intQueue();
+        int s = startPosition.getId();
+        int t = destination.getId();
+        queue.insert(s, BFS.manhattan(s, t, sizeY), 0);
+        workspace.visit(s);
+        parent[s] = s;
+        boolean destFound = false;
+        while (!queue.isEmpty()) {
+            int current = queue.delMin();
+            workspace.expand();
+            if (current == t) {
+                destFound = true;
+                break;
+            }
+            int g = queue.gOf(current);
+            int back = current == s ? -1 : direction(current, parent[current], sizeY);
+            for (int dir = EAST; dir <= NORTH; dir++) {
+                // the fields behind a jump point have already been scanned by its parent
+                if (dir == back || !open(grid, current, dir)) continue;
+                int jumpPoint = dir <= WEST
+                        ? jumpHorizontal(grid, current, dir, t, sizeY)
+                        : jumpVertical(grid, current, dir, t, sizeY);
+                if (jumpPoint < 0) continue;
+                int d = g + BFS.manhattan(current, jumpPoint, sizeY);
+                if (!workspace.isVisited(jumpPoint)) {
+                    workspace.visit(jumpPoint);
+                    parent[jumpPoint] = current;
+                    queue.insert(jumpPoint, d + BFS.manhattan(jumpPoint, t, sizeY), d);
+                } else if (queue.contains(jumpPoint) && queue.gOf(jumpPoint) > d) {
+                    parent[jumpPoint] = current;
+                    queue.decreaseKey(jumpPoint, d + BFS.manhattan(jumpPoint, t, sizeY), d);
+                }
+            }
+        }
+        if (!destFound) return null;
+        return toPath(parent, from, to, map);
+    }
+
+    /**
+     * Moves east or west until the destination is reached or a vertical jump from the current field
+     * finds a jump point
+     *
+     * @return the jump point, -1 if the line ends at a wall
+     */
+    private static int jumpHorizontal(GridGraph grid, int id, int dir, int t, int sizeY) {
+        int step = dir == EAST ? sizeY : -sizeY;
+        int current = id;
+        while (true) {
+            current += step;
+            if (current == t
+                    || jumpVertical(grid, current, SOUTH, t, sizeY) >= 0
+                    || jumpVertical(grid, current, NORTH, t, sizeY) >= 0) {
+                return current;
+            }
+            if (!open(grid, current, dir)) return -1;
+        }
+    }
+
+    /**
+     * Moves south or north until the destination is reached or a field has a neighbor to the side,
+     * which is not reached as fast through the neighboring column
+     * A neighboring column is covered as long as it is connected to the first field of the jump
+     * and continuously open along the jump.
+     *
+     * @return the jump point, -1 if the line ends at a wall
+     */
+    private static int jumpVertical(GridGraph grid, int id, int dir, int t, int sizeY) {
+        return dir == SOUTH ? jumpSouth(grid, id, t, sizeY) : jumpNorth(grid, id, t, sizeY);
+    }
+
+    /**
+     * Vertical jump in positive y direction, which checks 31 fields of the column per step
+     * Field k of a window is k fields south of the current field.
+     */
+    private static int jumpSouth(GridGraph grid, int id, int t, int sizeY) {
+        if (!grid.hasSouth(id)) return -1;
+        boolean eastColumn = id + sizeY < grid.size();
+        boolean westColumn = id >= sizeY;
+        boolean coveredEast = grid.hasEast(id);
+        boolean coveredWest = grid.hasWest(id);
+        int current = id;
+        while (true) {
+            long cells = grid.window(current);
+            long east = eastColumn ? grid.window(current + sizeY) : 0;
+            long west = westColumn ? grid.window(current - sizeY) : 0;
+            // the fields after the first field without a connection to the south can not be reached
+            int wall = firstZero(cells >>> 1);
+            // index of the first field, whose neighbor is no longer reached through the east / west column
+            int eastGap = coveredEast ? firstZero(east >>> 1) + 1 : 0;
+            int westGap = coveredWest ? firstZero(west >>> 1) + 1 : 0;
+            long candidates = ((cells & fromIndex(eastGap)) | (west & fromIndex(westGap)))
+                    & CELLS & throughIndex(wall) & ~FIRST;
+            int jump = candidates == 0 ? 32 : Long.numberOfTrailingZeros(candidates) >> 1;
+            if (t > current && t - current <= Math.min(Math.min(wall, jump), 31)) return t;
+            if (jump < 32) return current + jump;
+            if (wall < 32) return -1;
+            // the last field of this window is the first field of the next one
+            coveredEast = eastGap > 31;
+            coveredWest = westGap > 31;
+            current += 31;
+        }
+    }
+
+    /**
+     * Vertical jump in negative y direction, which checks 31 fields of the column per step
+     * The current field is the last field of the window, field k of a window is 31 - k fields north of it.
+     */
+    private static int jumpNorth(GridGraph grid, int id, int t, int sizeY) {
+        if (!grid.hasNorth(id)) return -1;
+        boolean eastColumn = id + sizeY < grid.size();
+        boolean westColumn = id >= sizeY;
+        boolean coveredEast = grid.hasEast(id);
+        boolean coveredWest = grid.hasWest(id);
+        int current = id;
+        while (true) {
+            long cells = grid.window(current - 31);
+            long east = eastColumn ? grid.window(current - 31 + sizeY) : 0;
+            long west = westColumn ? grid.window(current - 31 - sizeY) : 0;
+            // the fields before the last field without a connection to the south can not be reached
+            int wall = lastZero(cells >>> 1);
+            // index of the last field, whose neighbor is no longer reached through the east / west column
+            int eastGap = coveredEast ? lastZero(east >>> 1) : 31;
+            int westGap = coveredWest ? lastZero(west >>> 1) : 31;
+            long candidates = ((cells & throughIndex(eastGap)) | (west & throughIndex(westGap)))
+                    & CELLS & fromIndex(wall + 1) & ~LAST;
+            int jump = candidates == 0 ? -1 : (63 - Long.numberOfLeadingZeros(candidates)) >> 1;
+            if (t < current && current - t <= 31 - Math.max(Math.max(wall + 1, jump), 0)) return t;
+            if (jump >= 0) return current - 31 + jump;
+            if (wall >= 0) return -1;
+            coveredEast = eastGap < 0;
+            coveredWest = westGap < 0;
+            current -= 31;
+        }
+    }
+
+    /**
+     * the lower bit of every field in a window (east connection)
+     */
+    private static final long CELLS = 0x5555555555555555L;
+    private static final long FIRST = 3L;
+    private static final long LAST = 3L << 62;
+
+    /**
+     * @return index of the first field of the window without the lower bit, 32 if there is none
+     */
+    private static int firstZero(long window) {
+        return Long.numberOfTrailingZeros(~window & CELLS) >> 1;
+    }
+
+    /**
+     * @return index of the last field among the first 31 fields of the window without the lower bit,
+     * -1 if there is none
+     */
+    private static int lastZero(long window) {
+        long zeros = ~window & CELLS & ~LAST;
+        return zeros == 0 ? -1 : (63 - Long.numberOfLeadingZeros(zeros)) >> 1;
+    }
+
+    /**
+     * @return mask of the fields with an index of at least k
+     */
+    private static long fromIndex(int k) {
+        return k > 31 ? 0 : -1L << (k << 1);
+    }
+
+    /**
+     * @return mask of the fields with an index of at most k
+     */
+    private static long throughIndex(int k) {
+        return k >= 31 ? -1L : k < 0 ? 0 : (1L << ((k + 1) << 1)) - 1;
+    }
+
+    private static boolean open(GridGraph grid, int id, int dir) {
+        switch (dir) {
+            case EAST:
+                return grid.hasEast(id);
+            case WEST:
+                return grid.hasWest(id);
+            case SOUTH:
+                return grid.hasSouth(id);
+            default:
+                return grid.hasNorth(id);
+        }
+    }
+
+    /**
+     * @return direction of the straight line from one field to another
+     */
+    private static int direction(int from, int to, int sizeY) {
+        if (from / sizeY == to / sizeY) return to > from ? SOUTH : NORTH;
+        return to > from ? EAST : WEST;
+    }
+
+    /**
+     * Follows the parent references from the destination back to the start and fills in the fields
+     * between consecutive jump points
+     *
+     * @return path without the start and the destination field
+     */
+    private static Path toPath(int[] parent, Location from, Location to, Map map) {
+        int sizeY = map.getSizeY();
+        int s = from.getField().getId();
+        LinkedList<Field> path = new LinkedList<>();
+        int current = to.getField().getId();
+        while (current != s) {
+            int p = parent[current];
+            int dir = direction(current, p, sizeY);
+            int step = dir == SOUTH ? 1 : dir == NORTH ? -1 : dir == EAST ? sizeY : -sizeY;
+            for (int id = current + step; id != p; id += step) {
+                path.addFirst(map.getField(id));
+            }
+            if (p != s) path.addFirst(map.getField(p));
+            current = p;
+        }
+        return new Path(path, from, to, path.size() + 1);
+    }
+}
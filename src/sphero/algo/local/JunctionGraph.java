@@ -0,0 +1,256 @@
+package sphero.algo.local;
+
+import sphero.common.Field;
+import sphero.common.Location;
+import sphero.common.Map;
+import sphero.common.Path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Weighted graph of the junctions of a map, in which every corridor is a single edge
+ * <p>
+ * Mazes mostly consist of corridors (fields with two neighbors) and dead ends. The graph is built for a set of
+ * fields which have to be kept, usually the fields of the destinations:
+ * <ol>
+ * <li>dead ends without a kept field are removed, until every remaining dead end is a kept field</li>
+ * <li>the remaining fields with more or less than two neighbors and all kept fields become nodes</li>
+ * <li>every corridor between two nodes becomes an edge, whose weight is the length of the corridor</li>
+ * </ol>
+ * A* on this graph finds the same distances as the searches in {@link BFS}, since the manhattan distance of two
+ * nodes is never longer than the corridor between them. The fields of the corridors are only walked again to
+ * build the resulting path.
+ * <p>
+ * The graph is only valid for the version of the map it was built for, see {@link #isValidFor(Map)}.
+ */
+public class JunctionGraph {
+
+    private final int version;
+    private final int sizeY;
+    /**
+     * node of a field, -1 for corridor fields and removed fields
+     */
+    private final int[] nodeOf;
+    /**
+     * field of a node
+     */
+    private final int[] fieldOf;
+    private final boolean[] removed;
+    /**
+     * edges of node v are stored at the indices edgeStart[v] until edgeStart[v + 1]
+     */
+    private final int[] edgeStart;
+    private final int[] edgeSource;
+    private final int[] edgeTarget;
+    private final int[] edgeWeight;
+    /**
+     * field after the source node on the corridor of an edge
+     */
+    private final int[] edgeFirst;
+
+    /**
+     * @param keep fields which are neither removed nor contracted, searches may only start and end at these fields
+     */
+    public JunctionGraph(Map map, Collection<Field> keep) {
+        int size = map.getSizeX() * map.getSizeY();
+        this.version = map.getVersion();
+        this.sizeY = map.getSizeY();
+        this.nodeOf = new int[size];
+        this.removed = new boolean[size];
+        boolean[] kept = new boolean[size];
+        for (Field f : keep) kept[f.getId()] = true;
+
+        int[] degree = new int[size];
+        int[] neighbors = new int[4];
+        int[] queue = new int[size];
+        int tail = 0;
+        for (int id = 0; id < size; id++) {
+            degree[id] = map.getNeighbors(id, neighbors);
+            if (degree[id] <= 1 && !kept[id]) {
+                removed[id] = true;
+                queue[tail++] = id;
+            }
+        }
+        // peel off dead ends, a corridor leading to a removed dead end becomes a dead end itself
+        for (int head = 0; head < tail; head++) {
+            int count = map.getNeighbors(queue[head], neighbors);
+            for (int k = 0; k < count; k++) {
+                int neighbor = neighbors[k];
+                if (removed[neighbor]) continue;
+                degree[neighbor]--;
+                if (degree[neighbor] <= 1 && !kept[neighbor]) {
+                    removed[neighbor] = true;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+
+        int nodes = 0;
+        for (int id = 0; id < size; id++) {
+            nodeOf[id] = !removed[id] && (degree[id] != 2 || kept[id]) ? nodes++ : -1;
+        }
+        fieldOf = new int[nodes];
+        edgeStart = new int[nodes + 1];
+        int edges = 0;
+        for (int id = 0; id < size; id++) {
+            if (nodeOf[id] < 0) continue;
+            fieldOf[nodeOf[id]] = id;
+            edges += degree[id];
+        }
+        edgeSource = new int[edges];
+        edgeTarget = new int[edges];
+        edgeWeight = new int[edges];
+        edgeFirst = new int[edges];
+
+        int[] walk = new int[4];
+        int e = 0;
+        for (int v = 0; v < nodes; v++) {
+            edgeStart[v] = e;
+            int count = map.getNeighbors(fieldOf[v], neighbors);
+            for (int k = 0; k < count; k++) {
+                if (removed[neighbors[k]]) continue;
+                int previous = fieldOf[v];
+                int current = neighbors[k];
+                int weight = 1;
+                while (nodeOf[current] < 0) {
+                    int next = next(map, current, previous, walk);
+                    previous = current;
+                    current = next;
+                    weight++;
+                }
+                // a corridor back to the same node is never part of a shortest path
+                if (nodeOf[current] == v) continue;
+                edgeSource[e] = v;
+                edgeTarget[e] = nodeOf[current];
+                edgeWeight[e] = weight;
+                edgeFirst[e] = neighbors[k];
+                e++;
+            }
+        }
+        edgeStart[nodes] = e;
+    }
+
+    /**
+     * Builds the graph for the fields of all locations
+     */
+    public static JunctionGraph forLocations(Map map, List<Location> locations) {
+        List<Field> keep = new ArrayList<>(locations.size());
+        for (Location l : locations) keep.add(l.getField());
+        return new JunctionGraph(map, keep);
+    }
+
+    /**
+     * @return false if the map has been changed after the graph was built
+     */
+    public boolean isValidFor(Map map) {
+        return version == map.getVersion();
+    }
+
+    public int getNodeCount() {
+        return fieldOf.length;
+    }
+
+    /**
+     * @return number of edges, each corridor is counted in both directions
+     */
+    public int getEdgeCount() {
+        return edgeStart[fieldOf.length];
+    }
+
+    /**
+     * @param from : the starting position of the bolt
+     * @param to   : the destination of the bolt
+     * @return the path to the destination
+     */
+    public Path shortestDistance(Location from, Location to, Map map) {
+        return shortestDistance(from, to, map, SearchWorkspace.get(map));
+    }
+
+    /**
+     * A* search on the junction graph
+     *
+     * @param from      : the starting position of the bolt, its field has to be kept
+     * @param to        : the destination of the bolt, its field has to be kept
+     * @param workspace : reusable search memory of the calling thread
+     * @return the path to the destination, null if there is none
+     */
+    public Path shortestDistance(Location from, Location to, Map map, SearchWorkspace workspace) {
+        Field startPosition = from.getField();
+        Field destination = to.getField();
+        if (startPosition.equals(destination)) {
+            return new Path(Arrays.asList(startPosition, destination), from, to, 0);
+        }
+        int s = nodeOf[startPosition.getId()];
+        int t = nodeOf[destination.getId()];
+        if (s < 0 || t < 0) throw new IllegalArgumentException("start and destination have to be kept fields");
+        int target = fieldOf[t];
+        workspace.begin();
+        int[] parentEdge = workspace.parent;
+        IntIndexMinPQ queue = workspace.intQueue();
+        queue.insert(s, BFS.manhattan(fieldOf[s], target, sizeY), 0);
+        workspace.visit(s);
+        boolean destFound = false;
+        while (!queue.isEmpty()) {
+            int current = queue.delMin();
+            workspace.expand();
+            if (current == t) {
+                destFound = true;
+                break;
+            }
+            int g = queue.gOf(current);
+            for (int e = edgeStart[current]; e < edgeStart[current + 1]; e++) {
+                int next = edgeTarget[e];
+                int d = g + edgeWeight[e];
+                if (!workspace.isVisited(next)) {
+                    workspace.visit(next);
+                    parentEdge[next] = e;
+                    queue.insert(next, d + BFS.manhattan(fieldOf[next], target, sizeY), d);
+                } else if (queue.contains(next) && queue.gOf(next) > d) {
+                    parentEdge[next] = e;
+                    queue.decreaseKey(next, d + BFS.manhattan(fieldOf[next], target, sizeY), d);
+                }
+            }
+        }
+        if (!destFound) return null;
+        return toPath(parentEdge, s, t, from, to, map);
+    }
+
+    /**
+     * Expands the edges from the destination back to the start into the fields of their corridors
+     *
+     * @return path without the start and the destination field
+     */
+    private Path toPath(int[] parentEdge, int s, int t, Location from, Location to, Map map) {
+        List<Integer> edges = new ArrayList<>();
+        for (int v = t; v != s; v = edgeSource[parentEdge[v]]) edges.add(parentEdge[v]);
+        List<Field> path = new ArrayList<>();
+        int[] neighbors = new int[4];
+        for (int k = edges.size() - 1; k >= 0; k--) {
+            int e = edges.get(k);
+            int previous = fieldOf[edgeSource[e]];
+            int current = edgeFirst[e];
+            while (nodeOf[current] < 0) {
+                path.add(map.getField(current));
+                int next = next(map, current, previous, neighbors);
+                previous = current;
+                current = next;
+            }
+            if (k > 0) path.add(map.getField(current));
+        }
+        return new Path(path, from, to, path.size() + 1);
+    }
+
+    /**
+     * @return the neighbor of a corridor field, which is neither removed nor the previous field
+     */
+    private int next(Map map, int current, int previous, int[] neighbors) {
+        int count = map.getNeighbors(current, neighbors);
+        for (int k = 0; k < count; k++) {
+            if (neighbors[k] != previous && !removed[neighbors[k]]) return neighbors[k];
+        }
+        throw new IllegalStateException("corridor ends at field " + current);
+    }
+}
@@ -0,0 +1,167 @@
+package sphero.algo.local;
+
+import sphero.common.Map;
+
+import java.util.Arrays;
+
+/**
+ * Landmark distances for the ALT heuristic (A*, landmarks, triangle inequality)
+ * <p>
+ * For a few landmark fields the distance to every field of the map is stored. By the triangle inequality
+ * |d(L, v) - d(L, t)| is a lower bound of the distance between v and t for every landmark L, which is much
+ * tighter than the manhattan distance in mazes with long detours.
+ * <p>
+ * The tables are built once per map (see {@link #get(Map)}) and rebuilt after the map has been changed
+ * through {@link Map#connect} or {@link Map#disconnect}.
+ */
+public class Landmarks {
+
+    /**
+     * default number of landmarks
+     */
+    public static final int DEFAULT_COUNT = 8;
+
+    static final int UNREACHABLE = -1;
+
+    private static final MapScopedCache<Landmarks> cache = new MapScopedCache<>();
+
+    private final int count;
+    private final int version;
+    private final int[] landmarks;
+    /**
+     * distances of field id to landmark l at index id * count + l
+     */
+    private final int[] distances;
+
+    /**
+     * Selects the landmarks by farthest-point selection and computes their distances to all fields
+     * The first landmark is the field farthest from field 0, every further landmark is the field
+     * farthest from all landmarks selected so far. Fields which are not reachable from any landmark are
+     * selected first, so every component of the map gets a landmark.
+     *
+     * @param count number of landmarks (at most the number of fields)
+     */
+    public Landmarks(Map map, int count) {
+        int size = map.getSizeX() * map.getSizeY();
+        this.count = Math.min(count, size);
+        this.version = map.getVersion();
+        this.landmarks = new int[this.count];
+        this.distances = new int[size * this.count];
+        int[] dist = new int[size];
+        int[] nearest = new int[size];
+        Arrays.fill(nearest, Integer.MAX_VALUE);
+
+        breadthFirst(map, 0, dist);
+        int next = farthest(dist);
+        for (int l = 0; l < this.count; l++) {
+            landmarks[l] = next;
+            breadthFirst(map, next, dist);
+            for (int id = 0; id < size; id++) {
+                distances[id * this.count + l] = dist[id];
+                if (dist[id] != UNREACHABLE && dist[id] < nearest[id]) nearest[id] = dist[id];
+            }
+            next = farthest(nearest);
+        }
+    }
+
+    /**
+     * Returns the landmarks of a map with {@link #DEFAULT_COUNT} landmarks, building them if necessary
+     */
+    public static Landmarks get(Map map) {
+        return get(map, DEFAULT_COUNT);
+    }
+
+    /**
+     * Returns the landmarks of a map, building them if there are none or the map has changed since they were built
+     * The landmarks are shared by all threads and all configurations on the same map.
+     */
+    public static Landmarks get(Map map, int count) {
+        int size = map.getSizeX() * map.getSizeY();
+        return cache.get(map, l -> l.isValidFor(map) && l.count == Math.min(count, size), m -> new Landmarks(m, count));
+    }
+
+    /**
+     * @return false if the map has been changed after the landmarks were built
+     */
+    public boolean isValidFor(Map map) {
+        return version == map.getVersion();
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return field id of landmark l
+     */
+    public int getLandmark(int l) {
+        return landmarks[l];
+    }
+
+    /**
+     * @return distance between landmark l and a field, {@link #UNREACHABLE} if there is no path
+     */
+    public int distance(int l, int id) {
+        return distances[id * count + l];
+    }
+
+    /**
+     * Copies the landmark distances of a target field, so the heuristic does not have to read them every time
+     */
+    int[] distancesOf(int target, int[] out) {
+        System.arraycopy(distances, target * count, out, 0, count);
+        return out;
+    }
+
+    /**
+     * Lower bound of the distance between a field and a target
+     *
+     * @param target landmark distances of the target (see {@link #distancesOf(int, int[])})
+     */
+    int lowerBound(int id, int[] target) {
+        int bound = 0;
+        int base = id * count;
+        for (int l = 0; l < count; l++) {
+            int a = distances[base + l];
+            int b = target[l];
+            if (a == UNREACHABLE || b == UNREACHABLE) continue;
+            int d = a > b ? a - b : b - a;
+            if (d > bound) bound = d;
+        }
+        return bound;
+    }
+
+    /**
+     * distances from one field to all fields of the map
+     */
+    private static void breadthFirst(Map map, int root, int[] dist) {
+        Arrays.fill(dist, UNREACHABLE);
+        int[] queue = new int[dist.length];
+        int[] neighbors = new int[4];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = root;
+        dist[root] = 0;
+        while (head < tail) {
+            int current = queue[head++];
+            int count = map.getNeighbors(current, neighbors);
+            for (int k = 0; k < count; k++) {
+                if (dist[neighbors[k]] == UNREACHABLE) {
+                    dist[neighbors[k]] = dist[current] + 1;
+                    queue[tail++] = neighbors[k];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return index of the largest value, unreachable fields ({@link #UNREACHABLE}) are ignored
+     */
+    private static int farthest(int[] dist) {
+        int best = 0;
+        for (int id = 1; id < dist.length; id++) {
+            if (dist[id] > dist[best]) best = id;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,40 @@
+package sphero.algo.local;
+
+import sphero.common.Map;
+
+import java.util.WeakHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Precomputed data which is shared by all threads and all configurations on the same map
+ * <p>
+ * The lock of the whole cache is only held to look up the slot of a map. The data is built under the lock of
+ * the slot, so a slow build for one map does not block the other maps, while concurrent requests for the same
+ * map still build it only once. The data must not reference the map, otherwise its weak key is never released.
+ */
+final class MapScopedCache<T> {
+
+    private final WeakHashMap<Map, Slot<T>> slots = new WeakHashMap<>();
+
+    /**
+     * Returns the data of a map, building it if there is none or the cached data is no longer valid
+     *
+     * @param valid checks whether the cached data can still be used for the map
+     * @param build builds the data for the map
+     */
+    T get(Map map, Predicate<T> valid, Function<Map, T> build) {
+        Slot<T> slot;
+        synchronized (slots) {
+            slot = slots.computeIfAbsent(map, m -> new Slot<>());
+        }
+        synchronized (slot) {
+            if (slot.value == null || !valid.test(slot.value)) slot.value = build.apply(map);
+            return slot.value;
+        }
+    }
+
+    private static final class Slot<T> {
+        private T value;
+    }
+}
@@ -0,0 +1,315 @@
+package sphero.algo.local;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Runs the searches of a distance matrix on a fixed number of workers
+ * <p>
+ * The pairs i &lt; j of a matrix form a triangle, so splitting it by rows gives the first worker n searches and the
+ * last one a single search. Instead, all tasks are sorted by an estimated cost (e.g. the Manhattan distance of a
+ * pair), most expensive first, and cut into chunks which get smaller towards the end (guided self-scheduling).
+ * Idle workers take the next chunk, so the expensive searches start early and the many cheap ones at the end
+ * fill the gaps.
+ * <p>
+ * The workers run on an executor of their own instead of the common ForkJoinPool, and every call records how
+ * busy each worker was (see {@link #getLastReport()}). The tasks of one call must not call the same scheduler.
+ */
+public class PairScheduler implements AutoCloseable {
+
+    /**
+     * a chunk takes 1 / (workers * CHUNK_SHARE) of the remaining cost
+     */
+    private static final int CHUNK_SHARE = 2;
+    private static final AtomicInteger schedulerCount = new AtomicInteger();
+    private static volatile PairScheduler defaultScheduler;
+
+    private final ExecutorService executor;
+    private final int workers;
+    private final boolean ownsExecutor;
+    private volatile Report lastReport;
+
+    /**
+     * Creates a scheduler with its own pool of daemon threads
+     *
+     * @param threads number of workers
+     */
+    public PairScheduler(int threads) {
+        this(Executors.newFixedThreadPool(threads, daemonThreads()), threads, true);
+    }
+
+    /**
+     * Creates a scheduler on an existing executor, which is not shut down by {@link #close()}
+     *
+     * @param executor executor with at least the given number of threads
+     * @param workers  number of tasks which are submitted to the executor per call
+     */
+    public PairScheduler(ExecutorService executor, int workers) {
+        this(executor, workers, false);
+    }
+
+    private PairScheduler(ExecutorService executor, int workers, boolean ownsExecutor) {
+        if (workers <= 0) throw new IllegalArgumentException("at least one worker is needed");
+        this.executor = executor;
+        this.workers = workers;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * @return scheduler with one worker per available processor, which is shared by all matrices
+     * that do not get a scheduler of their own
+     */
+    public static PairScheduler getDefault() {
+        if (defaultScheduler == null) {
+            synchronized (PairScheduler.class) {
+                if (defaultScheduler == null)
+                    defaultScheduler = new PairScheduler(Runtime.getRuntime().availableProcessors());
+            }
+        }
+        return defaultScheduler;
+    }
+
+    /**
+     * Runs a task for every pair i &lt; j of n elements
+     *
+     * @param cost estimated cost of a pair, in any unit. Pairs with negative cost are skipped.
+     * @param task returns false to stop, the other workers finish their current chunk and skip the remaining pairs
+     * @return utilization of the workers during this call
+     */
+    public Report forEachPair(int n, IntBinaryOperator cost, PairTask task) {
+        int count = 0;
+        int[] first = new int[n * (n - 1) / 2];
+        int[] second = new int[first.length];
+        int[] costs = new int[first.length];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                int c = cost.applyAsInt(i, j);
+                if (c < 0) continue;
+                first[count] = i;
+                second[count] = j;
+                costs[count] = c;
+                count++;
+            }
+        }
+        return forEach(count, k -> costs[k], k -> task.run(first[k], second[k]));
+    }
+
+    /**
+     * Runs a task for every index from 0 to count - 1
+     *
+     * @param cost estimated cost of a task, must not be negative
+     * @param task returns false to stop, the other workers finish their current chunk and skip the remaining tasks
+     * @return utilization of the workers during this call
+     */
+    public Report forEach(int count, IntUnaryOperator cost, IntPredicate task) {
+        int[] order = order(count, cost);
+        int[] chunks = chunks(order, cost);
+        int chunkCount = chunks.length - 1;
+        int active = Math.max(1, Math.min(workers, chunkCount));
+
+        AtomicInteger nextChunk = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        long[] busy = new long[active];
+        int[] done = new int[active];
+        CountDownLatch finished = new CountDownLatch(active);
+        long start = System.nanoTime();
+        for (int w = 0; w < active; w++) {
+            int worker = w;
+            executor.execute(() -> {
+                try {
+                    int chunk;
+                    while (failure.get() == null && (chunk = nextChunk.getAndIncrement()) < chunkCount) {
+                        long t0 = System.nanoTime();
+                        for (int k = chunks[chunk]; k < chunks[chunk + 1]; k++) {
+                            done[worker]++;
+                            if (!task.test(order[k])) {
+                                nextChunk.set(chunkCount);
+                                break;
+                            }
+                        }
+                        busy[worker] += System.nanoTime() - t0;
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the workers", e);
+        }
+        Report report = new Report(System.nanoTime() - start, busy, done, chunkCount);
+        lastReport = report;
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException) throw (RuntimeException) t;
+        if (t instanceof Error) throw (Error) t;
+        return report;
+    }
+
+    /**
+     * @return utilization of the workers during the last call, null before the first call
+     */
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Shuts down the threads of a scheduler created with {@link #PairScheduler(int)}
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) executor.shutdown();
+    }
+
+    /**
+     * @return task indices, most expensive first
+     */
+    private static int[] order(int count, IntUnaryOperator cost) {
+        // sorts cost and index packed into one long, without boxing
+        long[] keys = new long[count];
+        for (int k = 0; k < count; k++) {
+            keys[k] = ((long) (Integer.MAX_VALUE - cost.applyAsInt(k)) << 32) | k;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[count];
+        for (int k = 0; k < count; k++) {
+            order[k] = (int) keys[k];
+        }
+        return order;
+    }
+
+    /**
+     * Cuts the ordered tasks into chunks, every task costs at least 1
+     * Every chunk takes a share of the remaining cost, so the chunks get smaller towards the end,
+     * where they even out the errors of the estimates.
+     *
+     * @return start of every chunk in the order, followed by the number of tasks
+     */
+    private int[] chunks(int[] order, IntUnaryOperator cost) {
+        long remaining = 0;
+        for (int k : order) remaining += cost.applyAsInt(k) + 1;
+        int[] chunks = new int[order.length + 1];
+        int count = 0;
+        long sum = 0;
+        long target = 0;
+        for (int k = 0; k < order.length; k++) {
+            if (sum == 0) {
+                chunks[count++] = k;
+                target = Math.max(1, remaining / ((long) workers * CHUNK_SHARE));
+            }
+            sum += cost.applyAsInt(order[k]) + 1;
+            if (sum >= target) {
+                remaining -= sum;
+                sum = 0;
+            }
+        }
+        chunks[count++] = order.length;
+        return Arrays.copyOf(chunks, count);
+    }
+
+    private static ThreadFactory daemonThreads() {
+        int scheduler = schedulerCount.incrementAndGet();
+        AtomicInteger threadCount = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "pair-scheduler-" + scheduler + "-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Task for one pair of a matrix
+     */
+    @FunctionalInterface
+    public interface PairTask {
+        /**
+         * @return false to stop the remaining tasks
+         */
+        boolean run(int i, int j);
+    }
+
+    /**
+     * Utilization of the workers during one call
+     */
+    public static class Report {
+        private final long wallTime;
+        private final long[] busy;
+        private final int[] tasks;
+        private final int chunks;
+
+        Report(long wallTime, long[] busy, int[] tasks, int chunks) {
+            this.wallTime = wallTime;
+            this.busy = busy;
+            this.tasks = tasks;
+            this.chunks = chunks;
+        }
+
+        /**
+         * @return nanoseconds from submitting the first worker until the last one finished
+         */
+        public long getWallTime() {
+            return wallTime;
+        }
+
+        /**
+         * @return number of workers which took part, at most the number of chunks
+         */
+        public int getWorkers() {
+            return busy.length;
+        }
+
+        public int getChunks() {
+            return chunks;
+        }
+
+        /**
+         * @return number of tasks a worker ran
+         */
+        public int getTasks(int worker) {
+            return tasks[worker];
+        }
+
+        /**
+         * @return share of the wall time a worker spent running tasks, between 0 and 1
+         */
+        public double getUtilization(int worker) {
+            return wallTime == 0 ? 1 : Math.min(1, (double) busy[worker] / wallTime);
+        }
+
+        /**
+         * @return average utilization of all workers
+         */
+        public double getUtilization() {
+            double sum = 0;
+            for (int w = 0; w < busy.length; w++) sum += getUtilization(w);
+            return busy.length == 0 ? 1 : sum / busy.length;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%d workers, %d chunks, %.1f ms, utilization %.0f%%",
+                    busy.length, chunks, wallTime / 1e6, getUtilization() * 100));
+            for (int w = 0; w < busy.length; w++) {
+                sb.append(String.format("%n  worker %d: %d tasks, %.0f%%", w, tasks[w], getUtilization(w) * 100));
+            }
+            return sb.toString();
+        }
+    }
+}
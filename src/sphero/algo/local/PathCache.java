@@ -0,0 +1,234 @@
+package sphero.algo.local;
+
+import sphero.common.Field;
+import sphero.common.Location;
+import sphero.common.Map;
+import sphero.common.Path;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of shortest paths between pairs of fields, shared by all distance matrices computed on the same map
+ * <p>
+ * Entries are stored per map and per unordered pair of field ids, independent of the locations on the fields,
+ * so overlapping sets of locations only pay for the pairs they have not seen before.
+ * Every map keeps its least recently used entries within two bounds: the number of pairs and the total number of
+ * stored fields, so long paths are evicted earlier than short ones.
+ * All entries of a map are dropped as soon as the map is changed through {@link Map#connect} or
+ * {@link Map#disconnect}. Maps which are no longer used are removed together with their entries.
+ * <p>
+ * A cache can be used by several threads at once. A map must not be changed while a matrix is computed on it.
+ */
+public class PathCache {
+
+    private final int maxPairs;
+    private final long maxFields;
+    private final WeakHashMap<Map, Segment> segments = new WeakHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * @param maxPairs  maximum number of pairs kept per map
+     * @param maxFields maximum number of path fields kept per map
+     */
+    public PathCache(int maxPairs, long maxFields) {
+        if (maxPairs <= 0 || maxFields <= 0) throw new IllegalArgumentException("cache size must be positive");
+        this.maxPairs = maxPairs;
+        this.maxFields = maxFields;
+    }
+
+    /**
+     * Looks up the shortest path between two locations
+     *
+     * @return path without its start and destination field (like the results of {@link BFS}),
+     * null if the pair is not cached
+     */
+    public Path get(Location from, Location to, Map map) {
+        int a = from.getField().getId();
+        int b = to.getField().getId();
+        Segment segment = segment(map, false);
+        Entry entry = null;
+        if (segment != null) {
+            synchronized (segment) {
+                entry = segment.entries.get(key(a, b));
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        List<Field> fields = new ArrayList<>(entry.fields.length + 1);
+        if (a < b) {
+            for (int id : entry.fields) fields.add(map.getField(id));
+        } else {
+            for (int i = entry.fields.length - 1; i >= 0; i--) fields.add(map.getField(entry.fields[i]));
+        }
+        return new Path(fields, from, to, entry.distance);
+    }
+
+    /**
+     * Stores a search result
+     *
+     * @param path path without its start and destination field (like the results of {@link BFS})
+     */
+    public void put(Path path, Map map) {
+        int a = path.getFrom().getField().getId();
+        int b = path.getTo().getField().getId();
+        if (a == b) return;
+        List<Field> pathFields = path.getFields();
+        int[] fields = new int[pathFields.size()];
+        int i = 0;
+        for (Field f : pathFields) {
+            fields[a < b ? i : fields.length - 1 - i] = f.getId();
+            i++;
+        }
+        Segment segment = segment(map, true);
+        synchronized (segment) {
+            Entry previous = segment.entries.put(key(a, b), new Entry(path.getDistance(), fields));
+            if (previous != null) segment.fields -= weight(previous);
+            segment.fields += weight(fields.length);
+            Iterator<Entry> eldest = segment.entries.values().iterator();
+            while (segment.entries.size() > maxPairs || (segment.fields > maxFields && segment.entries.size() > 1)) {
+                segment.fields -= weight(eldest.next());
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return number of cached pairs of a map
+     */
+    public int size(Map map) {
+        Segment segment = segment(map, false);
+        if (segment == null) return 0;
+        synchronized (segment) {
+            return segment.entries.size();
+        }
+    }
+
+    /**
+     * removes all entries
+     */
+    public void clear() {
+        synchronized (segments) {
+            segments.clear();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return share of lookups which were answered from the cache, 0 if there were no lookups
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * @return number of entries which were removed to stay within the bounds
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return number of times all entries of a map were dropped, because the map had been changed
+     */
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+        invalidations.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "PathCache{hits=" + getHits() + ", misses=" + getMisses() + ", hitRate=" + getHitRate()
+                + ", evictions=" + getEvictions() + ", invalidations=" + getInvalidations() + "}";
+    }
+
+    /**
+     * Returns the entries of a map and drops them if the map has been changed since they were stored
+     */
+    private Segment segment(Map map, boolean create) {
+        Segment segment;
+        synchronized (segments) {
+            segment = segments.get(map);
+            if (segment == null) {
+                if (!create) return null;
+                segment = new Segment(map.getVersion());
+                segments.put(map, segment);
+                return segment;
+            }
+        }
+        synchronized (segment) {
+            if (segment.version != map.getVersion()) {
+                segment.entries.clear();
+                segment.fields = 0;
+                segment.version = map.getVersion();
+                invalidations.incrementAndGet();
+            }
+        }
+        return segment;
+    }
+
+    private static long key(int a, int b) {
+        return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    private static long weight(Entry entry) {
+        return weight(entry.fields.length);
+    }
+
+    private static long weight(int fields) {
+        return fields + 1;
+    }
+
+    /**
+     * cached pairs of one map in access order
+     */
+    private static class Segment {
+        final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        int version;
+        long fields = 0;
+
+        Segment(int version) {
+            this.version = version;
+        }
+    }
+
+    /**
+     * shortest path from the field with the smaller id to the field with the larger id
+     */
+    private static class Entry {
+        final double distance;
+        final int[] fields;
+
+        Entry(double distance, int[] fields) {
+            this.distance = distance;
+            this.fields = fields;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package sphero.algo.local;
+
+import sphero.common.Map;
+
+import java.util.Arrays;
+
+/**
+ * Reusable memory for the searches in {@link BFS}
+ * <p>
+ * Instead of clearing its arrays before every search, a workspace marks the fields touched by the current
+ * search with a generation stamp. Starting a new search only increments the generation, so a query only
+ * pays for the fields it actually touches.
+ * Workspaces are kept per thread (see {@link #get(Map)}) and must not be shared between threads.
+ */
+public class SearchWorkspace {
+
+    private static final ThreadLocal<SearchWorkspace> pool = new ThreadLocal<>();
+
+    private final int capacity;
+    private final int[] stamps;
+    private int generation = 0;
+    private long expansions = 0;
+
+    final int[] parent;
+    final int[] queue;
+    final int[] counts;
+    final int[] neighbors = new int[4];
+    private BFS.Entry[] entries;
+    private IndexMinPQ<BFS.Entry> entryQueue;
+    private IntIndexMinPQ intQueue;
+    private int[] dist;
+    private int[] landmarkDistances;
+    private int[][] clusterArrays;
+    private SearchWorkspace backward;
+
+    /**
+     * @param capacity number of fields of the largest map this workspace can be used for
+     */
+    public SearchWorkspace(int capacity) {
+        this.capacity = capacity;
+        stamps = new int[capacity];
+        parent = new int[capacity];
+        queue = new int[capacity];
+        counts = new int[capacity];
+    }
+
+    /**
+     * Returns the workspace of the current thread, replacing it if it is too small for the map
+     */
+    public static SearchWorkspace get(Map map) {
+        int size = map.getSizeX() * map.getSizeY();
+        SearchWorkspace workspace = pool.get();
+        if (workspace == null || workspace.capacity < size) {
+            workspace = new SearchWorkspace(size);
+            pool.set(workspace);
+        }
+        return workspace;
+    }
+
+    /**
+     * Drops the workspace of the current thread, so its memory can be reclaimed
+     */
+    public static void release() {
+        pool.remove();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of fields expanded by the last search on this workspace
+     */
+    public long getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * Starts a new search: all fields become unvisited and the queues are emptied
+     */
+    void begin() {
+        expansions = 0;
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+        if (entryQueue != null) entryQueue.clear();
+        if (intQueue != null) intQueue.clear();
+    }
+
+    boolean isVisited(int id) {
+        return stamps[id] == generation;
+    }
+
+    void visit(int id) {
+        stamps[id] = generation;
+    }
+
+    void expand() {
+        expansions++;
+    }
+
+    void addExpansions(long count) {
+        expansions += count;
+    }
+
+    /**
+     * Entry objects of the previous searches are reused
+     */
+    BFS.Entry[] entries() {
+        if (entries == null) entries = new BFS.Entry[capacity];
+        return entries;
+    }
+
+    IndexMinPQ<BFS.Entry> entryQueue() {
+        if (entryQueue == null) entryQueue = new IndexMinPQ<>(capacity);
+        return entryQueue;
+    }
+
+    IntIndexMinPQ intQueue() {
+        if (intQueue == null) intQueue = new IntIndexMinPQ(capacity);
+        return intQueue;
+    }
+
+    /**
+     * distances of the visited fields
+     */
+    int[] dist() {
+        if (dist == null) dist = new int[capacity];
+        return dist;
+    }
+
+    /**
+     * landmark distances of the destination of an ALT search
+     */
+    int[] landmarkDistances(int count) {
+        if (landmarkDistances == null || landmarkDistances.length < count) landmarkDistances = new int[count];
+        return landmarkDistances;
+    }
+
+    /**
+     * Arrays with one entry per field of a cluster, for the searches inside the clusters of a {@link HierarchicalSearch}
+     *
+     * @param index number of the array, 0 to 4
+     */
+    int[] clusterArray(int index, int size) {
+        if (clusterArrays == null) clusterArrays = new int[5][];
+        if (clusterArrays[index] == null || clusterArrays[index].length < size) clusterArrays[index] = new int[size];
+        return clusterArrays[index];
+    }
+
+    /**
+     * Second workspace of the same size for the backward direction of bidirectional searches
+     */
+    SearchWorkspace backward() {
+        if (backward == null) backward = new SearchWorkspace(capacity);
+        return backward;
+    }
+}
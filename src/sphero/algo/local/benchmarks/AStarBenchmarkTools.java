@@ -0,0 +1,68 @@
+package sphero.algo.local.benchmarks;
+
+import sphero.algo.MazeGenerator;
+import sphero.algo.local.BFS;
+import sphero.common.Configuration;
+import sphero.common.Location;
+import sphero.common.Path;
+
+import java.util.Random;
+
+/**
+ * Microbenchmark of the A* search on the generic {@link sphero.algo.local.IndexMinPQ}
+ * against the A* search on the primitive {@link sphero.algo.local.IntIndexMinPQ}
+ */
+public class AStarBenchmarkTools {
+
+    public static void main(String[] args) {
+        printBenchmarkReport();
+    }
+
+    public static void printBenchmarkReport() {
+        AStarBenchmarkTools t = new AStarBenchmarkTools();
+        t.benchmarkQueues(200, 200, 200, false); //warm up
+        for (int size : new int[]{100, 500, 1000}) {
+            for (boolean noWalls : new boolean[]{false, true}) {
+                double[] results = t.benchmarkQueues(size, size, 200, noWalls);
+                System.out.println("------" + size + "x" + size + (noWalls ? " open grid" : " maze") + "---------");
+                System.out.println("IndexMinPQ    = " + results[0] + " ms/query");
+                System.out.println("IntIndexMinPQ = " + results[1] + " ms/query");
+                System.out.println("Speedup       = " + results[0] / results[1]);
+                System.out.println("-------------------------");
+            }
+        }
+    }
+
+    /**
+     * Runs both A* variants on the same random location pairs
+     *
+     * @return average milliseconds per query for the generic and the primitive variant
+     */
+    public double[] benchmarkQueues(int xSize, int ySize, int queries, boolean noWalls) {
+        Configuration config = noWalls
+                ? (new MazeGenerator()).generate(xSize, ySize, 1, true)
+                : (new MazeGenerator()).generate(xSize, ySize, 1);
+        Random r = new Random(42);
+        Location[] from = new Location[queries];
+        Location[] to = new Location[queries];
+        for (int i = 0; i < queries; i++) {
+            from[i] = new Location(config.getMap().getField(r.nextInt(xSize), r.nextInt(ySize)), Location.Type.DESTINATION);
+            to[i] = new Location(config.getMap().getField(r.nextInt(xSize), r.nextInt(ySize)), Location.Type.DESTINATION);
+        }
+        BFS bfs = new BFS();
+        double[] distances = new double[queries];
+
+        long t1 = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            distances[i] = bfs.shortestDistanceAStar(from[i], to[i], config.getMap()).getDistance();
+        }
+        long t2 = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            Path p = bfs.shortestDistanceAStarPrimitive(from[i], to[i], config.getMap());
+            if (p.getDistance() != distances[i])
+                throw new IllegalStateException("A* variants disagree: " + p.getDistance() + " != " + distances[i]);
+        }
+        long t3 = System.nanoTime();
+        return new double[]{(t2 - t1) / 1e6 / queries, (t3 - t2) / 1e6 / queries};
+    }
+}
@@ -0,0 +1,113 @@
+package sphero.algo.local.benchmarks;
+
+import sphero.algo.MazeGenerator;
+import sphero.algo.local.AllPairShortestPaths;
+import sphero.algo.local.BFS;
+import sphero.algo.local.BidirectionalSearch;
+import sphero.algo.local.SearchWorkspace;
+import sphero.common.Configuration;
+import sphero.common.Location;
+import sphero.common.Map;
+import sphero.common.Path;
+
+import java.util.Random;
+
+/**
+ * Compares node expansions and latency of the one-directional and the bidirectional searches
+ * on generated mazes and on open grids
+ */
+public class BidirectionalBenchmarkTools {
+
+    private static final String[] NAMES = {"A*", "bidirectional A*", "BFS", "bidirectional BFS"};
+
+    public static void main(String[] args) {
+        printBenchmarkReport();
+    }
+
+    public static void printBenchmarkReport() {
+        BidirectionalBenchmarkTools t = new BidirectionalBenchmarkTools();
+        t.benchmarkQueries(100, 100, false); //warm up
+        for (int size : new int[]{200, 500}) {
+            for (boolean noWalls : new boolean[]{false, true}) {
+                double[][] results = t.benchmarkQueries(size, 200, noWalls);
+                System.out.println("------" + size + "x" + size + (noWalls ? " open grid" : " maze") + "---------");
+                for (int i = 0; i < NAMES.length; i++) {
+                    System.out.println(NAMES[i] + ": " + results[i][0] + " expansions, " + results[i][1] + " ms/query");
+                }
+                System.out.println("-------------------------");
+            }
+        }
+        for (boolean noWalls : new boolean[]{false, true}) {
+            Configuration config = noWalls
+                    ? (new MazeGenerator()).generate(200, 200, 40, true)
+                    : (new MazeGenerator()).generate(200, 200, 40);
+            System.out.println("------allPairs, 200x200" + (noWalls ? " open grid" : " maze") + ", 41 locations---------");
+            for (AllPairShortestPaths.Strategy strategy : AllPairShortestPaths.Strategy.values()) {
+                System.out.println(strategy + ": " + t.benchmarkAllPairs(config, strategy) + " s");
+            }
+            System.out.println("-------------------------");
+        }
+    }
+
+    /**
+     * Runs all four searches on the same random location pairs
+     *
+     * @return average expansions and average milliseconds per query for every search
+     */
+    public double[][] benchmarkQueries(int size, int queries, boolean noWalls) {
+        Configuration config = noWalls
+                ? (new MazeGenerator()).generate(size, size, 1, true)
+                : (new MazeGenerator()).generate(size, size, 1);
+        Map map = config.getMap();
+        Random r = new Random(7);
+        Location[] from = new Location[queries];
+        Location[] to = new Location[queries];
+        for (int i = 0; i < queries; i++) {
+            from[i] = new Location(map.getField(r.nextInt(size), r.nextInt(size)), Location.Type.DESTINATION);
+            to[i] = new Location(map.getField(r.nextInt(size), r.nextInt(size)), Location.Type.DESTINATION);
+        }
+        BFS bfs = new BFS();
+        BidirectionalSearch bd = new BidirectionalSearch();
+        SearchWorkspace workspace = SearchWorkspace.get(map);
+        double[][] results = new double[NAMES.length][2];
+        double[] distances = new double[queries];
+        for (int s = 0; s < NAMES.length; s++) {
+            long expansions = 0;
+            long t1 = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                Path p;
+                switch (s) {
+                    case 0:
+                        p = bfs.shortestDistanceAStar(from[i], to[i], map, workspace);
+                        break;
+                    case 1:
+                        p = bd.shortestDistanceAStar(from[i], to[i], map, workspace);
+                        break;
+                    case 2:
+                        p = bfs.shortestDistanceBFS(from[i], to[i], map, workspace);
+                        break;
+                    default:
+                        p = bd.shortestDistanceBFS(from[i], to[i], map, workspace);
+                }
+                expansions += workspace.getExpansions();
+                if (s == 0) distances[i] = p.getDistance();
+                else if (p.getDistance() != distances[i])
+                    throw new IllegalStateException(NAMES[s] + " disagrees: " + p.getDistance() + " != " + distances[i]);
+            }
+            long t2 = System.nanoTime();
+            results[s][0] = (double) expansions / queries;
+            results[s][1] = (t2 - t1) / 1e6 / queries;
+        }
+        return results;
+    }
+
+    /**
+     * @return seconds needed to compute the whole distance matrix
+     */
+    public double benchmarkAllPairs(Configuration config, AllPairShortestPaths.Strategy strategy) {
+        long t1 = System.currentTimeMillis();
+        new AllPairShortestPaths(strategy).allPairs(config.getOrderedLocations(), config.getMap());
+        long t2 = System.currentTimeMillis();
+        return (t2 - t1) / 1000.0;
+    }
+}
@@ -0,0 +1,98 @@
+package sphero.algo.local.benchmarks;
+
+import sphero.algo.local.BFS;
+import sphero.algo.local.BitParallelBFS;
+import sphero.algo.local.PairScheduler;
+import sphero.algo.local.SearchWorkspace;
+import sphero.common.Location;
+import sphero.common.Map;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the throughput of {@link BFS#shortestDistanceBFS} and {@link BitParallelBFS} on large open grids
+ * The 10000x10000 grid needs a bigger heap, e.g. -Xmx4g.
+ */
+public class BitParallelBFSBenchmarkTools {
+
+    public static void main(String[] args) {
+        printBenchmarkReport();
+    }
+
+    public static void printBenchmarkReport() {
+        BitParallelBFSBenchmarkTools t = new BitParallelBFSBenchmarkTools();
+        t.benchmark(500); //warm up
+        for (int size : new int[]{2000, 5000, 10000}) {
+            double[] results = t.benchmark(size);
+            System.out.println("------" + size + "x" + size + " grid with 20% walls, "
+                    + Runtime.getRuntime().availableProcessors() + " processors---------");
+            System.out.println("BFS to the far corner      : " + results[0] + " ms, " + results[1] + " Mcells/s");
+            System.out.println("Bit-parallel, 1 worker     : " + results[2] + " ms, " + results[3] + " Mcells/s");
+            System.out.println("Bit-parallel, all workers  : " + results[4] + " ms, " + results[5] + " Mcells/s");
+            System.out.println("Bit-parallel, 20 targets   : " + results[6] + " ms");
+            System.out.println("-------------------------");
+        }
+    }
+
+    /**
+     * Compact grid, every connection is removed with a probability of 20%
+     */
+    public Map createMap(int size) {
+        Map map = new Map(size, size, 1, false, true);
+        Random r = new Random(7);
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (x + 1 < size && r.nextDouble() < 0.2) map.disconnect(map.getField(x, y), map.getField(x + 1, y));
+                if (y + 1 < size && r.nextDouble() < 0.2) map.disconnect(map.getField(x, y), map.getField(x, y + 1));
+            }
+        }
+        return map;
+    }
+
+    /**
+     * @return milliseconds and million fields per second of the BFS to the opposite corner, of the bit-parallel
+     * distances with one and with all workers, milliseconds of the bit-parallel search for 20 targets
+     */
+    public double[] benchmark(int size) {
+        Map map = createMap(size);
+        double cells = (double) size * size;
+        Location from = new Location(map.getField(0, 0), Location.Type.DESTINATION);
+        Location corner = new Location(map.getField(size - 1, size - 1), Location.Type.DESTINATION);
+        double[] results = new double[7];
+
+        long t0 = System.nanoTime();
+        new BFS().shortestDistanceBFS(from, corner, map);
+        long t1 = System.nanoTime();
+        SearchWorkspace.release();
+        results[0] = (t1 - t0) / 1e6;
+        results[1] = cells / (t1 - t0) * 1e3;
+
+        try (PairScheduler single = new PairScheduler(1)) {
+            t0 = System.nanoTime();
+            new BitParallelBFS(map, single).distances(from);
+            t1 = System.nanoTime();
+        }
+        results[2] = (t1 - t0) / 1e6;
+        results[3] = cells / (t1 - t0) * 1e3;
+
+        BitParallelBFS parallel = new BitParallelBFS(map);
+        t0 = System.nanoTime();
+        parallel.distances(from);
+        t1 = System.nanoTime();
+        results[4] = (t1 - t0) / 1e6;
+        results[5] = cells / (t1 - t0) * 1e3;
+
+        Random r = new Random(42);
+        List<Location> targets = new ArrayList<>();
+        for (int k = 0; k < 20; k++) {
+            targets.add(new Location(map.getField(r.nextInt(size), r.nextInt(size)), Location.Type.DESTINATION));
+        }
+        t0 = System.nanoTime();
+        parallel.distances(from, targets);
+        t1 = System.nanoTime();
+        results[6] = (t1 - t0) / 1e6;
+        return results;
+    }
+}
@@ -0,0 +1,75 @@
+package sphero.algo.local.benchmarks;
+
+import sphero.algo.local.AllPairShortestPaths;
+import sphero.algo.local.BFS;
+import sphero.algo.local.Components;
+import sphero.algo.local.SearchWorkspace;
+import sphero.common.Location;
+import sphero.common.Map;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how fast a request with an unreachable destination is rejected
+ * One destination is inside a closed room in the corner of an open map, the others are outside.
+ * Without the components, the first search to the room only fails after it has visited the whole map.
+ */
+public class ComponentsBenchmarkTools {
+
+    public static void main(String[] args) {
+        printBenchmarkReport();
+    }
+
+    public static void printBenchmarkReport() {
+        ComponentsBenchmarkTools t = new ComponentsBenchmarkTools();
+        t.benchmark(300); //warm up
+        for (int size : new int[]{1000, 2000, 4000}) {
+            double[] results = t.benchmark(size);
+            System.out.println("------" + size + "x" + size + " open map, 30 destinations, 1 in a closed room---------");
+            System.out.println("Labelling the components      : " + results[0] + " ms");
+            System.out.println("Rejecting the request         : " + results[1] + " ms");
+            System.out.println("A* until the room is unreachable: " + results[2] + " ms");
+            System.out.println("-------------------------");
+        }
+    }
+
+    /**
+     * @return milliseconds to label the components, to reject the request with labelled components
+     * and of one A* search between a destination outside and the one inside of the room
+     */
+    public double[] benchmark(int size) {
+        Map map = new Map(size, size, 1, false, true);
+        int room = size - 10;
+        for (int i = room; i < size; i++) {
+            map.disconnect(map.getField(room - 1, i), map.getField(room, i));
+            map.disconnect(map.getField(i, room - 1), map.getField(i, room));
+        }
+        Random r = new Random(5);
+        List<Location> locations = new ArrayList<>();
+        for (int k = 0; k < 29; k++) {
+            locations.add(new Location(map.getField(r.nextInt(room), r.nextInt(room)), Location.Type.DESTINATION));
+        }
+        locations.add(new Location(map.getField(size - 5, size - 5), Location.Type.DESTINATION));
+        double[] results = new double[3];
+
+        long t0 = System.nanoTime();
+        Components.get(map);
+        long t1 = System.nanoTime();
+        results[0] = (t1 - t0) / 1e6;
+
+        t0 = System.nanoTime();
+        Object matrix = new AllPairShortestPaths().allPairs(locations, map);
+        t1 = System.nanoTime();
+        if (matrix != null) throw new IllegalStateException("request with an unreachable destination accepted");
+        results[1] = (t1 - t0) / 1e6;
+
+        t0 = System.nanoTime();
+        new BFS().shortestDistanceAStar(locations.get(0), locations.get(29), map);
+        t1 = System.nanoTime();
+        SearchWorkspace.release();
+        results[2] = (t1 - t0) / 1e6;
+        return results;
+    }
+}
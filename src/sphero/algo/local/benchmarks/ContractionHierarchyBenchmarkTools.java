@@ -0,0 +1,90 @@
+package sphero.algo.local.benchmarks;
+
+import sphero.algo.MazeGenerator;
+import sphero.algo.local.BFS;
+import sphero.algo.local.ContractionHierarchy;
+import sphero.algo.local.SearchWorkspace;
+import sphero.common.Location;
+import sphero.common.Map;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compares preprocessing cost and query latency of the {@link ContractionHierarchy} with A*
+ * The large mazes need a bigger heap, e.g. -Xmx4g.
+ */
+public class ContractionHierarchyBenchmarkTools {
+
+    public static void main(String[] args) throws IOException {
+        printBenchmarkReport();
+    }
+
+    public static void printBenchmarkReport() throws IOException {
+        ContractionHierarchyBenchmarkTools t = new ContractionHierarchyBenchmarkTools();
+        t.benchmarkQueries(100, 10, 100); //warm up
+        for (int size : new int[]{500, 2000}) {
+            double[] results = t.benchmarkQueries(size, 10, 1000);
+            System.out.println("------" + size + "x" + size + " maze---------");
+            System.out.println("Preprocessing : " + results[2] + " ms, " + (long) results[5] + " shortcuts");
+            System.out.println("File          : " + results[6] / 1e6 + " MB, saved in " + results[3] + " ms, loaded in " + results[4] + " ms");
+            System.out.println("A*            : " + results[0] + " ms/query");
+            System.out.println("CH            : " + results[1] + " ms/query");
+            System.out.println("Break-even    : " + results[2] / (results[0] - results[1]) + " queries");
+            System.out.println("-------------------------");
+        }
+    }
+
+    /**
+     * @return milliseconds per query of A* and of the hierarchy, milliseconds for building, saving and loading,
+     * number of shortcuts and file size in bytes
+     */
+    public double[] benchmarkQueries(int size, int queriesAStar, int queriesHierarchy) throws IOException {
+        Map map = (new MazeGenerator(true)).generate(size, size, 1).getMap();
+        Random r = new Random(42);
+        Location[] from = new Location[queriesHierarchy];
+        Location[] to = new Location[queriesHierarchy];
+        for (int i = 0; i < queriesHierarchy; i++) {
+            from[i] = new Location(map.getField(r.nextInt(size), r.nextInt(size)), Location.Type.DESTINATION);
+            to[i] = new Location(map.getField(r.nextInt(size), r.nextInt(size)), Location.Type.DESTINATION);
+        }
+        double[] results = new double[7];
+        BFS bfs = new BFS();
+        SearchWorkspace workspace = SearchWorkspace.get(map);
+
+        long t0 = System.nanoTime();
+        ContractionHierarchy hierarchy = new ContractionHierarchy(map);
+        long t1 = System.nanoTime();
+        File file = File.createTempFile("hierarchy", ".ch");
+        file.deleteOnExit();
+        hierarchy.save(file);
+        long t2 = System.nanoTime();
+        hierarchy = ContractionHierarchy.load(file);
+        long t3 = System.nanoTime();
+        results[2] = (t1 - t0) / 1e6;
+        results[3] = (t2 - t1) / 1e6;
+        results[4] = (t3 - t2) / 1e6;
+        results[5] = hierarchy.getShortcutCount();
+        results[6] = file.length();
+
+        double[] distances = new double[queriesAStar];
+        t1 = System.nanoTime();
+        for (int i = 0; i < queriesAStar; i++) {
+            distances[i] = bfs.shortestDistanceAStar(from[i], to[i], map, workspace).getDistance();
+        }
+        t2 = System.nanoTime();
+        results[0] = (t2 - t1) / 1e6 / queriesAStar;
+
+        t1 = System.nanoTime();
+        for (int i = 0; i < queriesHierarchy; i++) {
+            double distance = hierarchy.shortestDistance(from[i], to[i], map, workspace).getDistance();
+            if (i < queriesAStar && distance != distances[i])
+                throw new IllegalStateException("hierarchy disagrees: " + distance + " != " + distances[i]);
+        }
+        t2 = System.nanoTime();
+        results[1] = (t2 - t1) / 1e6 / queriesHierarchy;
+        file.delete();
+        return results;
+    }
+}
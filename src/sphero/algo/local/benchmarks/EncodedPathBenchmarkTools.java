@@ -0,0 +1,84 @@
+package sphero.algo.local.benchmarks;
+
+import sphero.algo.MazeGenerator;
+import sphero.algo.local.AllPairShortestPaths;
+import sphero.common.Configuration;
+import sphero.common.EncodedPath;
+import sphero.common.Field;
+import sphero.common.Map;
+import sphero.common.Path;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Compares the size of run-length encoded paths with lists of fields and measures how fast they are decoded
+ */
+public class EncodedPathBenchmarkTools {
+
+    /**
+     * bytes of a node of a {@link LinkedList} with compressed references
+     */
+    private static final int LIST_NODE_BYTES = 24;
+
+    public static void main(String[] args) {
+        printBenchmarkReport();
+    }
+
+    public static void printBenchmarkReport() {
+        EncodedPathBenchmarkTools t = new EncodedPathBenchmarkTools();
+        t.benchmarkMatrix(100, false); //warm up
+        for (int size : new int[]{200, 1000}) {
+            for (boolean open : new boolean[]{false, true}) {
+                double[] results = t.benchmarkMatrix(size, open);
+                System.out.println("------" + size + "x" + size + (open ? " open grid" : " maze") + ", 20 destinations---------");
+                System.out.println("Fields        : " + (long) results[0] + " in " + (long) results[1] + " runs");
+                System.out.println("Linked list   : " + (long) results[0] * LIST_NODE_BYTES / 1e3 + " kB");
+                System.out.println("Wire format   : " + results[2] / 1e3 + " kB");
+                System.out.println("Iterate list  : " + results[3] + " ns/field");
+                System.out.println("Iterate runs  : " + results[4] + " ns/field");
+                System.out.println("-------------------------");
+            }
+        }
+    }
+
+    /**
+     * @return fields and runs of all paths of the matrix, bytes of their wire format,
+     * nanoseconds per field for iterating over the lists and over the encoded paths
+     */
+    public double[] benchmarkMatrix(int size, boolean open) {
+        Configuration config = (new MazeGenerator()).generate(size, size, 19, open);
+        Map map = config.getMap();
+        Path[][] matrix = new AllPairShortestPaths().allPairs(config.getOrderedLocations(), map);
+        List<List<Field>> lists = new ArrayList<>();
+        List<EncodedPath> encodings = new ArrayList<>();
+        double[] results = new double[5];
+        for (int i = 0; i < matrix.length; i++) {
+            for (int j = 0; j < matrix.length; j++) {
+                if (i == j) continue;
+                EncodedPath encoding = matrix[i][j].getEncoding(map);
+                lists.add(new LinkedList<>(matrix[i][j].getFields()));
+                encodings.add(encoding);
+                results[0] += encoding.getLength();
+                results[1] += encoding.getRunCount();
+                results[2] += encoding.toBytes().length;
+            }
+        }
+
+        long checksum = 0;
+        long t0 = System.nanoTime();
+        for (List<Field> fields : lists) {
+            for (Field f : fields) checksum += f.getId();
+        }
+        long t1 = System.nanoTime();
+        for (EncodedPath encoding : encodings) {
+            for (Field f : encoding.asList()) checksum -= f.getId();
+        }
+        long t2 = System.nanoTime();
+        if (checksum != 0) throw new IllegalStateException("decoded paths differ");
+        results[3] = (double) (t1 - t0) / results[0];
+        results[4] = (double) (t2 - t1) / results[0];
+        return results;
+    }
+}
@@ -0,0 +1,134 @@
+package sphero.algo.local.benchmarks;
+
+import sphero.algo.MazeGenerator;
+import sphero.algo.local.BFS;
+import sphero.algo.local.HierarchicalSearch;
+import sphero.algo.local.SearchWorkspace;
+import sphero.common.Location;
+import sphero.common.Map;
+import sphero.common.MapEdit;
+import sphero.common.Path;
+
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Compares exact and inexact {@link HierarchicalSearch} with A* on large maps
+ * The large maps need a bigger heap, e.g. -Xmx4g.
+ */
+public class HierarchicalBenchmarkTools {
+
+    public static void main(String[] args) {
+        printBenchmarkReport();
+    }
+
+    public static void printBenchmarkReport() {
+        HierarchicalBenchmarkTools t = new HierarchicalBenchmarkTools();
+        t.benchmarkQueries(t.createMap(200, false), 10); //warm up
+        String[] layouts = {"maze with 5% extra openings", "grid with 30% walls"};
+        for (int size : new int[]{1000, 2000}) {
+            for (int layout = 0; layout < layouts.length; layout++) {
+                double[][] results = t.benchmarkQueries(t.createMap(size, layout == 1), 20);
+                System.out.println("------" + size + "x" + size + " " + layouts[layout] + "---------");
+                System.out.println("A*          : " + results[0][1] + " expansions, " + results[0][2] + " ms/query");
+                System.out.println("HPA* exact  : " + results[1][1] + " expansions, " + results[1][2] + " ms/query, build "
+                        + results[1][0] + " ms, " + (int) results[1][3] + " entrances, update " + results[1][4] + " ms");
+                System.out.println("HPA* inexact: " + results[2][1] + " expansions, " + results[2][2] + " ms/query, build "
+                        + results[2][0] + " ms, " + (int) results[2][3] + " entrances, update " + results[2][4]
+                        + " ms, paths " + results[2][5] + " times as long");
+                System.out.println("-------------------------");
+            }
+        }
+    }
+
+    /**
+     * @param open false: maze with additional random connections (5% of all walls), true: open grid with 30% walls
+     */
+    public Map createMap(int size, boolean open) {
+        Map map = open ? (new MazeGenerator(true)).generate(size, size, 1, true).getMap()
+                : (new MazeGenerator(true)).generate(size, size, 1).getMap();
+        Random r = new Random(3);
+        double rate = open ? 0.3 : 0.05;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                for (int[] d : new int[][]{{1, 0}, {0, 1}}) {
+                    if (x + d[0] >= size || y + d[1] >= size || r.nextDouble() >= rate) continue;
+                    if (open) {
+                        map.disconnect(map.getField(x, y), map.getField(x + d[0], y + d[1]));
+                    } else {
+                        map.connect(map.getField(x, y), map.getField(x + d[0], y + d[1]));
+                    }
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * @return for A*, exact and inexact HPA*: build milliseconds, expansions per query, milliseconds per query,
+     * entrances, milliseconds for the update after one edit, path length compared to A*
+     */
+    public double[][] benchmarkQueries(Map map, int queries) {
+        Random r = new Random(42);
+        Location[] from = new Location[queries];
+        Location[] to = new Location[queries];
+        BFS bfs = new BFS();
+        SearchWorkspace workspace = SearchWorkspace.get(map);
+        double[][] results = new double[3][6];
+        double[] distances = new double[queries];
+
+        long expansions = 0;
+        long time = 0;
+        for (int i = 0; i < queries; i++) {
+            Path path = null;
+            // walls can separate parts of the grid, only connected pairs are measured
+            while (path == null) {
+                from[i] = new Location(map.getField(r.nextInt(map.getSizeX()), r.nextInt(map.getSizeY())), Location.Type.DESTINATION);
+                to[i] = new Location(map.getField(r.nextInt(map.getSizeX()), r.nextInt(map.getSizeY())), Location.Type.DESTINATION);
+                long t0 = System.nanoTime();
+                path = bfs.shortestDistanceAStarPrimitive(from[i], to[i], map, workspace);
+                if (path != null) time += System.nanoTime() - t0;
+            }
+            distances[i] = path.getDistance();
+            expansions += workspace.getExpansions();
+        }
+        results[0][1] = (double) expansions / queries;
+        results[0][2] = time / 1e6 / queries;
+
+        for (int mode = 1; mode <= 2; mode++) {
+            long t1 = System.nanoTime();
+            HierarchicalSearch search = new HierarchicalSearch(map, HierarchicalSearch.DEFAULT_CLUSTER_SIZE, mode == 1);
+            long t2 = System.nanoTime();
+            results[mode][0] = (t2 - t1) / 1e6;
+            results[mode][3] = search.getEntranceCount();
+
+            expansions = 0;
+            double stretch = 0;
+            t1 = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                double distance = search.shortestDistance(from[i], to[i], map, workspace).getDistance();
+                expansions += workspace.getExpansions();
+                if (mode == 1 && distance != distances[i])
+                    throw new IllegalStateException("HPA* disagrees: " + distance + " != " + distances[i]);
+                stretch += distances[i] == 0 ? 1 : distance / distances[i];
+            }
+            t2 = System.nanoTime();
+            results[mode][1] = (double) expansions / queries;
+            results[mode][2] = (t2 - t1) / 1e6 / queries;
+            results[mode][5] = stretch / queries;
+
+            // toggles a connection in the middle of the map
+            int c = map.getSizeX() / 2;
+            MapEdit edit = map.getGrid().isConnected(map.getGrid().id(c, c), map.getGrid().id(c + 1, c))
+                    ? MapEdit.disconnect(map.getField(c, c), map.getField(c + 1, c))
+                    : MapEdit.connect(map.getField(c, c), map.getField(c + 1, c));
+            edit.apply(map);
+            t1 = System.nanoTime();
+            search.update(map, Collections.singletonList(edit));
+            t2 = System.nanoTime();
+            results[mode][4] = (t2 - t1) / 1e6;
+            (edit.isConnected() ? MapEdit.disconnect(edit.getA(), edit.getB()) : MapEdit.connect(edit.getA(), edit.getB())).apply(map);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,105 @@
+package sphero.algo.local.benchmarks;
+
+import sphero.algo.MazeGenerator;
+import sphero.algo.local.BFS;
+import sphero.algo.local.JumpPointSearch;
+import sphero.algo.local.SearchWorkspace;
+import sphero.common.Configuration;
+import sphero.common.Location;
+import sphero.common.Map;
+import sphero.common.Path;
+
+import java.util.Random;
+
+/**
+ * Compares node expansions and latency of the primitive A* search against the jump point search
+ * on open grids, grids with a few random walls and generated mazes
+ */
+public class JumpPointBenchmarkTools {
+
+    public static void main(String[] args) {
+        printBenchmarkReport();
+    }
+
+    public static void printBenchmarkReport() {
+        JumpPointBenchmarkTools t = new JumpPointBenchmarkTools();
+        t.benchmarkQueries(t.createMap(100, 0.05), 100); //warm up
+        for (int size : new int[]{200, 500, 1000}) {
+            for (double wallRate : new double[]{0, 0.05, 0.2, -1}) {
+                Map map = t.createMap(size, wallRate);
+                double[][] results = t.benchmarkQueries(map, 200);
+                String layout = wallRate < 0 ? "maze" : wallRate == 0 ? "open grid" : (int) (wallRate * 100) + "% walls";
+                System.out.println("------" + size + "x" + size + " " + layout + "---------");
+                System.out.println("A*  : " + results[0][0] + " expansions, " + results[0][1] + " ms/query");
+                System.out.println("JPS : " + results[1][0] + " expansions, " + results[1][1] + " ms/query");
+                System.out.println("-------------------------");
+            }
+        }
+    }
+
+    /**
+     * @param wallRate probability that a connection of an open grid is removed, a negative value creates a maze
+     */
+    public Map createMap(int size, double wallRate) {
+        if (wallRate < 0) return (new MazeGenerator()).generate(size, size, 1).getMap();
+        Map map = (new MazeGenerator()).generate(size, size, 1, true).getMap();
+        Random r = new Random(3);
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (x + 1 < size && r.nextDouble() < wallRate) map.disconnect(map.getField(x, y), map.getField(x + 1, y));
+                if (y + 1 < size && r.nextDouble() < wallRate) map.disconnect(map.getField(x, y), map.getField(x, y + 1));
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Runs both searches on the same random location pairs
+     *
+     * @return average expansions and average milliseconds per query of A* and of the jump point search
+     */
+    public double[][] benchmarkQueries(Map map, int queries) {
+        Random r = new Random(42);
+        Location[] from = new Location[queries];
+        Location[] to = new Location[queries];
+        for (int i = 0; i < queries; i++) {
+            from[i] = new Location(map.getField(r.nextInt(map.getSizeX()), r.nextInt(map.getSizeY())), Location.Type.DESTINATION);
+            to[i] = new Location(map.getField(r.nextInt(map.getSizeX()), r.nextInt(map.getSizeY())), Location.Type.DESTINATION);
+        }
+        BFS bfs = new BFS();
+        JumpPointSearch jps = new JumpPointSearch();
+        SearchWorkspace workspace = SearchWorkspace.get(map);
+        double[][] results = new double[2][2];
+        double[] distances = new double[queries];
+
+        long expansions = 0;
+        long t1 = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            distances[i] = distance(bfs.shortestDistanceAStarPrimitive(from[i], to[i], map, workspace));
+            expansions += workspace.getExpansions();
+        }
+        long t2 = System.nanoTime();
+        results[0][0] = (double) expansions / queries;
+        results[0][1] = (t2 - t1) / 1e6 / queries;
+
+        expansions = 0;
+        t1 = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            double distance = distance(jps.shortestDistance(from[i], to[i], map, workspace));
+            expansions += workspace.getExpansions();
+            if (distance != distances[i])
+                throw new IllegalStateException("JPS disagrees: " + distance + " != " + distances[i]);
+        }
+        t2 = System.nanoTime();
+        results[1][0] = (double) expansions / queries;
+        results[1][1] = (t2 - t1) / 1e6 / queries;
+        return results;
+    }
+
+    /**
+     * random walls can cut off single fields, unreachable pairs get the distance -1
+     */
+    private static double distance(Path path) {
+        return path == null ? -1 : path.getDistance();
+    }
+}
@@ -0,0 +1,83 @@
+package sphero.algo.local.benchmarks;
+
+import sphero.algo.MazeGenerator;
+import sphero.algo.local.BFS;
+import sphero.algo.local.JunctionGraph;
+import sphero.algo.local.SearchWorkspace;
+import sphero.common.Configuration;
+import sphero.common.Location;
+import sphero.common.Map;
+
+import java.util.List;
+
+/**
+ * Compares A* on the fields of a maze against A* on the {@link JunctionGraph} of the destinations
+ */
+public class JunctionGraphBenchmarkTools {
+
+    public static void main(String[] args) {
+        printBenchmarkReport();
+    }
+
+    public static void printBenchmarkReport() {
+        JunctionGraphBenchmarkTools t = new JunctionGraphBenchmarkTools();
+        t.benchmarkQueries(100, 1); //warm up
+        for (int size : new int[]{200, 500, 1000}) {
+            double[] results = t.benchmarkQueries(size, 20);
+            System.out.println("------" + size + "x" + size + " maze, 20 destinations---------");
+            System.out.println("Preprocessing : " + results[4] + " ms, " + results[5] + " nodes for " + size * size + " fields");
+            System.out.println("A*            : " + results[0] + " expansions, " + results[1] + " ms/query");
+            System.out.println("Junction A*   : " + results[2] + " expansions, " + results[3] + " ms/query");
+            System.out.println("-------------------------");
+        }
+    }
+
+    /**
+     * Searches all pairs of destinations with both searches
+     *
+     * @return average expansions and milliseconds per query of A* and of A* on the junction graph,
+     * preprocessing time and number of nodes
+     */
+    public double[] benchmarkQueries(int size, int locations) {
+        Configuration config = (new MazeGenerator()).generate(size, size, locations - 1);
+        Map map = config.getMap();
+        List<Location> locationList = config.getOrderedLocations();
+        BFS bfs = new BFS();
+        SearchWorkspace workspace = SearchWorkspace.get(map);
+        double[] results = new double[6];
+
+        long t0 = System.nanoTime();
+        JunctionGraph junctions = JunctionGraph.forLocations(map, locationList);
+        long t1 = System.nanoTime();
+        results[4] = (t1 - t0) / 1e6;
+        results[5] = junctions.getNodeCount();
+
+        int queries = 0;
+        long expansionsAStar = 0;
+        long expansionsJunctions = 0;
+        long timeAStar = 0;
+        long timeJunctions = 0;
+        for (Location from : locationList) {
+            for (Location to : locationList) {
+                if (from == to) continue;
+                t1 = System.nanoTime();
+                double expected = bfs.shortestDistanceAStarPrimitive(from, to, map, workspace).getDistance();
+                expansionsAStar += workspace.getExpansions();
+                long t2 = System.nanoTime();
+                double distance = junctions.shortestDistance(from, to, map, workspace).getDistance();
+                expansionsJunctions += workspace.getExpansions();
+                long t3 = System.nanoTime();
+                if (distance != expected)
+                    throw new IllegalStateException("junction graph disagrees: " + distance + " != " + expected);
+                timeAStar += t2 - t1;
+                timeJunctions += t3 - t2;
+                queries++;
+            }
+        }
+        results[0] = (double) expansionsAStar / queries;
+        results[1] = timeAStar / 1e6 / queries;
+        results[2] = (double) expansionsJunctions / queries;
+        results[3] = timeJunctions / 1e6 / queries;
+        return results;
+    }
+}
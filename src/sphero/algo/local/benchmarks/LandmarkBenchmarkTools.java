@@ -0,0 +1,102 @@
+package sphero.algo.local.benchmarks;
+
+import sphero.algo.MazeGenerator;
+import sphero.algo.local.BFS;
+import sphero.algo.local.Landmarks;
+import sphero.algo.local.SearchWorkspace;
+import sphero.common.Location;
+import sphero.common.Map;
+
+import java.util.Random;
+
+/**
+ * Compares node expansions and latency of A* with the manhattan heuristic against A* with the ALT heuristic
+ */
+public class LandmarkBenchmarkTools {
+
+    public static void main(String[] args) {
+        printBenchmarkReport();
+    }
+
+    public static void printBenchmarkReport() {
+        LandmarkBenchmarkTools t = new LandmarkBenchmarkTools();
+        t.benchmarkQueries((new MazeGenerator()).generate(100, 100, 1).getMap(), 100); //warm up
+        String[] layouts = {"maze", "maze with 5% extra openings", "open grid"};
+        for (int size : new int[]{200, 500, 1000}) {
+            for (int layout = 0; layout < layouts.length; layout++) {
+                Map map = t.createMap(size, layout);
+                double[][] results = t.benchmarkQueries(map, 200);
+                System.out.println("------" + size + "x" + size + " " + layouts[layout] + "---------");
+                System.out.println("Preprocessing : " + results[2][1] + " ms for " + Landmarks.DEFAULT_COUNT + " landmarks");
+                System.out.println("A*            : " + results[0][0] + " expansions, " + results[0][1] + " ms/query");
+                System.out.println("ALT           : " + results[1][0] + " expansions, " + results[1][1] + " ms/query");
+                System.out.println("-------------------------");
+            }
+        }
+    }
+
+    /**
+     * @param layout 0: maze, 1: maze with additional random connections (5% of all walls), 2: open grid
+     */
+    public Map createMap(int size, int layout) {
+        if (layout == 2) return (new MazeGenerator()).generate(size, size, 1, true).getMap();
+        Map map = (new MazeGenerator()).generate(size, size, 1).getMap();
+        if (layout == 1) {
+            Random r = new Random(3);
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    if (x + 1 < size && r.nextDouble() < 0.05) map.connect(map.getField(x, y), map.getField(x + 1, y));
+                    if (y + 1 < size && r.nextDouble() < 0.05) map.connect(map.getField(x, y), map.getField(x, y + 1));
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Runs both searches on the same random location pairs
+     *
+     * @return average expansions and milliseconds per query of A* and of ALT, followed by the preprocessing time
+     */
+    public double[][] benchmarkQueries(Map map, int queries) {
+        Random r = new Random(42);
+        Location[] from = new Location[queries];
+        Location[] to = new Location[queries];
+        for (int i = 0; i < queries; i++) {
+            from[i] = new Location(map.getField(r.nextInt(map.getSizeX()), r.nextInt(map.getSizeY())), Location.Type.DESTINATION);
+            to[i] = new Location(map.getField(r.nextInt(map.getSizeX()), r.nextInt(map.getSizeY())), Location.Type.DESTINATION);
+        }
+        BFS bfs = new BFS();
+        SearchWorkspace workspace = SearchWorkspace.get(map);
+        double[][] results = new double[3][2];
+        double[] distances = new double[queries];
+
+        long t0 = System.nanoTime();
+        Landmarks landmarks = Landmarks.get(map);
+        long t1 = System.nanoTime();
+        results[2][1] = (t1 - t0) / 1e6;
+
+        long expansions = 0;
+        t1 = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            distances[i] = bfs.shortestDistanceAStarPrimitive(from[i], to[i], map, workspace).getDistance();
+            expansions += workspace.getExpansions();
+        }
+        long t2 = System.nanoTime();
+        results[0][0] = (double) expansions / queries;
+        results[0][1] = (t2 - t1) / 1e6 / queries;
+
+        expansions = 0;
+        t1 = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            double distance = bfs.shortestDistanceALT(from[i], to[i], map, landmarks, workspace).getDistance();
+            expansions += workspace.getExpansions();
+            if (distance != distances[i])
+                throw new IllegalStateException("ALT disagrees: " + distance + " != " + distances[i]);
+        }
+        t2 = System.nanoTime();
+        results[1][0] = (double) expansions / queries;
+        results[1][1] = (t2 - t1) / 1e6 / queries;
+        return results;
+    }
+}
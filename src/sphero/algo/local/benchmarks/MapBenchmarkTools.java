@@ -0,0 +1,55 @@
+package sphero.algo.local.benchmarks;
+
+import sphero.common.Map;
+
+/**
+ * Compares the heap usage of regular maps (one field object per cell) and compact maps (2 bits per cell)
+ * Run with a large heap (e.g. -Xmx8g), otherwise the regular maps of the larger sizes are extrapolated
+ */
+public class MapBenchmarkTools {
+
+    public static void main(String[] args) {
+        printBenchmarkReport();
+    }
+
+    public static void printBenchmarkReport() {
+        MapBenchmarkTools t = new MapBenchmarkTools();
+        double bytesPerField = t.measureHeap(1000, false) / (1000.0 * 1000.0);
+        for (int size : new int[]{1000, 4000, 10000}) {
+            long cells = (long) size * size;
+            long compact = t.measureHeap(size, true);
+            long regular = -1;
+            if (Runtime.getRuntime().maxMemory() > cells * bytesPerField * 1.5) {
+                regular = t.measureHeap(size, false);
+            }
+            boolean estimated = regular < 0;
+            if (estimated) regular = (long) (cells * bytesPerField);
+            System.out.println("------" + size + "x" + size + "---------");
+            System.out.println("Regular map = " + regular / (1 << 20) + " MiB" + (estimated ? " (extrapolated)" : ""));
+            System.out.println("Compact map = " + compact / (1 << 20) + " MiB");
+            System.out.println("Saved       = " + (regular - compact) / (1 << 20) + " MiB");
+            System.out.println("-------------------------");
+        }
+    }
+
+    /**
+     * Creates a fully connected map and measures the heap it occupies
+     *
+     * @return used heap in bytes
+     */
+    public long measureHeap(int size, boolean compact) {
+        long before = usedHeap();
+        Map map = new Map(size, size, 1, false, compact);
+        long after = usedHeap();
+        if (map.getSizeX() != size) throw new IllegalStateException();
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
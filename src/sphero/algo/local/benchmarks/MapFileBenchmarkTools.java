@@ -0,0 +1,136 @@
+package sphero.algo.local.benchmarks;
+
+import sphero.common.ConfigurationBuilder;
+import sphero.common.Constants;
+import sphero.common.Location;
+import sphero.common.Map;
+import sphero.common.MapFile;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares loading maps of the text format with loading the binary format of {@link MapFile}
+ * The 10000x10000 map needs a bigger heap, e.g. -Xmx4g.
+ */
+public class MapFileBenchmarkTools {
+
+    public static void main(String[] args) throws IOException {
+        printBenchmarkReport();
+    }
+
+    public static void printBenchmarkReport() throws IOException {
+        MapFileBenchmarkTools t = new MapFileBenchmarkTools();
+        t.benchmark(200, true); //warm up
+        for (int size : new int[]{1000, 2000}) {
+            double[] results = t.benchmark(size, true);
+            System.out.println("------" + size + "x" + size + " map---------");
+            System.out.println("Text format   : " + results[0] + " ms");
+            System.out.println("Binary format : " + results[1] + " ms, " + results[2] + " ms without compact map");
+            System.out.println("-------------------------");
+        }
+        double[] results = t.benchmark(10000, false);
+        System.out.println("------10000x10000 map---------");
+        System.out.println("Binary format : " + results[1] + " ms");
+        System.out.println("-------------------------");
+    }
+
+    /**
+     * @param text also measure the text format and the binary format without compact map
+     * @return milliseconds to load the text format, the binary format as compact map and as regular map
+     */
+    public double[] benchmark(int size, boolean text) throws IOException {
+        Map map = createMap(size);
+        List<Location> locations = new ArrayList<>();
+        Random r = new Random(3);
+        Location start = new Location(map.getField(0, 0), Location.Type.START);
+        locations.add(start);
+        for (int k = 0; k < 50; k++) {
+            locations.add(new Location(map.getField(r.nextInt(size), r.nextInt(size)), Location.Type.DESTINATION));
+        }
+        double[] results = new double[3];
+        File binary = File.createTempFile("benchmark", ".sphm");
+        File ascii = File.createTempFile("benchmark", ".txt");
+        try {
+            MapFile.write(map, start, locations, binary);
+            long t0 = System.nanoTime();
+            new ConfigurationBuilder().withCompactMap(true).fromBinaryFile(binary);
+            long t1 = System.nanoTime();
+            results[1] = (t1 - t0) / 1e6;
+            if (text) {
+                writeText(map, locations, ascii);
+                t0 = System.nanoTime();
+                new ConfigurationBuilder().withCompactMap(true).fromFile(ascii);
+                t1 = System.nanoTime();
+                results[0] = (t1 - t0) / 1e6;
+
+                t0 = System.nanoTime();
+                new ConfigurationBuilder().fromBinaryFile(binary);
+                t1 = System.nanoTime();
+                results[2] = (t1 - t0) / 1e6;
+            }
+        } finally {
+            binary.delete();
+            ascii.delete();
+        }
+        return results;
+    }
+
+    /**
+     * Compact grid, every connection is removed with a probability of 20%
+     */
+    public Map createMap(int size) {
+        Map map = new Map(size, size, 1, false, true);
+        Random r = new Random(7);
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (x + 1 < size && r.nextDouble() < 0.2) map.disconnect(map.getField(x, y), map.getField(x + 1, y));
+                if (y + 1 < size && r.nextDouble() < 0.2) map.disconnect(map.getField(x, y), map.getField(x, y + 1));
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Writes a map in the text format of {@link ConfigurationBuilder#fromFile(File)}
+     */
+    public void writeText(Map map, List<Location> locations, File file) throws IOException {
+        int sizeX = map.getSizeX();
+        int sizeY = map.getSizeY();
+        char[] cells = new char[sizeX * sizeY];
+        Arrays.fill(cells, Constants.FREE);
+        for (Location l : locations) {
+            cells[l.getField().getId()] = l.getType() == Location.Type.START ? Constants.ROBOT : Constants.GOALS;
+        }
+        try (BufferedWriter w = new BufferedWriter(new FileWriter(file))) {
+            w.write(sizeX + "\n" + sizeY + "\n");
+            StringBuilder line = new StringBuilder();
+            for (int y = 0; y < sizeY + 2; y++) line.append(Constants.WALL);
+            w.write(line + "\n");
+            for (int x = 0; x < sizeX; x++) {
+                line.setLength(0);
+                line.append(Constants.WALL);
+                for (int y = 0; y < sizeY; y++) {
+                    if (y > 0) line.append(map.getGrid().hasSouth(x * sizeY + y - 1) ? Constants.TRANSITION : Constants.WALL);
+                    line.append(cells[x * sizeY + y]);
+                }
+                line.append(Constants.WALL);
+                w.write(line + "\n");
+
+                line.setLength(0);
+                line.append(Constants.WALL);
+                for (int y = 0; y < sizeY; y++) {
+                    line.append(x + 1 < sizeX && map.getGrid().hasEast(x * sizeY + y) ? Constants.TRANSITION : Constants.WALL);
+                }
+                line.append(Constants.WALL);
+                w.write(line + "\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package sphero.algo.local.benchmarks;
+
+import sphero.algo.MazeGenerator;
+import sphero.algo.local.BFS;
+import sphero.algo.local.PairScheduler;
+import sphero.algo.local.SearchWorkspace;
+import sphero.common.Configuration;
+import sphero.common.Field;
+import sphero.common.Location;
+import sphero.common.Map;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the row-wise parallel stream with the {@link PairScheduler} for filling a distance matrix
+ * <p>
+ * The time of every search is measured once, then both schedules replay the searches as sleeps of the same length.
+ * Sleeping workers do not compete for processors, so the speedup for many workers can be measured on a small
+ * machine and only shows how well the work is balanced.
+ */
+public class PairSchedulerBenchmarkTools {
+
+    /**
+     * stretches the measured times, so the sleeps are long compared to the timer resolution
+     */
+    private static final int SCALE = 4;
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        printBenchmarkReport();
+    }
+
+    public static void printBenchmarkReport() throws InterruptedException, ExecutionException {
+        PairSchedulerBenchmarkTools t = new PairSchedulerBenchmarkTools();
+        Configuration config = (new MazeGenerator()).generate(300, 300, 59);
+        List<Location> locationList = config.getOrderedLocations();
+        long[][] times = t.measureSearches(config.getMap(), locationList);
+        long sequential = 0;
+        for (long[] row : times) for (long time : row) sequential += time;
+        System.out.println("------300x300 maze, 60 destinations, " + sequential / 1e6 + " ms of searches---------");
+        for (int workers : new int[]{4, 8, 16, 32}) {
+            double rows = t.replayRows(times, workers);
+            PairScheduler scheduler = new PairScheduler(workers);
+            double scheduled = t.replayScheduled(times, scheduler, locationList);
+            System.out.println(workers + " workers: rows speedup " + sequential * SCALE / rows
+                    + ", scheduler speedup " + sequential * SCALE / scheduled
+                    + ", utilization " + scheduler.getLastReport().getUtilization());
+            scheduler.close();
+        }
+        System.out.println("-------------------------");
+    }
+
+    /**
+     * @return nanoseconds of the A* search of every pair i &lt; j
+     */
+    public long[][] measureSearches(Map map, List<Location> locationList) {
+        BFS bfs = new BFS();
+        SearchWorkspace workspace = SearchWorkspace.get(map);
+        int n = locationList.size();
+        long[][] times = new long[n][n];
+        for (int round = 0; round < 2; round++) { // the first round warms up
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    long t0 = System.nanoTime();
+                    bfs.shortestDistanceAStarPrimitive(locationList.get(i), locationList.get(j), map, workspace);
+                    times[i][j] = System.nanoTime() - t0;
+                }
+            }
+        }
+        return times;
+    }
+
+    /**
+     * replays the searches like the former implementation: a parallel stream over the rows of the triangle
+     *
+     * @return wall time in nanoseconds
+     */
+    public double replayRows(long[][] times, int workers) throws InterruptedException, ExecutionException {
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        long t0 = System.nanoTime();
+        pool.submit(() -> IntStream.range(0, times.length).parallel().forEach(i -> {
+            for (int j = i + 1; j < times.length; j++) LockSupport.parkNanos(times[i][j] * SCALE);
+        })).get();
+        long t1 = System.nanoTime();
+        pool.shutdown();
+        return t1 - t0;
+    }
+
+    /**
+     * replays the searches in the order of the scheduler, estimated by the Manhattan distance of the pairs
+     *
+     * @return wall time in nanoseconds
+     */
+    public double replayScheduled(long[][] times, PairScheduler scheduler, List<Location> locationList) {
+        return scheduler.forEachPair(times.length, (i, j) -> {
+            Field a = locationList.get(i).getField();
+            Field b = locationList.get(j).getField();
+            return Math.abs(a.getX() - b.getX()) + Math.abs(a.getY() - b.getY());
+        }, (i, j) -> {
+            LockSupport.parkNanos(times[i][j] * SCALE);
+            return true;
+        }).getWallTime();
+    }
+}
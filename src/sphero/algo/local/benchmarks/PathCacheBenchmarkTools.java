@@ -0,0 +1,69 @@
+package sphero.algo.local.benchmarks;
+
+import sphero.algo.MazeGenerator;
+import sphero.algo.local.AllPairShortestPaths;
+import sphero.algo.local.PathCache;
+import sphero.common.Configuration;
+import sphero.common.Location;
+import sphero.common.Map;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures repeated distance matrix requests on the same map with and without a {@link PathCache}
+ */
+public class PathCacheBenchmarkTools {
+
+    public static void main(String[] args) {
+        printBenchmarkReport();
+    }
+
+    public static void printBenchmarkReport() {
+        PathCacheBenchmarkTools t = new PathCacheBenchmarkTools();
+        t.benchmarkRequests(100, 20, 5, 0.75); //warm up
+        for (int size : new int[]{100, 200}) {
+            for (double overlap : new double[]{0.5, 0.75, 0.9}) {
+                double[] results = t.benchmarkRequests(size, 40, 10, overlap);
+                System.out.println("------" + size + "x" + size + " maze, " + (int) (overlap * 100) + "% of the locations repeated---------");
+                System.out.println("without cache = " + results[0] + " ms/request");
+                System.out.println("with cache    = " + results[1] + " ms/request");
+                System.out.println("hit rate      = " + results[2]);
+                System.out.println("-------------------------");
+            }
+        }
+    }
+
+    /**
+     * Sends a sequence of requests, each of which keeps a share of the locations of the previous request
+     *
+     * @return milliseconds per request without and with cache, hit rate of the cache
+     */
+    public double[] benchmarkRequests(int size, int locations, int requests, double overlap) {
+        Configuration config = (new MazeGenerator()).generate(size, size, 1);
+        Map map = config.getMap();
+        Random r = new Random(7);
+        List<List<Location>> sequence = new ArrayList<>();
+        List<Location> previous = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            List<Location> current = new ArrayList<>();
+            for (int k = 0; k < locations; k++) {
+                current.add(k < previous.size() * overlap ? previous.get(k)
+                        : new Location(map.getField(r.nextInt(size), r.nextInt(size)), Location.Type.DESTINATION));
+            }
+            sequence.add(current);
+            previous = current;
+        }
+
+        AllPairShortestPaths plain = new AllPairShortestPaths();
+        PathCache cache = new PathCache(100_000, 10_000_000);
+        AllPairShortestPaths cached = new AllPairShortestPaths(AllPairShortestPaths.Strategy.PAIRWISE_ASTAR, false, cache);
+        long t1 = System.nanoTime();
+        for (List<Location> request : sequence) plain.allPairs(request, map);
+        long t2 = System.nanoTime();
+        for (List<Location> request : sequence) cached.allPairs(request, map);
+        long t3 = System.nanoTime();
+        return new double[]{(t2 - t1) / 1e6 / requests, (t3 - t2) / 1e6 / requests, cache.getHitRate()};
+    }
+}
@@ -0,0 +1,74 @@
+package sphero.algo.local.benchmarks;
+
+import sphero.algo.MazeGenerator;
+import sphero.algo.local.AllPairShortestPaths;
+import sphero.common.Configuration;
+import sphero.common.Field;
+import sphero.common.Location;
+import sphero.common.Map;
+import sphero.common.MapEdit;
+import sphero.common.Path;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the repair of a distance matrix after single map edits against calculating the whole matrix again
+ */
+public class RepairBenchmarkTools {
+
+    public static void main(String[] args) {
+        printBenchmarkReport();
+    }
+
+    public static void printBenchmarkReport() {
+        RepairBenchmarkTools t = new RepairBenchmarkTools();
+        t.benchmarkEdits(100, 20, 5); //warm up
+        for (int size : new int[]{100, 200, 300}) {
+            double[] results = t.benchmarkEdits(size, 40, 10);
+            System.out.println("------" + size + "x" + size + " open grid, 40 locations---------");
+            System.out.println("full matrix  = " + results[0] + " ms/edit, " + results[2] + " pairs");
+            System.out.println("repair       = " + results[1] + " ms/edit, " + results[3] + " pairs");
+            System.out.println("-------------------------");
+        }
+    }
+
+    /**
+     * Alternately removes a connection on a path of the matrix and adds it again
+     *
+     * @return milliseconds per edit of the full calculation and of the repair,
+     * searched pairs per edit of the full calculation and of the repair
+     */
+    public double[] benchmarkEdits(int size, int locations, int edits) {
+        Configuration config = (new MazeGenerator()).generate(size, size, locations - 1, true);
+        Map map = config.getMap();
+        List<Location> locationList = config.getOrderedLocations();
+        AllPairShortestPaths apsp = new AllPairShortestPaths();
+        Path[][] matrix = apsp.allPairs(locationList, map);
+        Random r = new Random(11);
+        long timeFull = 0;
+        long timeRepair = 0;
+        long repaired = 0;
+        for (int e = 0; e < edits; e++) {
+            Path p = matrix[r.nextInt(locationList.size())][r.nextInt(locationList.size())];
+            while (p.getDistance() < 2) p = matrix[r.nextInt(locationList.size())][r.nextInt(locationList.size())];
+            List<Field> fields = p.getFields();
+            int k = r.nextInt(fields.size() - 1);
+            Field a = map.getField(fields.get(k).getId());
+            Field b = map.getField(fields.get(k + 1).getId());
+            for (MapEdit edit : new MapEdit[]{MapEdit.disconnect(a, b), MapEdit.connect(a, b)}) {
+                edit.apply(map);
+                long t1 = System.nanoTime();
+                apsp.allPairs(locationList, map);
+                long t2 = System.nanoTime();
+                repaired += apsp.repair(matrix, locationList, map, Collections.singletonList(edit));
+                long t3 = System.nanoTime();
+                timeFull += t2 - t1;
+                timeRepair += t3 - t2;
+            }
+        }
+        int pairs = locationList.size() * (locationList.size() - 1) / 2;
+        return new double[]{timeFull / 1e6 / (2 * edits), timeRepair / 1e6 / (2 * edits), pairs, (double) repaired / (2 * edits)};
+    }
+}
@@ -1,11 +1,25 @@
 package sphero.common;
 
+import sphero.algo.global.LinKernighan;
 import sphero.algo.global.LocalSearch;
 import sphero.algo.global.PathPermutations;
 import sphero.algo.local.AllPairShortestPaths;
+import sphero.algo.local.PathCache;
 
 public class AlgorithmFactory {
 
+    /**
+     * search results shared by all requests on the same map (at most 40 MB of path fields per map)
+     */
+    private static final PathCache cache = new PathCache(100_000, 10_000_000);
+
+    /**
+     * @return cache of the search results of all created instances, e.g. for its hit rate
+     */
+    public static PathCache getCache() {
+        return cache;
+    }
+
     /**
      * Selects a routing algorithm and creates an instance
      *
@@ -14,9 +28,14 @@ public class AlgorithmFactory {
      */
     public static RoutingAlgorithm createInstance(Configuration config) {
         if (config.getOrderedLocations().size() < 10) {
-            return new PathPermutations(new AllPairShortestPaths());
+            return new PathPermutations(new AllPairShortestPaths(AllPairShortestPaths.Strategy.PAIRWISE_ASTAR, false, cache));
+        } else if (config.getOrderedLocations().size() <= 200) {
+            // only the paths of the final route need their fields
+            return new LocalSearch(new AllPairShortestPaths(AllPairShortestPaths.Strategy.PAIRWISE_ASTAR, true, cache), 30);
         } else {
-            return new LocalSearch(new AllPairShortestPaths(), 30);
+            // restarts of 2-opt and relocate hardly improve large tours, kicks of k-opt moves do
+            return new LinKernighan(new AllPairShortestPaths(AllPairShortestPaths.Strategy.PAIRWISE_ASTAR, true, cache),
+                    Runtime.getRuntime().availableProcessors(), config.getOrderedLocations().size() / 4);
         }
     }
 }
@@ -1,9 +1,11 @@
 package sphero.common;
 
-import java.io.*;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
 
 
 /**
@@ -18,81 +20,57 @@ public class ConfigurationBuilder {
     private Map map;
     private Location start;
     private List<Location> locationList = new ArrayList<>();
+    private boolean compactMap = false;
 
 
     /**
-     * Builds a configuration using an input file
+     * Builds a configuration using an input file of the text format with the characters of {@link Constants}
+     *
+     * @throws MapFormatException if the file is malformed, with the line and column of the error
      */
     public ConfigurationBuilder fromFile(File file) throws IOException {
         if (file == null) throw new IllegalArgumentException();
-
-        FileInputStream fileStream = new FileInputStream(file);
-        DataInputStream in = new DataInputStream(fileStream);
-        BufferedReader br = new BufferedReader(new InputStreamReader(in));
-        Scanner scanner = new Scanner(new BufferedReader(new FileReader(file.getAbsoluteFile())));
-
-        int sizeX = 0;
-        int sizeY = 0;
-        if (scanner.hasNextLine()) sizeX = Integer.parseInt(scanner.nextLine().trim());
-        if (scanner.hasNextLine()) sizeY = Integer.parseInt(scanner.nextLine().trim());
-        map = new Map(sizeX, sizeY, 1.0, false);
-
-        int currentPosX = -1;
-        int currentPosY = 0;
-        int txtRow = 0;
-
-        String strLine;
-        while ((strLine = br.readLine()) != null) {
-            System.out.println(strLine);
-            if (txtRow == 0) {
-                txtRow++;
-                continue;
-            }
-
-            //Line with positions and horizontal transitions.
-            if (txtRow % 2 == 1) {
-                for (int j = 1; j < strLine.length() - 1; j++) {
-                    if (strLine.charAt(j) == Constants.GOALS) {
-                        Field dest = map.getField(currentPosX, currentPosY);
-                        locationList.add(new Location(dest, Location.Type.DESTINATION));
-                    } else if (strLine.charAt(j) == Constants.ROBOT) {
-                        Field f = map.getField(currentPosX, currentPosY);
-                        start = new Location(f, Location.Type.START);
-                        locationList.add(start);
-                    } else if (strLine.charAt(j) == Constants.TRANSITION) {
-                        Field a = map.getField(currentPosX, currentPosY - 1);
-                        Field b = map.getField(currentPosX, currentPosY);
-                        map.connect(a, b);
-                    }
-                    if (strLine.charAt(j) == Constants.FREE || strLine.charAt(j) == Constants.ROBOT || strLine.charAt(j) == Constants.GOALS) {
-                        currentPosY++;
-                    }
-                }
-                currentPosX++;
-                currentPosY = 0;
-            }
-
-            // Line with vertical transitions
-            else if (txtRow % 2 == 0) {
-                for (int j = 1; j < strLine.length() - 1; j++) {
-                    if (strLine.charAt(j) == Constants.TRANSITION) {
-                        Field a = map.getField(currentPosX, currentPosY);
-                        Field b = map.getField(currentPosX - 1, currentPosY);
-                        map.connect(a, b);
-                    }
-                    if (strLine.charAt(j) == Constants.WALL || strLine.charAt(j) == Constants.TRANSITION) {
-                        currentPosY++;
-                    }
-                }
-                currentPosY = 0;
-            }
-            txtRow++;
+        try (InputStream in = new FileInputStream(file)) {
+            return fromStream(in);
         }
-        in.close();
+    }
+
+    /**
+     * Builds a configuration from a stream of the text format, the stream is not closed
+     *
+     * @throws MapFormatException if the input is malformed, with the line and column of the error
+     */
+    public ConfigurationBuilder fromStream(InputStream in) throws IOException {
+        TextMapParser parser = new TextMapParser(compactMap);
+        parser.parse(in);
+        map = parser.getMap();
+        start = parser.getStart();
+        locationList = parser.getLocations();
+        return this;
+    }
+
+    /**
+     * Builds a configuration using a binary map file (see {@link MapFile})
+     */
+    public ConfigurationBuilder fromBinaryFile(File file) throws IOException {
+        if (file == null) throw new IllegalArgumentException();
+        ConfigurationBuilder read = MapFile.read(file, compactMap);
+        map = read.getMap();
+        start = read.getStart();
+        locationList = read.getLocations();
         return this;
     }
 
 
+    /**
+     * Maps read by {@link #fromFile(File)}, {@link #fromStream(InputStream)} or {@link #fromBinaryFile(File)} will be compact maps (see {@link Map})
+     * Has to be set before reading the file
+     */
+    public ConfigurationBuilder withCompactMap(boolean compactMap) {
+        this.compactMap = compactMap;
+        return this;
+    }
+
     public ConfigurationBuilder withMap(Map map) {
         this.map = map;
         return this;
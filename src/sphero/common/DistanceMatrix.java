@@ -0,0 +1,86 @@
+package sphero.common;
+
+/**
+ * Costs and travel times between all pairs of destinations in flat arrays
+ * <p>
+ * Both planes are stored row-major in a single array with n * n entries,
+ * so the entry for the path from a to b is at index a * n + b (a and b are location ids).
+ * Optimizers should read costs and times from here and only use the paths to build the final route.
+ */
+public class DistanceMatrix {
+
+    private final int n;
+    private final double[] costs;
+    private final double[] times;
+    private final Path[][] paths;
+
+    /**
+     * Copies cost and travel time out of a path matrix
+     * Missing paths cost nothing on the diagonal and are impassable (infinite cost and time) everywhere else
+     *
+     * @param paths path matrix of {@link sphero.algo.local.AllPairShortestPaths}
+     */
+    public DistanceMatrix(Path[][] paths) {
+        this.n = paths.length;
+        this.paths = paths;
+        costs = new double[n * n];
+        times = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                Path p = paths[i][j];
+                if (p == null) {
+                    costs[i * n + j] = i == j ? 0 : Double.POSITIVE_INFINITY;
+                    times[i * n + j] = i == j ? 0 : Double.POSITIVE_INFINITY;
+                } else {
+                    costs[i * n + j] = p.getCost();
+                    times[i * n + j] = p.getTravelTime();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of destinations
+     */
+    public int size() {
+        return n;
+    }
+
+    public double cost(int from, int to) {
+        return costs[from * n + to];
+    }
+
+    public double time(int from, int to) {
+        return times[from * n + to];
+    }
+
+    public double cost(Location from, Location to) {
+        return costs[from.getId() * n + to.getId()];
+    }
+
+    public double time(Location from, Location to) {
+        return times[from.getId() * n + to.getId()];
+    }
+
+    public Path getPath(int from, int to) {
+        return paths[from][to];
+    }
+
+    public Path getPath(Location from, Location to) {
+        return paths[from.getId()][to.getId()];
+    }
+
+    /**
+     * row-major cost plane for inner loops, must not be modified
+     */
+    public double[] getCosts() {
+        return costs;
+    }
+
+    /**
+     * row-major travel time plane for inner loops, must not be modified
+     */
+    public double[] getTimes() {
+        return times;
+    }
+}
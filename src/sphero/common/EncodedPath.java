@@ -0,0 +1,252 @@
+package sphero.common;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact, immutable encoding of the fields of a path
+ * <p>
+ * A path only moves between neighboring fields, so it is stored as its start field followed by runs of moves
+ * in the same direction. Every run takes one byte: the upper two bits hold the direction, the lower six bits
+ * the length of the run minus one. Runs longer than 64 moves are split into several bytes.
+ * The same layout is the wire format of {@link #toBytes()}, which is used to send paths to the robots.
+ */
+public final class EncodedPath {
+    public static final int EAST = 0;
+    public static final int WEST = 1;
+    public static final int SOUTH = 2;
+    public static final int NORTH = 3;
+
+    /**
+     * travel time of a move in the direction of the previous move
+     */
+    public static final double STRAIGHT_TIME = 1;
+    /**
+     * travel time of the first move and of every move which changes the direction
+     */
+    public static final double TURN_TIME = 5;
+
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+    private static final int MAX_RUN = 64;
+    private static final int HEADER_BYTES = 8;
+
+    private final Map map;
+    private final int start;
+    private final int end;
+    private final int length;
+    private final byte[] runs;
+
+    private EncodedPath(Map map, int start, int end, int length, byte[] runs) {
+        this.map = map;
+        this.start = start;
+        this.end = end;
+        this.length = length;
+        this.runs = runs;
+    }
+
+    /**
+     * @param start  start field of the path
+     * @param fields ordered list of fields from start (exclusive) to end (inclusive), as in {@link Path#getFields()}
+     * @throws IllegalArgumentException if two consecutive fields are not neighbors on the grid
+     */
+    public static EncodedPath encode(Map map, Field start, List<Field> fields) {
+        byte[] runs = new byte[16];
+        int count = 0;
+        int lastDirection = -1;
+        int run = 0;
+        Field previous = start;
+        for (Field f : fields) {
+            int direction = direction(f.getX() - previous.getX(), f.getY() - previous.getY());
+            if (direction < 0)
+                throw new IllegalArgumentException(previous + " and " + f + " are not neighbors");
+            if (direction != lastDirection || run == MAX_RUN) {
+                if (run > 0) {
+                    if (count == runs.length) runs = Arrays.copyOf(runs, count * 2);
+                    runs[count++] = run(lastDirection, run);
+                }
+                lastDirection = direction;
+                run = 0;
+            }
+            run++;
+            previous = f;
+        }
+        if (run > 0) {
+            if (count == runs.length) runs = Arrays.copyOf(runs, count + 1);
+            runs[count++] = run(lastDirection, run);
+        }
+        return new EncodedPath(map, start.getId(), previous.getId(), fields.size(), Arrays.copyOf(runs, count));
+    }
+
+    /**
+     * Decodes the wire format of {@link #toBytes()}
+     *
+     * @throws IllegalArgumentException if the data is truncated or the path leaves the map
+     */
+    public static EncodedPath fromBytes(byte[] data, Map map) {
+        if (data.length < HEADER_BYTES) throw new IllegalArgumentException("truncated path");
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int start = buffer.getInt();
+        int length = buffer.getInt();
+        byte[] runs = Arrays.copyOfRange(data, HEADER_BYTES, data.length);
+        if (start < 0 || start >= map.getSizeX() * map.getSizeY())
+            throw new IllegalArgumentException("start field " + start + " is outside of the map");
+        int x = start / map.getSizeY();
+        int y = start % map.getSizeY();
+        int moves = 0;
+        for (byte b : runs) {
+            x += DX[direction(b)] * runLength(b);
+            y += DY[direction(b)] * runLength(b);
+            moves += runLength(b);
+            // runs are straight, so checking their ends is enough
+            if (x < 0 || y < 0 || x >= map.getSizeX() || y >= map.getSizeY())
+                throw new IllegalArgumentException("path leaves the map");
+        }
+        if (moves != length) throw new IllegalArgumentException("path has " + moves + " moves instead of " + length);
+        return new EncodedPath(map, start, x * map.getSizeY() + y, length, runs);
+    }
+
+    /**
+     * start field id (4 bytes), number of moves (4 bytes) and one byte per run
+     */
+    public byte[] toBytes() {
+        return ByteBuffer.allocate(HEADER_BYTES + runs.length).putInt(start).putInt(length).put(runs).array();
+    }
+
+    /**
+     * @return the same path in opposite direction, from the end field (exclusive) to the start field (inclusive)
+     */
+    public EncodedPath reverse() {
+        byte[] reversed = new byte[runs.length];
+        for (int i = 0; i < runs.length; i++) {
+            byte b = runs[runs.length - 1 - i];
+            // flips the lowest bit of the direction: east <-> west, south <-> north
+            reversed[i] = run(direction(b) ^ 1, runLength(b));
+        }
+        return new EncodedPath(map, end, start, length, reversed);
+    }
+
+    /**
+     * Travel time of all moves, without the time impact of the destination
+     * Every run costs {@link #TURN_TIME} for its first move and {@link #STRAIGHT_TIME} for every further move,
+     * split runs are continued without a turn.
+     */
+    public double travelTime() {
+        double time = 0;
+        int lastDirection = -1;
+        for (byte b : runs) {
+            time += (direction(b) == lastDirection ? STRAIGHT_TIME : TURN_TIME) + (runLength(b) - 1) * STRAIGHT_TIME;
+            lastDirection = direction(b);
+        }
+        return time;
+    }
+
+    /**
+     * unmodifiable view of the fields from start (exclusive) to end (inclusive), which are decoded on access
+     * Iterating over the view is linear, random access has to skip all runs before the index.
+     */
+    public List<Field> asList() {
+        return new FieldView();
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * @return number of moves, which is the number of fields without the start field
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public int getRunCount() {
+        return runs.length;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append(start);
+        for (byte b : runs) {
+            sb.append(' ').append("EWSN".charAt(direction(b))).append(runLength(b));
+        }
+        return sb.toString();
+    }
+
+    private static int direction(int dx, int dy) {
+        if (dy == 0 && dx == 1) return EAST;
+        if (dy == 0 && dx == -1) return WEST;
+        if (dx == 0 && dy == 1) return SOUTH;
+        if (dx == 0 && dy == -1) return NORTH;
+        return -1;
+    }
+
+    private static byte run(int direction, int length) {
+        return (byte) ((direction << 6) | (length - 1));
+    }
+
+    private static int direction(byte run) {
+        return (run & 0xFF) >>> 6;
+    }
+
+    private static int runLength(byte run) {
+        return (run & 0x3F) + 1;
+    }
+
+    private int step(int direction) {
+        return DX[direction] * map.getSizeY() + DY[direction];
+    }
+
+    private class FieldView extends AbstractList<Field> {
+        @Override
+        public Field get(int index) {
+            if (index < 0 || index >= length) throw new IndexOutOfBoundsException(index);
+            int id = start;
+            for (byte b : runs) {
+                int moves = Math.min(runLength(b), index + 1);
+                id += moves * step(direction(b));
+                index -= moves;
+                if (index < 0) break;
+            }
+            return map.getField(id);
+        }
+
+        @Override
+        public int size() {
+            return length;
+        }
+
+        @Override
+        public Iterator<Field> iterator() {
+            return new Iterator<Field>() {
+                private int id = start;
+                private int run = -1;
+                private int remaining = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return remaining > 0 || run + 1 < runs.length;
+                }
+
+                @Override
+                public Field next() {
+                    if (remaining == 0) {
+                        if (++run >= runs.length) throw new NoSuchElementException();
+                        remaining = runLength(runs[run]);
+                    }
+                    remaining--;
+                    id += step(direction(runs[run]));
+                    return map.getField(id);
+                }
+            };
+        }
+    }
+}
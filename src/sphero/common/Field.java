@@ -12,6 +12,7 @@ public class Field {
     private final int x;
     private final int y;
     private final List<Field> neighbors;
+    private final Map compactMap;
 
     /**
      * @param id field id
@@ -23,6 +24,21 @@ public class Field {
         assert x >= 0;
         assert y >= 0;
         neighbors = new ArrayList<>();
+        compactMap = null;
+        this.id = id;
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Creates a view of a cell on a compact map, which looks up its neighbors in the map
+     */
+    Field(int id, int x, int y, Map compactMap) {
+        assert id >= 0;
+        assert x >= 0;
+        assert y >= 0;
+        neighbors = null;
+        this.compactMap = compactMap;
         this.id = id;
         this.x = x;
         this.y = y;
@@ -50,9 +66,10 @@ public class Field {
     }
 
     /**
-     * @return neighboring fields
+     * @return neighboring fields (a new list for fields of a compact map)
      */
     public List<Field> getNeighbors() {
+        if (compactMap != null) return compactMap.neighborsOf(id);
         return neighbors;
     }
 
@@ -0,0 +1,250 @@
+package sphero.common;
+
+/**
+ * Compact representation of the connections in a grid graph
+ * <p>
+ * Every cell is only identified by its field id (id = x * sizeY + y).
+ * Two bits per cell store whether the cell is connected to its neighbor in positive x direction (east)
+ * and to its neighbor in positive y direction (south). The west and north connections of a cell are the
+ * east and south connections of the neighboring cells.
+ */
+public class GridGraph {
+    public static final int EAST = 1;
+    public static final int SOUTH = 2;
+
+    private final int sizeX;
+    private final int sizeY;
+    private final long[] bits;
+
+    /**
+     * Creates a grid without connections
+     *
+     * @param sizeX length of the x axis in fields
+     * @param sizeY length of the y axis in fields
+     */
+    public GridGraph(int sizeX, int sizeY) {
+        assert sizeX > 0;
+        assert sizeY > 0;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.bits = new long[wordCount(sizeX, sizeY)];
+    }
+
+    /**
+     * Creates a grid from an existing bitmap (2 bits per cell, see {@link #getWords()})
+     */
+    public GridGraph(int sizeX, int sizeY, long[] bits) {
+        if (bits.length != wordCount(sizeX, sizeY)) throw new IllegalArgumentException("bitmap has the wrong size");
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.bits = bits;
+    }
+
+    /**
+     * @return number of 64 bit words needed for a grid of the given size
+     */
+    public static int wordCount(int sizeX, int sizeY) {
+        return (int) (((long) sizeX * sizeY + 31) >> 5);
+    }
+
+    /**
+     * Finds connections which lead out of the grid, e.g. in a bitmap read from a file
+     * A south bit of the last cell of a column would otherwise connect it to the first cell of the next column.
+     *
+     * @return id of the first cell with such a connection, -1 if there is none
+     */
+    public int findInvalidEdge() {
+        for (int id = sizeY - 1; id < size(); id += sizeY) {
+            if (has(id, SOUTH)) return id;
+        }
+        for (int id = size() - sizeY; id < size(); id++) {
+            if (has(id, EAST)) return id;
+        }
+        int unused = (bits.length << 5) - size();
+        if (unused > 0 && bits[bits.length - 1] >>> ((32 - unused) << 1) != 0) return size();
+        return -1;
+    }
+
+    /**
+     * connects all cells with their neighbors
+     */
+    public void connectAll() {
+        for (int x = 0; x < sizeX; x++) {
+            for (int y = 0; y < sizeY; y++) {
+                int id = id(x, y);
+                if (x + 1 < sizeX) set(id, EAST, true);
+                if (y + 1 < sizeY) set(id, SOUTH, true);
+            }
+        }
+    }
+
+    /**
+     * connects two neighboring cells
+     *
+     * @throws IllegalArgumentException if the cells are not neighbors in the grid
+     */
+    public void connect(int a, int b) {
+        setEdge(a, b, true);
+    }
+
+    /**
+     * removes the connection between two neighboring cells
+     *
+     * @throws IllegalArgumentException if the cells are not neighbors in the grid
+     */
+    public void disconnect(int a, int b) {
+        setEdge(a, b, false);
+    }
+
+    /**
+     * connects a cell to its neighbor in the given direction, without checking that the neighbor exists
+     *
+     * @param direction {@link #EAST} or {@link #SOUTH}
+     */
+    void connectUnchecked(int id, int direction) {
+        set(id, direction, true);
+    }
+
+    /**
+     * @return true if both cells are neighbors in the grid and connected
+     */
+    public boolean isConnected(int a, int b) {
+        if (a > b) {
+            int temp = a;
+            a = b;
+            b = temp;
+        }
+        if (b - a == sizeY) return has(a, EAST);
+        if (b - a == 1 && b % sizeY != 0) return has(a, SOUTH);
+        return false;
+    }
+
+    /**
+     * Writes the ids of all connected neighbors into the given array
+     * Order: east, west, south, north
+     *
+     * @param out array with at least 4 elements
+     * @return number of neighbors
+     */
+    public int neighbors(int id, int[] out) {
+        int count = 0;
+        if (has(id, EAST)) out[count++] = id + sizeY;
+        if (id >= sizeY && has(id - sizeY, EAST)) out[count++] = id - sizeY;
+        if (has(id, SOUTH)) out[count++] = id + 1;
+        if (id % sizeY != 0 && has(id - 1, SOUTH)) out[count++] = id - 1;
+        return count;
+    }
+
+    /**
+     * @return number of connected neighbors
+     */
+    public int degree(int id) {
+        int count = 0;
+        if (has(id, EAST)) count++;
+        if (id >= sizeY && has(id - sizeY, EAST)) count++;
+        if (has(id, SOUTH)) count++;
+        if (id % sizeY != 0 && has(id - 1, SOUTH)) count++;
+        return count;
+    }
+
+    /**
+     * @param direction {@link #EAST} or {@link #SOUTH}
+     * @return true if the cell is connected to its neighbor in the given direction
+     */
+    public boolean has(int id, int direction) {
+        return (bits[id >> 5] >>> ((id & 31) << 1) & direction) != 0;
+    }
+
+    public boolean hasEast(int id) {
+        return has(id, EAST);
+    }
+
+    public boolean hasWest(int id) {
+        return id >= sizeY && has(id - sizeY, EAST);
+    }
+
+    public boolean hasSouth(int id) {
+        return has(id, SOUTH);
+    }
+
+    public boolean hasNorth(int id) {
+        return id % sizeY != 0 && has(id - 1, SOUTH);
+    }
+
+    /**
+     * @return id of the cell at the given coordinates, -1 if the coordinates are outside of the grid
+     */
+    public int id(int x, int y) {
+        if (x < 0 || y < 0 || x >= sizeX || y >= sizeY) return -1;
+        return x * sizeY + y;
+    }
+
+    public int x(int id) {
+        return id / sizeY;
+    }
+
+    public int y(int id) {
+        return id % sizeY;
+    }
+
+    public int size() {
+        return sizeX * sizeY;
+    }
+
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    /**
+     * raw bitmap, 32 cells per word, bit 2i (east) and bit 2i+1 (south) for the i-th cell of a word
+     */
+    public long[] getWords() {
+        return bits;
+    }
+
+    /**
+     * Reads the connections of 32 consecutive cells at once
+     * The cells of a column have consecutive ids, so a window covers up to 32 fields of one column.
+     *
+     * @param id first cell of the window (at least -31), cells outside of the grid have no connections
+     * @return 2 bits per cell in the layout of {@link #getWords()}, the first cell in the lowest bits
+     */
+    public long window(int id) {
+        if (id < 0) return window(0) << (-id << 1);
+        int word = id >> 5;
+        int shift = (id & 31) << 1;
+        if (word >= bits.length) return 0;
+        long low = bits[word] >>> shift;
+        if (shift == 0 || word + 1 >= bits.length) return low;
+        return low | (bits[word + 1] << (64 - shift));
+    }
+
+    private void setEdge(int a, int b, boolean value) {
+        if (a > b) {
+            int temp = a;
+            a = b;
+            b = temp;
+        }
+        if (a < 0 || b >= size()) throw new IllegalArgumentException("field is not part of the grid");
+        if (b - a == sizeY) {
+            set(a, EAST, value);
+        } else if (b - a == 1 && b % sizeY != 0) {
+            set(a, SOUTH, value);
+        } else {
+            throw new IllegalArgumentException("fields " + a + " and " + b + " are not neighbors in the grid");
+        }
+    }
+
+    private void set(int id, int direction, boolean value) {
+        long mask = (long) direction << ((id & 31) << 1);
+        if (value) {
+            bits[id >> 5] |= mask;
+        } else {
+            bits[id >> 5] &= ~mask;
+        }
+    }
+}
@@ -1,8 +1,19 @@
 package sphero.common;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Grid map of the maze
+ * <p>
+ * The connections between fields are always stored in a compact {@link GridGraph}.
+ * A regular map additionally creates one {@link Field} object (with a list of neighbors) per cell.
+ * A compact map only keeps the {@link GridGraph} and creates lightweight field views on demand,
+ * which makes it usable for very large maps.
+ */
 public class Map {
     private final List<Field> allFields;
 
@@ -11,6 +22,11 @@ public class Map {
     private final double scalingFactor;
     //private final Field[][] grid;
     private final Field[] fieldsById;
+    private final GridGraph grid;
+    /**
+     * atomic, so edits from several threads never end with the same version for different states of the map
+     */
+    private final AtomicInteger version = new AtomicInteger();
 
     /**
      * @param sizeX         length of the x axis in fields
@@ -19,18 +35,47 @@ public class Map {
      * @param noEdges       set to true, if no edges should be created
      */
     public Map(int sizeX, int sizeY, double scalingFactor, boolean noEdges) {
+        this(sizeX, sizeY, scalingFactor, noEdges, false);
+    }
+
+    /**
+     * @param sizeX         length of the x axis in fields
+     * @param sizeY         length of the y axis in fields
+     * @param scalingFactor scaling of the map (to translate field distances into real world distances)
+     * @param noEdges       set to true, if no edges should be created
+     * @param compact       set to true, if no field objects should be kept in memory
+     */
+    public Map(int sizeX, int sizeY, double scalingFactor, boolean noEdges, boolean compact) {
         assert sizeX > 0;
         assert sizeY > 0;
         assert scalingFactor > 0;
-        allFields = new ArrayList<>();
         this.sizeX = sizeX;
         this.sizeY = sizeY;
         //this.grid = new Field[sizeY][sizeX];
         this.scalingFactor = scalingFactor;
-        this.fieldsById = new Field[sizeX * sizeY];
-        createFields();
-        if (!noEdges) connectFields();
+        this.grid = new GridGraph(sizeX, sizeY);
+        if (compact) {
+            this.fieldsById = null;
+            this.allFields = Collections.unmodifiableList(new FieldView());
+            if (!noEdges) grid.connectAll();
+        } else {
+            this.fieldsById = new Field[sizeX * sizeY];
+            this.allFields = new ArrayList<>();
+            createFields();
+            if (!noEdges) connectFields();
+        }
+    }
 
+    /**
+     * Creates a compact map from an existing grid
+     */
+    public Map(GridGraph grid, double scalingFactor) {
+        this.sizeX = grid.getSizeX();
+        this.sizeY = grid.getSizeY();
+        this.scalingFactor = scalingFactor;
+        this.grid = grid;
+        this.fieldsById = null;
+        this.allFields = Collections.unmodifiableList(new FieldView());
     }
 
 
@@ -65,19 +110,38 @@ public class Map {
 
     /**
      * connects to fields
+     *
+     * @throws IllegalArgumentException if the fields are not neighbors in the grid
      */
     public void connect(Field a, Field b) {
         if (a == null || b == null) return;
-        a.addEdge(b);
-        b.addEdge(a);
+        connect(a.getId(), b.getId());
+    }
+
+    /**
+     * connects two fields by id, without creating field views on compact maps
+     */
+    void connect(int a, int b) {
+        grid.connect(a, b);
+        version.incrementAndGet();
+        if (!isCompact()) {
+            fieldsById[a].addEdge(fieldsById[b]);
+            fieldsById[b].addEdge(fieldsById[a]);
+        }
     }
 
     /**
      * Removes connection between two fields
+     *
+     * @throws IllegalArgumentException if the fields are not neighbors in the grid
      */
     public void disconnect(Field a, Field b) {
-        a.removeEdge(b);
-        b.removeEdge(a);
+        grid.disconnect(a.getId(), b.getId());
+        version.incrementAndGet();
+        if (!isCompact()) {
+            fieldsById[a.getId()].removeEdge(fieldsById[b.getId()]);
+            fieldsById[b.getId()].removeEdge(fieldsById[a.getId()]);
+        }
     }
 
     /**
@@ -85,25 +149,84 @@ public class Map {
      *
      * @param x x coordinate
      * @param y y coordinate
+     * @return null, if the position is outside of the map
      */
     public Field getField(int x, int y) {
+        if (x < 0 || y < 0 || x >= sizeX || y >= sizeY) {
+            return null;
+        }
         return getField(coordinatesToId(x, y));
     }
 
     /**
      * returns field with an id
+     * compact maps create a new field view for every call
      */
     public Field getField(int id) {
         if (id < 0 || id >= sizeX * sizeY) {
             return null;
         }
+        if (isCompact()) {
+            return new Field(id, id / sizeY, id % sizeY, this);
+        }
         return fieldsById[id];
     }
 
+    /**
+     * Writes the ids of all neighbors of a field into the given array, without creating any objects
+     * Regular maps keep the order of {@link Field#getNeighbors()}
+     *
+     * @param out array with at least 4 elements
+     * @return number of neighbors
+     */
+    public int getNeighbors(int id, int[] out) {
+        if (isCompact()) {
+            return grid.neighbors(id, out);
+        }
+        List<Field> neighbors = fieldsById[id].getNeighbors();
+        for (int i = 0; i < neighbors.size(); i++) {
+            out[i] = neighbors.get(i).getId();
+        }
+        return neighbors.size();
+    }
+
+    /**
+     * neighbors of a field view on a compact map
+     */
+    List<Field> neighborsOf(int id) {
+        int[] ids = new int[4];
+        int count = grid.neighbors(id, ids);
+        List<Field> neighbors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            neighbors.add(getField(ids[i]));
+        }
+        return neighbors;
+    }
+
+    /**
+     * all fields of the map
+     * the list of a compact map is an unmodifiable view, which creates the fields on demand
+     */
     public List<Field> getAllFields() {
         return allFields;
     }
 
+    public GridGraph getGrid() {
+        return grid;
+    }
+
+    /**
+     * Counts the changes made through {@link #connect(Field, Field)} and {@link #disconnect(Field, Field)},
+     * so precomputed data about the map can detect that it is outdated
+     */
+    public int getVersion() {
+        return version.get();
+    }
+
+    public boolean isCompact() {
+        return fieldsById == null;
+    }
+
     public int getSizeX() {
         return sizeX;
     }
@@ -120,4 +243,20 @@ public class Map {
     private int coordinatesToId(int x, int y) {
         return x * (sizeY) + y;
     }
+
+    /**
+     * list view of all fields of a compact map
+     */
+    private class FieldView extends AbstractList<Field> {
+        @Override
+        public Field get(int index) {
+            if (index < 0 || index >= size()) throw new IndexOutOfBoundsException(index);
+            return getField(index);
+        }
+
+        @Override
+        public int size() {
+            return sizeX * sizeY;
+        }
+    }
 }
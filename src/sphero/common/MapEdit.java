@@ -0,0 +1,63 @@
+package sphero.common;
+
+/**
+ * Connection or disconnection of two neighboring fields, e.g. an opened door or a blocked aisle
+ * Edits are applied with {@link #apply(Map)} and passed on to precomputed data, which has to be updated.
+ */
+public class MapEdit {
+
+    private final Field a;
+    private final Field b;
+    private final boolean connected;
+
+    private MapEdit(Field a, Field b, boolean connected) {
+        this.a = a;
+        this.b = b;
+        this.connected = connected;
+    }
+
+    /**
+     * @return edit which adds the connection between two neighboring fields
+     */
+    public static MapEdit connect(Field a, Field b) {
+        return new MapEdit(a, b, true);
+    }
+
+    /**
+     * @return edit which removes the connection between two neighboring fields
+     */
+    public static MapEdit disconnect(Field a, Field b) {
+        return new MapEdit(a, b, false);
+    }
+
+    /**
+     * changes the map through {@link Map#connect} or {@link Map#disconnect}
+     */
+    public void apply(Map map) {
+        if (connected) {
+            map.connect(a, b);
+        } else {
+            map.disconnect(a, b);
+        }
+    }
+
+    public Field getA() {
+        return a;
+    }
+
+    public Field getB() {
+        return b;
+    }
+
+    /**
+     * @return true if the edit adds a connection, false if it removes one
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public String toString() {
+        return (connected ? "connect " : "disconnect ") + a + " - " + b;
+    }
+}
@@ -0,0 +1,170 @@
+package sphero.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary map format, which is read through a memory-mapped file instead of being parsed
+ * <p>
+ * Layout, all numbers little endian:
+ * <ul>
+ * <li>header (32 bytes): magic "SPHM", format version, sizeX, sizeY (4 bytes each), scaling factor (8 bytes),
+ * number of locations, index of the start location or -1 (4 bytes each)</li>
+ * <li>connections: the words of {@link GridGraph#getWords()}, 2 bits per field</li>
+ * <li>locations (35 bytes each): field id (4), type (1), sub id (4), mandatory (1), time impact (8),
+ * range impact (8), time critical (1), deadline (8)</li>
+ * </ul>
+ * The connections are copied into the grid of a compact map with a single bulk copy, so even maps with 100 million
+ * fields load in a few milliseconds. {@link #convert(File, File)} converts files of the text format
+ * of {@link ConfigurationBuilder#fromFile(File)}.
+ */
+public final class MapFile {
+
+    private static final int MAGIC = 0x4d485053; // "SPHM" in little endian
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int LOCATION_BYTES = 35;
+    /**
+     * words of the grid which are written at once
+     */
+    private static final int CHUNK_WORDS = 1 << 17;
+
+    private MapFile() {
+    }
+
+    /**
+     * Converts a map of the text format into the binary format
+     * usage: MapFile input.txt output.map
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: MapFile <text map> <binary map>");
+            System.exit(1);
+        }
+        convert(new File(args[0]), new File(args[1]));
+    }
+
+    /**
+     * Reads a map of the text format and writes it in the binary format
+     */
+    public static void convert(File text, File binary) throws IOException {
+        ConfigurationBuilder builder = new ConfigurationBuilder().withCompactMap(true).fromFile(text);
+        write(builder.getMap(), builder.getStart(), builder.getLocations(), binary);
+    }
+
+    public static void write(Configuration config, File file) throws IOException {
+        write(config.getMap(), config.getStart(), config.getOrderedLocations(), file);
+    }
+
+    /**
+     * @param start     start location, which should be part of the locations, or null
+     * @param locations locations in the order in which they are read again
+     */
+    public static void write(Map map, Location start, List<Location> locations, File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(map.getSizeX()).putInt(map.getSizeY())
+                    .putDouble(map.getScalingFactor()).putInt(locations.size()).putInt(locations.indexOf(start));
+            writeFully(channel, header);
+
+            long[] words = map.getGrid().getWords();
+            ByteBuffer chunk = ByteBuffer.allocate(Math.min(words.length, CHUNK_WORDS) * 8).order(ByteOrder.LITTLE_ENDIAN);
+            for (int offset = 0; offset < words.length; offset += CHUNK_WORDS) {
+                int count = Math.min(CHUNK_WORDS, words.length - offset);
+                chunk.clear();
+                chunk.asLongBuffer().put(words, offset, count);
+                chunk.limit(count * 8);
+                writeFully(channel, chunk);
+            }
+
+            ByteBuffer table = ByteBuffer.allocate(locations.size() * LOCATION_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (Location l : locations) {
+                table.putInt(l.getField().getId()).put((byte) l.getType().ordinal()).putInt(l.getSubId())
+                        .put((byte) (l.isMandatory() ? 1 : 0)).putDouble(l.getTimeImpact())
+                        .putDouble(l.getRangeImpact()).put((byte) (l.isTimeCritical() ? 1 : 0))
+                        .putDouble(l.getDeadline());
+            }
+            writeFully(channel, table);
+        }
+    }
+
+    /**
+     * Reads a binary map into a builder
+     *
+     * @param compact true for a compact map (see {@link Map}), false to create an object for every field
+     * @throws IOException if the file is not a map of a supported format version, is truncated or contains
+     *                     connections which lead out of the map
+     */
+    public static ConfigurationBuilder read(File file, boolean compact) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) throw new IOException("not a map file");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC) throw new IOException("not a map file");
+            int format = buffer.getInt();
+            if (format != FORMAT_VERSION) throw new IOException("unsupported format version " + format);
+            int sizeX = buffer.getInt();
+            int sizeY = buffer.getInt();
+            double scalingFactor = buffer.getDouble();
+            int locationCount = buffer.getInt();
+            int startIndex = buffer.getInt();
+            if (sizeX <= 0 || sizeY <= 0 || (long) sizeX * sizeY > Integer.MAX_VALUE || locationCount < 0)
+                throw new IOException("invalid map size " + sizeX + "x" + sizeY);
+            int wordCount = GridGraph.wordCount(sizeX, sizeY);
+            if (channel.size() != HEADER_BYTES + (long) wordCount * 8 + (long) locationCount * LOCATION_BYTES)
+                throw new IOException("map file has the wrong length");
+
+            long[] words = new long[wordCount];
+            buffer.asLongBuffer().get(words);
+            buffer.position(HEADER_BYTES + wordCount * 8);
+            GridGraph grid = new GridGraph(sizeX, sizeY, words);
+            int invalid = grid.findInvalidEdge();
+            if (invalid >= 0) throw new IOException("connection of field " + invalid + " leads out of the map");
+            Map map = compact ? new Map(grid, scalingFactor) : expand(grid, scalingFactor);
+
+            List<Location> locations = new ArrayList<>(locationCount);
+            Location.Type[] types = Location.Type.values();
+            for (int i = 0; i < locationCount; i++) {
+                int id = buffer.getInt();
+                int type = buffer.get();
+                int subId = buffer.getInt();
+                boolean mandatory = buffer.get() != 0;
+                double timeImpact = buffer.getDouble();
+                double rangeImpact = buffer.getDouble();
+                boolean timeCritical = buffer.get() != 0;
+                double deadline = buffer.getDouble();
+                if (id < 0 || id >= sizeX * sizeY || type < 0 || type >= types.length)
+                    throw new IOException("invalid location " + i);
+                locations.add(new Location(map.getField(id), types[type], subId, mandatory, timeImpact,
+                        rangeImpact, timeCritical, deadline));
+            }
+            Location start = startIndex >= 0 && startIndex < locationCount ? locations.get(startIndex) : null;
+            return new ConfigurationBuilder().withMap(map).withStart(start).withLocations(locations);
+        }
+    }
+
+    /**
+     * creates a map with an object for every field
+     */
+    private static Map expand(GridGraph grid, double scalingFactor) {
+        Map map = new Map(grid.getSizeX(), grid.getSizeY(), scalingFactor, true);
+        for (int id = 0; id < grid.size(); id++) {
+            if (grid.hasEast(id)) map.connect(map.getField(id), map.getField(id + grid.getSizeY()));
+            if (grid.hasSouth(id)) map.connect(map.getField(id), map.getField(id + 1));
+        }
+        return map;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.rewind();
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+}
@@ -0,0 +1,32 @@
+package sphero.common;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a map file of the text format is malformed
+ */
+public class MapFormatException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
+    private final int column;
+
+    /**
+     * @param line   line of the error, starting with 1
+     * @param column column of the error, starting with 1 (0 for errors which concern the whole line)
+     */
+    public MapFormatException(int line, int column, String message) {
+        super("line " + line + (column > 0 ? ", column " + column : "") + ": " + message);
+        this.line = line;
+        this.column = column;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+}
@@ -1,14 +1,19 @@
 package sphero.common;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * A path is a connection between two destinations
  * A path consists of an ordered list of fields
+ * The list of a lazy path is only computed when it is accessed for the first time.
+ * The list of an encoded path is a view, which decodes the {@link EncodedPath} on access.
  */
 public class Path implements Comparable<Path> {
 
-    private final List<Field> fields;
+    private volatile List<Field> fields;
+    private volatile EncodedPath encoding;
+    private Supplier<List<Field>> materializer;
     private final Location from;
     private final Location to;
     private final double cost;
@@ -30,13 +35,89 @@ public class Path implements Comparable<Path> {
         estimateTime();
     }
 
+    /***
+     * Creates a path, which stores its fields run-length encoded
+     *
+     * @param encoding fields from start (exclusive) to end (inclusive)
+     * @param from     start field
+     * @param to       end field
+     * @param distance path distance
+     */
+    public Path(EncodedPath encoding, Location from, Location to, double distance) {
+        this.encoding = encoding;
+        this.fields = encoding.asList();
+        this.from = from;
+        this.to = to;
+        this.distance = distance;
+        cost = distance;
+        time = encoding.travelTime() + to.getTimeImpact();
+    }
+
+    /***
+     * Creates a lazy path, which only stores its cost and travel time until its fields are needed
+     *
+     * @param from         start field
+     * @param to           end field
+     * @param distance     path distance
+     * @param time         travel time, as estimated from the fields of the path
+     * @param materializer computes the ordered list of fields on the first call of {@link #getFields()}
+     */
+    public Path(Location from, Location to, double distance, double time, Supplier<List<Field>> materializer) {
+        this.materializer = materializer;
+        this.from = from;
+        this.to = to;
+        this.distance = distance;
+        this.time = time;
+        cost = distance;
+    }
+
+    /***
+     * Creates a lazy path, which keeps the run-length encoding of its fields, but only creates the list of fields
+     * on the first call of {@link #getFields()}
+     *
+     * @param from     start field
+     * @param to       end field
+     * @param distance path distance
+     * @param encoding fields from start (exclusive) to end (inclusive)
+     */
+    public Path(Location from, Location to, double distance, EncodedPath encoding) {
+        this(from, to, distance, encoding.travelTime() + to.getTimeImpact(), encoding::asList);
+        this.encoding = encoding;
+    }
+
     /**
      * ordered list of fields as a path from start (exclusive) to end (inclusive)
+     * the list of an encoded path is unmodifiable
      */
     public List<Field> getFields() {
+        if (fields == null && materializer != null) materialize();
         return fields;
     }
 
+    /**
+     * @return false if this is a lazy path, whose fields have not been computed yet
+     */
+    public boolean isMaterialized() {
+        return fields != null || materializer == null;
+    }
+
+    /**
+     * Run-length encoded fields of the path, e.g. for sending it to a robot
+     * Paths which were not created from an encoding are encoded on the first call.
+     *
+     * @throws IllegalArgumentException if two consecutive fields of the path are not neighbors
+     */
+    public EncodedPath getEncoding(Map map) {
+        if (encoding == null) encoding = EncodedPath.encode(map, from.getField(), getFields());
+        return encoding;
+    }
+
+    private synchronized void materialize() {
+        if (materializer == null) return;
+        fields = materializer.get();
+        materializer = null;
+    }
+
 
     public double getCost() {
         return cost;
@@ -69,7 +150,9 @@ public class Path implements Comparable<Path> {
 
 
     /**
-     * rudimentary estimate of the travel time
+     * rudimentary estimate of the travel time, with the same costs as {@link EncodedPath#travelTime()}
+     * every move costs {@link EncodedPath#STRAIGHT_TIME}, or {@link EncodedPath#TURN_TIME} if it is the first move
+     * or changes the direction
      */
     private void estimateTime() {
         if(fields == null || fields.isEmpty()){
@@ -77,23 +160,21 @@ public class Path implements Comparable<Path> {
             return;
         }
         double sum = 0;
-        Field last = null;
-        boolean flag = true;
+        Field last = from.getField();
         int x_vec = 0;
         int y_vec = 0;
         for (Field f : fields) {
-            if (flag) {
-                flag = false;
-                last = f;
-                continue;
-            }
-            int x_diff = Math.abs(f.getX() - last.getX());
-            int y_diff = Math.abs(f.getY() - last.getY());
+            int x_diff = f.getX() - last.getX();
+            int y_diff = f.getY() - last.getY();
+            if (x_diff == 0 && y_diff == 0) continue;
             if (x_vec == x_diff && y_vec == y_diff) {
-                sum += 1;
+                sum += EncodedPath.STRAIGHT_TIME;
             } else {
-                sum += 5;
+                sum += EncodedPath.TURN_TIME;
             }
+            x_vec = x_diff;
+            y_vec = y_diff;
+            last = f;
         }
         time = sum + to.getTimeImpact();
     }
@@ -0,0 +1,270 @@
+package sphero.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single pass parser of the text map format, which reads raw bytes and connects the fields directly
+ * <p>
+ * Format: the first two lines hold sizeX and sizeY, followed by a border line and then, for every x,
+ * a line with the fields and a line with the connections to the next x:
+ * <pre>
+ * 2
+ * 3
+ * *****
+ * *S+0*E*
+ * *+*+*
+ * *0+0+0*
+ * *****
+ * </pre>
+ * Fields are {@link Constants#FREE}, {@link Constants#ROBOT} (start) or {@link Constants#GOALS} (destination).
+ * Between two fields of a line, {@link Constants#TRANSITION} connects them and {@link Constants#WALL} separates them.
+ * The lines in between have one entry per field, a transition connects the field to the one of the next x.
+ * The first and the last character of every line belong to the border.
+ * <p>
+ * The parser only keeps the map and a fixed buffer in memory, so its time and memory are linear in the size of the map.
+ */
+final class TextMapParser {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final boolean compact;
+    private Map map;
+    private Location start;
+    private final List<Location> locations = new ArrayList<>();
+
+    private int sizeX;
+    private int sizeY;
+    private int line = 1;
+    private int column = 0;
+
+    // header lines
+    private int headerLine = 0;
+    private long headerValue = 0;
+    private boolean headerDigits = false;
+    private boolean headerEnded = false;
+
+    // map lines: 0 is the upper border, odd lines hold fields, even lines connections
+    private int row = 0;
+    private boolean fieldLine = false;
+    private int y = 0;
+    private int last = -1;
+
+    /**
+     * @param compact set to true for a compact map (see {@link Map})
+     */
+    TextMapParser(boolean compact) {
+        this.compact = compact;
+    }
+
+    /**
+     * Reads the whole stream, the stream is not closed
+     *
+     * @throws MapFormatException if the input is malformed
+     */
+    void parse(InputStream in) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            int i = 0;
+            while (i < n) {
+                if (map != null && column > 0) i = scan(buffer, i, n);
+                if (i < n) accept(buffer[i++] & 0xff);
+            }
+        }
+        if (column > 0) endLine();
+        if (map == null) throw new MapFormatException(line, 0, "missing map size");
+        if (row < 2 * sizeX) throw new MapFormatException(line, 0, "expected " + sizeX + " lines of fields, found " + row / 2);
+    }
+
+    Map getMap() {
+        return map;
+    }
+
+    Location getStart() {
+        return start;
+    }
+
+    List<Location> getLocations() {
+        return locations;
+    }
+
+    /**
+     * Fast path for free fields, transitions and walls inside of a map line
+     * Stops at any other character and at anything that would be an error, which is left to {@link #accept(int)}.
+     *
+     * @return index of the first character which was not handled
+     */
+    private int scan(byte[] buffer, int i, int n) {
+        int begin = i;
+        int y = this.y;
+        int x = row / 2;
+        int id = x * sizeY;
+        if (fieldLine) {
+            for (; i < n; i++) {
+                int c = buffer[i];
+                if (c == Constants.FREE && y < sizeY) {
+                    y++;
+                } else if (c == Constants.TRANSITION && y > 0 && y < sizeY) {
+                    connect(id + y - 1, id + y, GridGraph.SOUTH);
+                } else if (c != Constants.WALL) {
+                    break;
+                }
+            }
+        } else {
+            boolean inside = x > 0 && x < sizeX;
+            for (; i < n; i++) {
+                int c = buffer[i];
+                if (c == Constants.WALL && y <= sizeY) {
+                    y++;
+                } else if (c == Constants.TRANSITION && y < sizeY && inside) {
+                    connect(id - sizeY + y, id + y, GridGraph.EAST);
+                    y++;
+                } else {
+                    break;
+                }
+            }
+        }
+        if (i > begin) {
+            column += i - begin;
+            last = buffer[i - 1];
+            this.y = y;
+        }
+        return i;
+    }
+
+    private void accept(int c) throws MapFormatException {
+        if (c == '\n') {
+            endLine();
+            line++;
+            column = 0;
+            return;
+        }
+        if (c == '\r') return;
+        column++;
+        if (map == null) {
+            headerCharacter(c);
+            return;
+        }
+        if (column == 1) {
+            if (row > 2 * sizeX) throw new MapFormatException(line, 1, "unexpected line after the last line of fields");
+            if (c != Constants.WALL) throw new MapFormatException(line, 1, "expected '" + Constants.WALL + "' at the border");
+            return;
+        }
+        last = c;
+        if (fieldLine) fieldCharacter(c);
+        else connectionCharacter(c);
+    }
+
+    private void endLine() throws MapFormatException {
+        if (map == null) {
+            endHeaderLine();
+            return;
+        }
+        if (column == 0) {
+            if (row < 2 * sizeX) throw new MapFormatException(line, 0, "empty line");
+            return;
+        }
+        if (column > 1 && last != Constants.WALL)
+            throw new MapFormatException(line, column, "expected '" + Constants.WALL + "' at the border");
+        // the border at the end of a connection line is counted as an entry
+        int entries = fieldLine || column == 1 ? y : y - 1;
+        if (entries != sizeY)
+            throw new MapFormatException(line, 0, "expected " + sizeY + (fieldLine ? " fields" : " entries") + ", found " + entries);
+        row++;
+        fieldLine = !fieldLine;
+        y = 0;
+    }
+
+    /**
+     * a character of a line with fields and the connections between them, walls and the border are skipped
+     */
+    private void fieldCharacter(int c) throws MapFormatException {
+        int x = row / 2;
+        switch (c) {
+            case Constants.GOALS:
+            case Constants.ROBOT:
+            case Constants.FREE:
+                if (y >= sizeY) throw new MapFormatException(line, column, "more than " + sizeY + " fields");
+                if (c == Constants.GOALS) {
+                    locations.add(new Location(map.getField(x * sizeY + y), Location.Type.DESTINATION));
+                } else if (c == Constants.ROBOT) {
+                    if (start != null) throw new MapFormatException(line, column, "second start position");
+                    start = new Location(map.getField(x * sizeY + y), Location.Type.START);
+                    locations.add(start);
+                }
+                y++;
+                break;
+            case Constants.TRANSITION:
+                if (y == 0 || y >= sizeY) throw new MapFormatException(line, column, "transition outside of the map");
+                connect(x * sizeY + y - 1, x * sizeY + y, GridGraph.SOUTH);
+                break;
+            case Constants.WALL:
+                break;
+            default:
+                throw unexpected(c);
+        }
+    }
+
+    /**
+     * a character of a line with the connections between two x, the wall after the last entry is the border
+     */
+    private void connectionCharacter(int c) throws MapFormatException {
+        if (c != Constants.TRANSITION && c != Constants.WALL) throw unexpected(c);
+        if (y > sizeY || (y == sizeY && c == Constants.TRANSITION))
+            throw new MapFormatException(line, column, "more than " + sizeY + " entries");
+        if (c == Constants.TRANSITION) {
+            int x = row / 2;
+            if (x == 0 || x == sizeX) throw new MapFormatException(line, column, "transition outside of the map");
+            connect((x - 1) * sizeY + y, x * sizeY + y, GridGraph.EAST);
+        }
+        y++;
+    }
+
+    private void headerCharacter(int c) throws MapFormatException {
+        if (c >= '0' && c <= '9') {
+            if (headerEnded) throw unexpected(c);
+            headerValue = headerValue * 10 + (c - '0');
+            if (headerValue > Integer.MAX_VALUE) throw new MapFormatException(line, column, "number too large");
+            headerDigits = true;
+        } else if (c == ' ' || c == '\t') {
+            headerEnded = headerDigits;
+        } else {
+            throw unexpected(c);
+        }
+    }
+
+    private void endHeaderLine() throws MapFormatException {
+        if (!headerDigits) throw new MapFormatException(line, 0, "expected " + (headerLine == 0 ? "sizeX" : "sizeY"));
+        if (headerValue == 0) throw new MapFormatException(line, 0, "the size of the map has to be positive");
+        if (headerLine == 0) {
+            sizeX = (int) headerValue;
+        } else {
+            sizeY = (int) headerValue;
+            if ((long) sizeX * sizeY > Integer.MAX_VALUE) throw new MapFormatException(line, 0, "map too large");
+            map = new Map(sizeX, sizeY, 1.0, true, compact);
+        }
+        headerLine++;
+        headerValue = 0;
+        headerDigits = false;
+        headerEnded = false;
+    }
+
+    /**
+     * The positions are already checked and the map is not shared yet,
+     * so the grid of a compact map is changed directly
+     *
+     * @param direction direction from a to b, {@link GridGraph#EAST} or {@link GridGraph#SOUTH}
+     */
+    private void connect(int a, int b, int direction) {
+        if (compact) map.getGrid().connectUnchecked(a, direction);
+        else map.connect(a, b);
+    }
+
+    private MapFormatException unexpected(int c) {
+        String character = c >= 0x20 && c < 0x7f ? "'" + (char) c + "'" : String.format("0x%02x", c);
+        return new MapFormatException(line, column, "unexpected character " + character);
+    }
+}
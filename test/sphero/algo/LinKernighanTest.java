@@ -0,0 +1,100 @@
+package sphero.algo;
+
+import org.junit.jupiter.api.Test;
+import sphero.algo.global.LinKernighan;
+import sphero.algo.global.LocalSearch;
+import sphero.algo.global.LocalSearchOptions;
+import sphero.algo.local.AllPairShortestPaths;
+import sphero.common.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sphero.algo.TestTools.*;
+
+
+public class LinKernighanTest {
+
+    @Test
+    public void testSimpleConfiguration() {
+        Configuration config = generateConfiguration(6);
+        var mockAllPairShortestPaths = new AllPairShortestPaths() {
+            @Override
+            public Path[][] allPairs(List<Location> locationList, Map map) {
+                ArrayBuilder b = new ArrayBuilder(6);
+                b.appendLine(0, 25, 19, 19, 23, 28);
+                b.appendLine(25, 0, 24, 30, 27, 17);
+                b.appendLine(19, 24, 0, 18, 20, 23);
+                b.appendLine(19, 30, 18, 0, 19, 32);
+                b.appendLine(23, 27, 20, 19, 0, 41);
+                b.appendLine(28, 17, 23, 32, 41, 0);
+                return distancesToPathMatrix(b.arr, config.getOrderedLocations());
+            }
+        };
+        LinKernighan linKernighan = new LinKernighan(mockAllPairShortestPaths, 100, 10);
+        RoutingResult res = linKernighan.calculate(config);
+        assertTrue(res.isValid());
+        assertEquals(res.getCost(), 123);
+        verifyRoute_symmetric(res.getRoute(), 0, 1, 5, 2, 4, 3, 0);
+    }
+
+    @Test
+    public void testLargeConfiguration() {
+        Configuration config = (new MazeGenerator(true)).generate(300, 300, 499, true);
+        AllPairShortestPaths mock = (new MazeGenerator()).mockDistanceMatrix(config.getOrderedLocations());
+        RoutingResult localSearch = new LocalSearch(mock, 30, new LocalSearchOptions().withNeighbors(LocalSearchOptions.DEFAULT_NEIGHBORS)).calculate(config);
+        RoutingResult res = new LinKernighan(mock, 1, 500).calculate(config);
+        assertTrue(res.isValid());
+        assertEquals(500, res.getRoute().size());
+        assertEquals(500L, res.getRoute().stream().map(Path::getTo).distinct().count());
+        assertTrue(res.getCost() < localSearch.getCost());
+    }
+
+    @Test
+    public void testSmallConfiguration1() {
+        Configuration config = generateConfiguration(1);
+        var mockAllPairShortestPaths = new AllPairShortestPaths() {
+            @Override
+            public Path[][] allPairs(List<Location> locationList, Map map) {
+                ArrayBuilder b = new ArrayBuilder(1);
+                b.appendLine(0);
+                return distancesToPathMatrix(b.arr, config.getOrderedLocations());
+            }
+        };
+        RoutingResult res = new LinKernighan(mockAllPairShortestPaths, 10, 10).calculate(config);
+        assertTrue(res.isValid());
+        assertEquals(res.getCost(), 0);
+        verifyRoute_symmetric(res.getRoute(), 0);
+    }
+
+    @Test
+    public void testSmallConfiguration2() {
+        Configuration config = generateConfiguration(2);
+        var mockAllPairShortestPaths = new AllPairShortestPaths() {
+            @Override
+            public Path[][] allPairs(List<Location> locationList, Map map) {
+                ArrayBuilder b = new ArrayBuilder(2);
+                b.appendLine(0, 2);
+                b.appendLine(2, 0);
+                return distancesToPathMatrix(b.arr, config.getOrderedLocations());
+            }
+        };
+        RoutingResult res = new LinKernighan(mockAllPairShortestPaths, 10, 10).calculate(config);
+        assertTrue(res.isValid());
+        assertEquals(res.getCost(), 4);
+        verifyRoute_symmetric(res.getRoute(), 0, 1, 0);
+    }
+
+    @Test
+    public void testInvalidConfigurations() {
+        Configuration config = generateConfiguration(2);
+        var mockAllPairShortestPaths = new AllPairShortestPaths() {
+            @Override
+            public Path[][] allPairs(List<Location> locationList, Map map) {
+                return null;
+            }
+        };
+        RoutingResult res = new LinKernighan(mockAllPairShortestPaths, 10, 10).calculate(config);
+        assertFalse(res.isValid());
+    }
+}
@@ -4,12 +4,38 @@ import org.junit.Ignore;
 import org.junit.Test;
 import sphero.algo.local.AllPairShortestPaths;
 import sphero.algo.local.BFS;
+import sphero.algo.local.BidirectionalSearch;
+import sphero.algo.local.BitParallelBFS;
+import sphero.algo.local.Components;
+import sphero.algo.local.ContractionHierarchy;
+import sphero.algo.local.HierarchicalSearch;
+import sphero.algo.local.JumpPointSearch;
+import sphero.algo.local.JunctionGraph;
+import sphero.algo.local.Landmarks;
+import sphero.algo.local.PairScheduler;
+import sphero.algo.local.PathCache;
 import sphero.common.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class LocalRoutingTest {
     @Test
@@ -195,4 +221,730 @@ public class LocalRoutingTest {
         }
     }
 
+    @Test
+    public void testAllPairsOneToMany() {
+        Configuration config = (new MazeGenerator()).generate(40, 40, 25);
+        Path[][] expected = new AllPairShortestPaths().allPairs(config.getOrderedLocations(), config.getMap());
+        Path[][] actual = new AllPairShortestPaths(AllPairShortestPaths.Strategy.ONE_TO_MANY)
+                .allPairs(config.getOrderedLocations(), config.getMap());
+
+        for (int i = 0; i < expected.length; i++) {
+            for (int j = 0; j < expected.length; j++) {
+                assertEquals(expected[i][j].getDistance(), actual[i][j].getDistance());
+                assertEquals(expected[i][j].getFrom().getId(), actual[i][j].getFrom().getId());
+                assertEquals(expected[i][j].getTo().getId(), actual[i][j].getTo().getId());
+                assertEquals(expected[i][j].getFields().size(), actual[i][j].getFields().size());
+            }
+        }
+    }
+
+    @Test
+    public void testAllPairsLazy() {
+        Configuration config = (new MazeGenerator()).generate(40, 40, 20);
+        Path[][] expected = new AllPairShortestPaths().allPairs(config.getOrderedLocations(), config.getMap());
+        Path[][] actual = new AllPairShortestPaths(AllPairShortestPaths.Strategy.PAIRWISE_ASTAR, true)
+                .allPairs(config.getOrderedLocations(), config.getMap());
+
+        assertEquals(false, actual[0][1].isMaterialized());
+        for (int i = 0; i < expected.length; i++) {
+            for (int j = 0; j < expected.length; j++) {
+                assertEquals(expected[i][j].getDistance(), actual[i][j].getDistance());
+                assertEquals(expected[i][j].getTravelTime(), actual[i][j].getTravelTime());
+                assertEquals(expected[i][j].getFrom().getId(), actual[i][j].getFrom().getId());
+                assertEquals(expected[i][j].getTo().getId(), actual[i][j].getTo().getId());
+                List<Field> expectedFields = expected[i][j].getFields();
+                List<Field> actualFields = actual[i][j].getFields();
+                assertEquals(expectedFields.size(), actualFields.size());
+                for (int k = 0; k < expectedFields.size(); k++) {
+                    assertEquals(expectedFields.get(k).getId(), actualFields.get(k).getId());
+                }
+            }
+        }
+        assertEquals(true, actual[0][1].isMaterialized());
+    }
+
+    @Test
+    public void testLazyPathAfterEdit() {
+        Configuration config = (new MazeGenerator()).generate(20, 20, 5, true);
+        Map map = config.getMap();
+        List<Location> locations = config.getOrderedLocations();
+        Path[][] matrix = new AllPairShortestPaths(AllPairShortestPaths.Strategy.PAIRWISE_ASTAR, true)
+                .allPairs(locations, map);
+        Path expected = new AllPairShortestPaths().allPairs(locations, map)[0][1];
+
+        // the edit encloses the destination, but the lazy path keeps the fields it was found with
+        Field target = locations.get(1).getField();
+        for (Field neighbor : new ArrayList<>(map.getField(target.getId()).getNeighbors())) {
+            map.disconnect(map.getField(target.getId()), neighbor);
+        }
+        List<Field> fields = matrix[0][1].getFields();
+        assertEquals(expected.getFields().size(), fields.size());
+        assertEquals(target.getId(), fields.get(fields.size() - 1).getId());
+    }
+
+    @Test
+    public void testBidirectionalSearch() {
+        Configuration[] configs = {(new MazeGenerator()).generate(40, 40, 15),
+                (new MazeGenerator()).generate(40, 40, 15, true)};
+        BFS bfs = new BFS();
+        BidirectionalSearch bd = new BidirectionalSearch();
+        for (Configuration config : configs) {
+            Map map = config.getMap();
+            for (Location from : config.getOrderedLocations()) {
+                for (Location to : config.getOrderedLocations()) {
+                    Path expected = bfs.shortestDistanceBFS(from, to, map);
+                    Path aStar = bd.shortestDistanceAStar(from, to, map);
+                    Path breadthFirst = bd.shortestDistanceBFS(from, to, map);
+                    assertEquals(expected.getDistance(), aStar.getDistance());
+                    assertEquals(expected.getDistance(), breadthFirst.getDistance());
+                    assertEquals(expected.getFields().size(), aStar.getFields().size());
+                    assertEquals(expected.getFields().size(), breadthFirst.getFields().size());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testJumpPointSearch() {
+        Configuration[] configs = {(new MazeGenerator()).generate(40, 70, 15),
+                (new MazeGenerator()).generate(40, 70, 15, true),
+                (new MazeGenerator(true)).generate(40, 70, 15, true)};
+        Map sparse = configs[1].getMap();
+        for (int x = 0; x + 1 < sparse.getSizeX(); x += 3) {
+            for (int y = x % 5; y + 1 < sparse.getSizeY(); y += 4) {
+                sparse.disconnect(sparse.getField(x, y), sparse.getField(x + 1, y));
+                sparse.disconnect(sparse.getField(x, y), sparse.getField(x, y + 1));
+            }
+        }
+        BFS bfs = new BFS();
+        JumpPointSearch jps = new JumpPointSearch();
+        for (Configuration config : configs) {
+            Map map = config.getMap();
+            for (Location from : config.getOrderedLocations()) {
+                for (Location to : config.getOrderedLocations()) {
+                    Path expected = bfs.shortestDistanceBFS(from, to, map);
+                    Path actual = jps.shortestDistance(from, to, map);
+                    // the walls of the sparse map can enclose a destination
+                    if (expected == null) {
+                        assertNull(actual);
+                        continue;
+                    }
+                    assertEquals(expected.getDistance(), actual.getDistance());
+                    assertEquals(expected.getFields().size(), actual.getFields().size());
+                    if (from.getField().equals(to.getField())) continue;
+                    Field previous = from.getField();
+                    for (Field f : actual.getFields()) {
+                        assertEquals(true, map.getGrid().isConnected(previous.getId(), f.getId()));
+                        previous = f;
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLandmarks() {
+        Configuration config = (new MazeGenerator()).generate(40, 40, 15);
+        Map map = config.getMap();
+        Landmarks landmarks = Landmarks.get(map);
+        assertEquals(true, landmarks == Landmarks.get(map));
+
+        BFS bfs = new BFS();
+        for (int round = 0; round < 2; round++) {
+            for (Location from : config.getOrderedLocations()) {
+                for (Location to : config.getOrderedLocations()) {
+                    Path expected = bfs.shortestDistanceBFS(from, to, map);
+                    Path actual = bfs.shortestDistanceALT(from, to, map);
+                    assertEquals(expected == null, actual == null);
+                    if (expected == null) continue;
+                    assertEquals(expected.getDistance(), actual.getDistance());
+                    assertEquals(expected.getFields().size(), actual.getFields().size());
+                }
+            }
+            // opening walls shortens paths, so outdated landmarks would overestimate distances
+            for (int x = 0; x + 1 < map.getSizeX(); x += 2) {
+                map.connect(map.getField(x, 20), map.getField(x + 1, 20));
+                map.connect(map.getField(20, x), map.getField(20, x + 1));
+            }
+            assertEquals(false, landmarks.isValidFor(map));
+            assertEquals(false, landmarks == Landmarks.get(map));
+            landmarks = Landmarks.get(map);
+        }
+    }
+
+    @Test
+    public void testPathCache() {
+        Configuration config = (new MazeGenerator()).generate(40, 40, 15);
+        Map map = config.getMap();
+        List<Location> locations = config.getOrderedLocations();
+        int pairs = locations.size() * (locations.size() - 1) / 2;
+        for (AllPairShortestPaths.Strategy strategy : new AllPairShortestPaths.Strategy[]{
+                AllPairShortestPaths.Strategy.PAIRWISE_ASTAR, AllPairShortestPaths.Strategy.ONE_TO_MANY}) {
+            PathCache cache = new PathCache(1000, 100_000);
+            AllPairShortestPaths cached = new AllPairShortestPaths(strategy, false, cache);
+            for (int round = 0; round < 2; round++) {
+                Path[][] expected = new AllPairShortestPaths(strategy).allPairs(locations, map);
+                cache.resetStatistics();
+                Path[][] first = cached.allPairs(locations, map);
+                assertEquals(0, cache.getHits());
+                Path[][] second = cached.allPairs(locations, map);
+                assertEquals(pairs, cache.getHits());
+                assertEquals(0.5, cache.getHitRate());
+                for (int i = 0; i < expected.length; i++) {
+                    for (int j = 0; j < expected.length; j++) {
+                        for (Path[][] actual : new Path[][][]{first, second}) {
+                            assertEquals(expected[i][j].getDistance(), actual[i][j].getDistance());
+                            assertEquals(expected[i][j].getTravelTime(), actual[i][j].getTravelTime());
+                            List<Field> expectedFields = expected[i][j].getFields();
+                            List<Field> actualFields = actual[i][j].getFields();
+                            assertEquals(expectedFields.size(), actualFields.size());
+                            for (int k = 0; k < expectedFields.size(); k++) {
+                                assertEquals(expectedFields.get(k).getId(), actualFields.get(k).getId());
+                            }
+                        }
+                    }
+                }
+                // shortcuts make the cached paths outdated
+                for (int x = 0; x + 1 < map.getSizeX(); x += 2) {
+                    map.connect(map.getField(x, 20), map.getField(x + 1, 20));
+                }
+                assertEquals(0, cache.size(map));
+                assertEquals(1, cache.getInvalidations());
+            }
+        }
+
+        PathCache small = new PathCache(10, 100_000);
+        new AllPairShortestPaths(AllPairShortestPaths.Strategy.PAIRWISE_ASTAR, false, small).allPairs(locations, map);
+        assertEquals(10, small.size(map));
+        assertEquals(pairs - 10, small.getEvictions());
+    }
+
+    @Test
+    public void testJunctionGraph() {
+        Configuration maze = (new MazeGenerator()).generate(40, 40, 15);
+        Configuration loops = (new MazeGenerator()).generate(40, 40, 15);
+        for (int x = 0; x + 1 < 40; x += 3) loops.getMap().connect(loops.getMap().getField(x, 20), loops.getMap().getField(x + 1, 20));
+        Configuration open = (new MazeGenerator()).generate(40, 40, 15, true);
+        BFS bfs = new BFS();
+        for (Configuration config : new Configuration[]{maze, loops, open}) {
+            Map map = config.getMap();
+            List<Location> locations = config.getOrderedLocations();
+            JunctionGraph junctions = JunctionGraph.forLocations(map, locations);
+            if (config == maze) assertEquals(true, junctions.getNodeCount() < 100);
+            Path[][] matrix = new AllPairShortestPaths(AllPairShortestPaths.Strategy.JUNCTION_GRAPH).allPairs(locations, map);
+            for (int i = 0; i < locations.size(); i++) {
+                for (int j = 0; j < locations.size(); j++) {
+                    if (i == j) continue;
+                    Path expected = bfs.shortestDistanceBFS(locations.get(i), locations.get(j), map);
+                    Path actual = junctions.shortestDistance(locations.get(i), locations.get(j), map);
+                    assertEquals(expected.getDistance(), actual.getDistance());
+                    assertEquals(expected.getDistance(), matrix[i][j].getDistance());
+                    assertEquals(expected.getFields().size(), actual.getFields().size());
+                    Field previous = locations.get(i).getField();
+                    for (Field f : matrix[i][j].getFields()) {
+                        assertEquals(true, map.getField(previous.getId()).getNeighbors().contains(map.getField(f.getId())));
+                        previous = f;
+                    }
+                    assertEquals(locations.get(j).getField().getId(), previous.getId());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testContractionHierarchy() throws IOException {
+        Configuration maze = (new MazeGenerator()).generate(40, 40, 15);
+        Configuration loops = (new MazeGenerator()).generate(40, 40, 15);
+        for (int x = 0; x + 1 < 40; x += 3) loops.getMap().connect(loops.getMap().getField(x, 20), loops.getMap().getField(x + 1, 20));
+        Configuration open = (new MazeGenerator()).generate(40, 40, 15, true);
+        BFS bfs = new BFS();
+        for (Configuration config : new Configuration[]{maze, loops, open}) {
+            Map map = config.getMap();
+            List<Location> locations = config.getOrderedLocations();
+            ContractionHierarchy hierarchy = ContractionHierarchy.get(map);
+            assertEquals(true, hierarchy == ContractionHierarchy.get(map));
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            hierarchy.save(out);
+            ContractionHierarchy loaded = ContractionHierarchy.load(new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(true, loaded.isValidFor(map));
+            assertEquals(hierarchy.getEdgeCount(), loaded.getEdgeCount());
+
+            Path[][] matrix = new AllPairShortestPaths(AllPairShortestPaths.Strategy.CONTRACTION_HIERARCHY).allPairs(locations, map);
+            for (int i = 0; i < locations.size(); i++) {
+                for (int j = 0; j < locations.size(); j++) {
+                    if (i == j) continue;
+                    Path expected = bfs.shortestDistanceBFS(locations.get(i), locations.get(j), map);
+                    Path actual = loaded.shortestDistance(locations.get(i), locations.get(j), map);
+                    assertEquals(expected.getDistance(), actual.getDistance());
+                    assertEquals(expected.getFields().size(), actual.getFields().size());
+                    assertEquals(expected.getDistance(), matrix[i][j].getDistance());
+                    Field previous = locations.get(i).getField();
+                    for (Field f : matrix[i][j].getFields()) {
+                        assertEquals(true, map.getField(previous.getId()).getNeighbors().contains(map.getField(f.getId())));
+                        previous = f;
+                    }
+                    assertEquals(locations.get(j).getField().getId(), previous.getId());
+                }
+            }
+
+            map.disconnect(map.getField(0), map.getField(0).getNeighbors().get(0));
+            assertEquals(false, loaded.isValidFor(map));
+            assertEquals(false, hierarchy == ContractionHierarchy.get(map));
+        }
+    }
+
+    @Test
+    public void testContractionHierarchyInvalidFile() throws IOException {
+        Map map = (new MazeGenerator()).generate(10, 10, 5).getMap();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ContractionHierarchy.get(map).save(out);
+        byte[] valid = out.toByteArray();
+        int n = 100;
+        int edges = ByteBuffer.wrap(valid).getInt(24);
+        int targets = 28 + 4 * n + 4 * (n + 1);
+
+        // negative size, size overflowing an int, negative number of edges, wrong offsets, target out of range
+        int[][] corruptions = {{8, -1}, {12, 1 << 30}, {24, -5}, {24, edges + 1}, {28 + 4 * n, 1}, {targets, n}};
+        for (int[] corruption : corruptions) {
+            byte[] data = valid.clone();
+            ByteBuffer.wrap(data).putInt(corruption[0], corruption[1]);
+            assertThrows(IOException.class, () -> ContractionHierarchy.load(new ByteArrayInputStream(data)));
+        }
+        byte[] truncated = Arrays.copyOf(valid, valid.length - 4);
+        assertThrows(IOException.class, () -> ContractionHierarchy.load(new ByteArrayInputStream(truncated)));
+    }
+
+    @Test
+    public void testMapFile() throws IOException {
+        Configuration config = (new MazeGenerator()).generate(37, 41, 15);
+        Map map = config.getMap();
+        List<Location> locations = config.getOrderedLocations();
+        File file = File.createTempFile("map", ".sphm");
+        try {
+            MapFile.write(config, file);
+            for (boolean compact : new boolean[]{true, false}) {
+                ConfigurationBuilder builder = new ConfigurationBuilder().withCompactMap(compact).fromBinaryFile(file);
+                Map loaded = builder.getMap();
+                assertEquals(compact, loaded.isCompact());
+                assertEquals(map.getSizeX(), loaded.getSizeX());
+                assertEquals(map.getSizeY(), loaded.getSizeY());
+                for (Field f : map.getAllFields()) {
+                    assertEquals(f.getNeighbors().size(), loaded.getField(f.getId()).getNeighbors().size());
+                    for (Field n : f.getNeighbors()) {
+                        assertEquals(true, loaded.getGrid().isConnected(f.getId(), n.getId()));
+                    }
+                }
+                assertEquals(locations.size(), builder.getLocations().size());
+                assertEquals(locations.indexOf(config.getStart()), builder.getLocations().indexOf(builder.getStart()));
+                for (int i = 0; i < locations.size(); i++) {
+                    Location expected = locations.get(i);
+                    Location actual = builder.getLocations().get(i);
+                    assertEquals(expected.getField().getId(), actual.getField().getId());
+                    assertEquals(expected.getType(), actual.getType());
+                    assertEquals(expected.getDeadline(), actual.getDeadline(), 0);
+                }
+            }
+            try (RandomAccessFile truncated = new RandomAccessFile(file, "rw")) {
+                truncated.setLength(truncated.length() - 1);
+            }
+            assertThrows(IOException.class, () -> MapFile.read(file, true));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testMapFileInvalidEdges() throws IOException {
+        Configuration config = (new MazeGenerator()).generate(37, 41, 15);
+        File file = File.createTempFile("map", ".sphm");
+        try {
+            MapFile.write(config, file);
+            byte[] valid = Files.readAllBytes(file.toPath());
+            int size = 37 * 41;
+            // south of the last field of a column, east of a field in the last column, unused bits after the grid
+            int[][] edges = {{40, GridGraph.SOUTH}, {2 * 41 - 1, GridGraph.SOUTH}, {size - 41, GridGraph.EAST},
+                    {size - 1, GridGraph.EAST}, {size, GridGraph.EAST}, {size + 5, GridGraph.SOUTH}};
+            for (int[] edge : edges) {
+                byte[] data = valid.clone();
+                ByteBuffer words = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+                int offset = 32 + (edge[0] >> 5) * 8;
+                words.putLong(offset, words.getLong(offset) | (long) edge[1] << ((edge[0] & 31) << 1));
+                Files.write(file.toPath(), data);
+                for (boolean compact : new boolean[]{true, false}) {
+                    assertThrows(IOException.class, () -> MapFile.read(file, compact));
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testTextMapParser() throws IOException {
+        String text = "2\n3\n*****\n*S+0*E*\n*+*+*\n*0+0+0*\n*****\n";
+        for (boolean compact : new boolean[]{true, false}) {
+            ConfigurationBuilder builder = new ConfigurationBuilder().withCompactMap(compact)
+                    .fromStream(new ByteArrayInputStream(text.replace("\n", compact ? "\n" : "\r\n").getBytes()));
+            Map map = builder.getMap();
+            assertEquals(2, map.getSizeX());
+            assertEquals(3, map.getSizeY());
+            assertEquals(0, builder.getStart().getField().getId());
+            assertEquals(2, builder.getLocations().size());
+            assertEquals(2, builder.getLocations().get(1).getField().getId());
+            assertEquals(Location.Type.DESTINATION, builder.getLocations().get(1).getType());
+            int[][] connected = {{0, 1}, {0, 3}, {2, 5}, {3, 4}, {4, 5}};
+            int edges = 0;
+            for (Field f : map.getAllFields()) edges += f.getNeighbors().size();
+            assertEquals(2 * connected.length, edges);
+            for (int[] edge : connected) {
+                assertEquals(true, map.getField(edge[0]).getNeighbors().contains(map.getField(edge[1])));
+            }
+        }
+
+        String[][] malformed = {
+                {"2\nx\n", "line 2, column 1: unexpected character 'x'"},
+                {"2\n3\n*****\n*S+0*E*\n", "line 5: expected 2 lines of fields, found 1"},
+                {"2\n3\n*****\n*S+0*E*\n*+*+*\n*0+0+0+0*\n*****\n", "line 6, column 7: transition outside of the map"},
+                {"2\n3\n*****\n*S+0*E*\n*+*+*\n*0+0x0*\n*****\n", "line 6, column 5: unexpected character 'x'"},
+                {"2\n3\n*****\n*S+0*E*\n*+*+*\n*0+0*\n*****\n", "line 6: expected 3 fields, found 2"},
+                {"2\n3\n*+***\n*S+0*E*\n*+*+*\n*0+0+0*\n*****\n", "line 3, column 2: transition outside of the map"},
+                {"2\n3\n*****\n*S+0*S*\n*+*+*\n*0+0+0*\n*****\n", "line 4, column 6: second start position"},
+                {"2\n3\n*****\n*S+0*E*\n*+*+*\n*0+0+0*\n*****\n*****\n", "line 8, column 1: unexpected line after the last line of fields"},
+        };
+        for (String[] input : malformed) {
+            MapFormatException e = assertThrows(MapFormatException.class,
+                    () -> new ConfigurationBuilder().fromStream(new ByteArrayInputStream(input[0].getBytes())));
+            assertEquals(input[1], e.getMessage());
+        }
+    }
+
+    @Test
+    public void testComponents() {
+        Configuration config = (new MazeGenerator()).generate(40, 40, 15, true);
+        Map map = config.getMap();
+        List<Location> locations = config.getOrderedLocations();
+        Components components = Components.get(map);
+        assertEquals(true, components == Components.get(map));
+        assertEquals(1, components.getCount());
+        assertEquals(-1, components.firstUnreachable(locations));
+
+        // cut off the field of the last destination, other destinations may be on the same field
+        Field enclosed = locations.get(locations.size() - 1).getField();
+        for (Field neighbor : new ArrayList<>(enclosed.getNeighbors())) map.disconnect(enclosed, neighbor);
+        assertEquals(false, components.isValidFor(map));
+        components = Components.get(map);
+        assertEquals(2, components.getCount());
+        List<Location> outside = new ArrayList<>();
+        int expected = -1;
+        for (int i = 0; i < locations.size(); i++) {
+            boolean inside = locations.get(i).getField().getId() == enclosed.getId();
+            if (!inside) outside.add(locations.get(i));
+            if (expected < 0 && inside != (locations.get(0).getField().getId() == enclosed.getId())) expected = i;
+        }
+        assertEquals(expected, components.firstUnreachable(locations));
+        assertEquals(-1, components.firstUnreachable(outside));
+
+        BFS bfs = new BFS();
+        Location from = locations.get(0);
+        for (Field f : map.getAllFields()) {
+            if (f.getId() == from.getField().getId()) continue;
+            Path path = bfs.shortestDistanceBFS(from, new Location(f, Location.Type.DESTINATION), map);
+            assertEquals(path != null, components.connected(from.getField().getId(), f.getId()));
+        }
+        for (AllPairShortestPaths.Strategy strategy : AllPairShortestPaths.Strategy.values()) {
+            assertNull(new AllPairShortestPaths(strategy).allPairs(locations, map));
+        }
+        assertEquals(outside.size(), new AllPairShortestPaths().allPairs(outside, map).length);
+    }
+
+    @Test
+    public void testHierarchicalSearch() {
+        Configuration maze = (new MazeGenerator()).generate(40, 40, 15);
+        Configuration loops = (new MazeGenerator()).generate(40, 40, 15);
+        for (int x = 0; x + 1 < 40; x += 3) loops.getMap().connect(loops.getMap().getField(x, 20), loops.getMap().getField(x + 1, 20));
+        Configuration open = (new MazeGenerator()).generate(37, 43, 15, true);
+        BFS bfs = new BFS();
+        for (Configuration config : new Configuration[]{maze, loops, open}) {
+            Map map = config.getMap();
+            List<Location> locations = config.getOrderedLocations();
+            HierarchicalSearch exact = new HierarchicalSearch(map, 8, true);
+            HierarchicalSearch inexact = new HierarchicalSearch(map, 8, false);
+            for (int round = 0; round < 2; round++) {
+                for (Location from : locations) {
+                    for (Location to : locations) {
+                        if (from == to) continue;
+                        Path expected = bfs.shortestDistanceBFS(from, to, map);
+                        Path actual = exact.shortestDistance(from, to, map);
+                        assertEquals(expected.getDistance(), actual.getDistance());
+                        Path approximate = inexact.shortestDistance(from, to, map);
+                        assertEquals(true, approximate.getDistance() >= expected.getDistance());
+                        for (Path p : new Path[]{actual, approximate}) {
+                            assertEquals(p.getDistance(), p.getFields().size() + 1.0);
+                            Field previous = from.getField();
+                            for (Field f : p.getFields()) {
+                                assertEquals(true, map.getField(previous.getId()).getNeighbors().contains(map.getField(f.getId())));
+                                previous = f;
+                            }
+                            assertEquals(true, map.getField(previous.getId()).getNeighbors().contains(map.getField(to.getField().getId())));
+                        }
+                    }
+                }
+                // a shortcut across a cluster border only changes the two clusters next to it
+                List<MapEdit> edits = Collections.singletonList(MapEdit.connect(map.getField(7, 20), map.getField(8, 20)));
+                edits.get(0).apply(map);
+                assertEquals(false, exact.isValidFor(map));
+                assertEquals(2, exact.update(map, edits));
+                // in inexact mode, the neighbors of both clusters choose their entrances again
+                assertEquals(7, inexact.update(map, edits));
+                assertEquals(true, exact.isValidFor(map));
+            }
+        }
+    }
+
+    @Test
+    public void testHierarchicalSearchUpdate() {
+        // three clusters in a row, the openings between them are long enough for an entrance at both ends
+        Map map = new Map(24, 8, 1, false);
+        HierarchicalSearch inexact = new HierarchicalSearch(map, 8, false);
+        // a wall through the middle cluster splits it into two parts, so its openings get one entrance per part
+        List<MapEdit> edits = new ArrayList<>();
+        for (int x = 8; x < 16; x++) edits.add(MapEdit.disconnect(map.getField(x, 3), map.getField(x, 4)));
+        for (MapEdit edit : edits) edit.apply(map);
+        // the neighboring clusters have to choose the same entrances again
+        assertEquals(3, inexact.update(map, edits));
+
+        BFS bfs = new BFS();
+        List<Location> locations = new ArrayList<>();
+        for (Field f : map.getAllFields()) locations.add(new Location(f, Location.Type.DESTINATION));
+        for (Location from : locations) {
+            for (Location to : locations) {
+                if (from == to) continue;
+                Path expected = bfs.shortestDistanceBFS(from, to, map);
+                Path actual = inexact.shortestDistance(from, to, map);
+                assertEquals(expected == null, actual == null);
+                assertEquals(true, actual.getDistance() >= expected.getDistance());
+            }
+        }
+    }
+
+    @Test
+    public void testEncodedPath() {
+        // a straight path, which has to be split into runs of at most 64 moves
+        Map row = new Map(150, 3, 1, false);
+        List<Field> straight = new ArrayList<>();
+        for (int x = 1; x < 150; x++) straight.add(row.getField(x, 1));
+        EncodedPath line = EncodedPath.encode(row, row.getField(0, 1), straight);
+        assertEquals(3, line.getRunCount());
+        assertEquals(EncodedPath.TURN_TIME + 148 * EncodedPath.STRAIGHT_TIME, line.travelTime());
+        assertEquals(straight.get(100).getId(), line.asList().get(100).getId());
+        assertEquals(row.getField(0, 1).getId(), line.reverse().getEnd());
+
+        BFS bfs = new BFS();
+        for (boolean open : new boolean[]{false, true}) {
+            Configuration config = (new MazeGenerator()).generate(40, 40, 10, open);
+            Map map = config.getMap();
+            List<Location> locations = config.getOrderedLocations();
+            for (Location from : locations) {
+                for (Location to : locations) {
+                    if (from.getField().equals(to.getField())) continue;
+                    List<Field> fields = new ArrayList<>(bfs.shortestDistanceAStarPrimitive(from, to, map).getFields());
+                    fields.add(to.getField());
+                    Path expected = new Path(fields, from, to, fields.size());
+                    EncodedPath encoding = EncodedPath.encode(map, from.getField(), fields);
+                    Path actual = new Path(EncodedPath.fromBytes(encoding.toBytes(), map), from, to, fields.size());
+                    assertEquals(expected.getTravelTime(), actual.getTravelTime());
+                    assertEquals(fields.size(), actual.getFields().size());
+                    int k = 0;
+                    for (Field f : actual.getFields()) {
+                        assertEquals(fields.get(k).getId(), f.getId());
+                        assertEquals(fields.get(k).getId(), actual.getFields().get(k).getId());
+                        k++;
+                    }
+
+                    List<Field> reversed = new ArrayList<>(fields.subList(0, fields.size() - 1));
+                    Collections.reverse(reversed);
+                    reversed.add(from.getField());
+                    List<Field> decoded = encoding.reverse().asList();
+                    assertEquals(reversed.size(), decoded.size());
+                    for (k = 0; k < reversed.size(); k++) {
+                        assertEquals(reversed.get(k).getId(), decoded.get(k).getId());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPairScheduler() {
+        try (PairScheduler scheduler = new PairScheduler(4)) {
+            int n = 30;
+            AtomicIntegerArray runs = new AtomicIntegerArray(n * n);
+            PairScheduler.Report report = scheduler.forEachPair(n, (i, j) -> (i + j) % 7 == 0 ? -1 : j - i, (i, j) -> {
+                runs.incrementAndGet(i * n + j);
+                return true;
+            });
+            int total = 0;
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    assertEquals(i < j && (i + j) % 7 != 0 ? 1 : 0, runs.get(i * n + j));
+                    total += runs.get(i * n + j);
+                }
+            }
+            int tasks = 0;
+            for (int w = 0; w < report.getWorkers(); w++) tasks += report.getTasks(w);
+            assertEquals(total, tasks);
+            assertEquals(report, scheduler.getLastReport());
+
+            AtomicInteger started = new AtomicInteger();
+            scheduler.forEach(10_000, k -> k, k -> started.incrementAndGet() < 10);
+            assertEquals(true, started.get() < 10_000);
+
+            Configuration config = (new MazeGenerator()).generate(40, 40, 15);
+            List<Location> locations = config.getOrderedLocations();
+            for (AllPairShortestPaths.Strategy strategy : new AllPairShortestPaths.Strategy[]{
+                    AllPairShortestPaths.Strategy.PAIRWISE_ASTAR, AllPairShortestPaths.Strategy.ONE_TO_MANY}) {
+                Path[][] expected = new AllPairShortestPaths(strategy).allPairs(locations, config.getMap());
+                Path[][] actual = new AllPairShortestPaths(strategy, false, null, scheduler).allPairs(locations, config.getMap());
+                assertMatrix(expected, actual, config.getMap());
+            }
+        }
+    }
+
+    @Test
+    public void testBitParallelBFS() {
+        Map walls = new Map(30, 64, 1, false, true);
+        for (int x = 0; x + 1 < walls.getSizeX(); x += 2) {
+            for (int y = x % 3; y + 1 < walls.getSizeY(); y += 3) {
+                walls.disconnect(walls.getField(x, y), walls.getField(x + 1, y));
+                walls.disconnect(walls.getField(x, y), walls.getField(x, y + 1));
+            }
+        }
+        Map[] maps = {(new MazeGenerator()).generate(40, 70, 1).getMap(),
+                (new MazeGenerator(true)).generate(33, 70, 1, true).getMap(), walls};
+        BFS bfs = new BFS();
+        try (PairScheduler scheduler = new PairScheduler(4)) {
+            for (Map map : maps) {
+                BitParallelBFS search = new BitParallelBFS(map, scheduler);
+                Location from = new Location(map.getField(map.getSizeX() / 2, map.getSizeY() / 3), Location.Type.DESTINATION);
+                int[] dist = search.distances(from);
+                List<Location> targets = new ArrayList<>();
+                for (Field f : map.getAllFields()) {
+                    Location to = new Location(f, Location.Type.DESTINATION);
+                    Path expected = bfs.shortestDistanceBFS(from, to, map);
+                    assertEquals(expected == null ? BitParallelBFS.UNREACHABLE : (int) expected.getDistance(), dist[f.getId()]);
+                    if (f.getId() % 97 == 0) targets.add(to);
+                }
+                int[] targetDist = search.distances(from, targets);
+                for (int k = 0; k < targets.size(); k++) {
+                    assertEquals(dist[targets.get(k).getField().getId()], targetDist[k]);
+                }
+
+                // every level split across the workers, which merge their words into the next frontier
+                BitParallelBFS parallel = new BitParallelBFS(map, scheduler, 1);
+                assertArrayEquals(dist, parallel.distances(from));
+                assertArrayEquals(targetDist, parallel.distances(from, targets));
+            }
+
+            // large enough for the default threshold, on an open grid every distance is the manhattan distance
+            Map open = new Map(800, 800, 1, false, true);
+            Field center = open.getField(400, 300);
+            int[] dist = new BitParallelBFS(open, scheduler).distances(new Location(center, Location.Type.DESTINATION));
+            for (int x = 0; x < open.getSizeX(); x++) {
+                for (int y = 0; y < open.getSizeY(); y++) {
+                    assertEquals(Math.abs(x - center.getX()) + Math.abs(y - center.getY()), dist[open.getField(x, y).getId()]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRepair() {
+        for (boolean lazy : new boolean[]{false, true}) {
+            Configuration config = (new MazeGenerator()).generate(40, 40, 15, true);
+            Map map = config.getMap();
+            List<Location> locations = config.getOrderedLocations();
+            AllPairShortestPaths apsp = new AllPairShortestPaths(AllPairShortestPaths.Strategy.PAIRWISE_ASTAR, lazy);
+            Path[][] matrix = apsp.allPairs(locations, map);
+
+            // a wall across half of the map, then a door in it
+            List<MapEdit> edits = new ArrayList<>();
+            for (int y = 0; y < 20; y++) edits.add(MapEdit.disconnect(map.getField(19, y), map.getField(20, y)));
+            for (MapEdit edit : edits) edit.apply(map);
+            int repaired = apsp.repair(matrix, locations, map, edits);
+            assertEquals(true, repaired > 0);
+            // lazy paths keep their encoding, so they are only searched again if they use a removed connection
+            assertEquals(true, repaired < locations.size() * (locations.size() - 1) / 2);
+            assertMatrix(apsp.allPairs(locations, map), matrix, map);
+
+            edits = Collections.singletonList(MapEdit.connect(map.getField(19, 10), map.getField(20, 10)));
+            edits.get(0).apply(map);
+            assertEquals(true, apsp.repair(matrix, locations, map, edits) >= 0);
+            assertMatrix(apsp.allPairs(locations, map), matrix, map);
+        }
+    }
+
+    private void assertMatrix(Path[][] expected, Path[][] actual, Map map) {
+        for (int i = 0; i < expected.length; i++) {
+            for (int j = 0; j < expected.length; j++) {
+                if (i == j) continue;
+                assertEquals(expected[i][j].getDistance(), actual[i][j].getDistance());
+                // paths of equal distance can differ in their turns, so the time has to match the fields
+                Path copy = new Path(new ArrayList<>(actual[i][j].getFields()), actual[i][j].getFrom(), actual[i][j].getTo(), 0);
+                assertEquals(copy.getTravelTime(), actual[i][j].getTravelTime());
+                Field previous = actual[i][j].getFrom().getField();
+                for (Field f : actual[i][j].getFields()) {
+                    assertEquals(true, map.getField(previous.getId()).getNeighbors().contains(map.getField(f.getId())));
+                    previous = f;
+                }
+                assertEquals(actual[i][j].getTo().getField().getId(), previous.getId());
+            }
+        }
+    }
+
+    @Test
+    public void testCompactMap() {
+        Configuration config = (new MazeGenerator()).generate(40, 40, 15);
+        Map original = config.getMap();
+        Map compact = new Map(original.getSizeX(), original.getSizeY(), 1, true, true);
+        assertTrue(compact.isCompact());
+        for (Field f : original.getAllFields()) {
+            for (Field neighbor : f.getNeighbors()) {
+                compact.connect(compact.getField(f.getId()), compact.getField(neighbor.getId()));
+            }
+        }
+
+        int[][] directions = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+        int[] neighbors = new int[4];
+        for (int x = 0; x < original.getSizeX(); x++) {
+            for (int y = 0; y < original.getSizeY(); y++) {
+                Field f = original.getField(x, y);
+                Field view = compact.getField(x, y);
+                assertEquals(f, view);
+                for (int[] d : directions) {
+                    Field g = original.getField(x + d[0], y + d[1]);
+                    if (g == null) {
+                        assertNull(compact.getField(x + d[0], y + d[1]));
+                        continue;
+                    }
+                    boolean expected = f.getNeighbors().contains(g);
+                    assertEquals(expected, compact.getGrid().isConnected(f.getId(), g.getId()));
+                    assertEquals(expected, compact.getGrid().isConnected(g.getId(), f.getId()));
+                    assertEquals(expected, view.getNeighbors().contains(compact.getField(g.getId())));
+                }
+                assertEquals(f.getNeighbors().size(), compact.getNeighbors(f.getId(), neighbors));
+            }
+        }
+
+        BFS bfs = new BFS();
+        List<Location> locations = config.getOrderedLocations();
+        for (Location from : locations) {
+            for (Location to : locations) {
+                Path expected = bfs.shortestDistanceBFS(from, to, original);
+                Path actual = bfs.shortestDistanceAStarPrimitive(from, to, compact);
+                assertEquals(expected.getDistance(), actual.getDistance());
+            }
+        }
+    }
+
 }
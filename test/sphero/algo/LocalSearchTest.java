@@ -2,6 +2,8 @@ package sphero.algo;
 
 import org.junit.jupiter.api.Test;
 import sphero.algo.global.LocalSearch;
+import sphero.algo.global.LocalSearchOptions;
+import sphero.algo.global.NeighborLists;
 import sphero.algo.local.AllPairShortestPaths;
 import sphero.common.*;
 
@@ -57,6 +59,94 @@ public class LocalSearchTest {
         verifyRoute_symmetric(res.getRoute(), 0, 1, 5, 2, 4, 3, 0);
     }
 
+    @Test
+    public void testNeighborLists() {
+        Configuration config = generateConfiguration(6);
+        var mockAllPairShortestPaths = new AllPairShortestPaths() {
+            @Override
+            public Path[][] allPairs(List<Location> locationList, Map map) {
+                ArrayBuilder b = new ArrayBuilder(6);
+                b.appendLine(0, 25, 19, 19, 23, 28);
+                b.appendLine(25, 0, 24, 30, 27, 17);
+                b.appendLine(19, 24, 0, 18, 20, 23);
+                b.appendLine(19, 30, 18, 0, 19, 32);
+                b.appendLine(23, 27, 20, 19, 0, 41);
+                b.appendLine(28, 17, 23, 32, 41, 0);
+                return distancesToPathMatrix(b.arr, config.getOrderedLocations());
+            }
+        };
+        NeighborLists neighbors = new NeighborLists(new DistanceMatrix(mockAllPairShortestPaths.allPairs(null, null)), 3);
+        assertEquals(3, neighbors.size());
+        assertEquals(2, neighbors.get(0, 0));
+        assertEquals(3, neighbors.get(0, 1));
+        assertEquals(4, neighbors.get(0, 2));
+        assertEquals(5, new NeighborLists(new DistanceMatrix(mockAllPairShortestPaths.allPairs(null, null)), 10).size());
+
+        for (boolean dontLookBits : new boolean[]{true, false}) {
+            LocalSearchOptions options = new LocalSearchOptions().withNeighbors(3).withDontLookBits(dontLookBits);
+            RoutingResult res = new LocalSearch(mockAllPairShortestPaths, 1000, options).calculate(config);
+            assertTrue(res.isValid());
+            assertEquals(res.getCost(), 123);
+            verifyRoute_symmetric(res.getRoute(), 0, 1, 5, 2, 4, 3, 0);
+        }
+    }
+
+    @Test
+    public void testNeighborListsLargeConfiguration() {
+        Configuration config = (new MazeGenerator(true)).generate(300, 300, 199, true);
+        AllPairShortestPaths mock = (new MazeGenerator()).mockDistanceMatrix(config.getOrderedLocations());
+        RoutingResult full = new LocalSearch(mock, 5).calculate(config);
+        RoutingResult candidates = new LocalSearch(mock, 5, new LocalSearchOptions().withNeighbors(LocalSearchOptions.DEFAULT_NEIGHBORS)).calculate(config);
+        assertTrue(candidates.isValid());
+        assertEquals(200, candidates.getRoute().size());
+        assertEquals(200L, candidates.getRoute().stream().map(Path::getTo).distinct().count());
+        assertTrue(candidates.getCost() < full.getCost() * 1.05);
+    }
+
+    @Test
+    public void testMoveSets() {
+        Configuration config = generateConfiguration(6);
+        var mockAllPairShortestPaths = new AllPairShortestPaths() {
+            @Override
+            public Path[][] allPairs(List<Location> locationList, Map map) {
+                ArrayBuilder b = new ArrayBuilder(6);
+                b.appendLine(0, 25, 19, 19, 23, 28);
+                b.appendLine(25, 0, 24, 30, 27, 17);
+                b.appendLine(19, 24, 0, 18, 20, 23);
+                b.appendLine(19, 30, 18, 0, 19, 32);
+                b.appendLine(23, 27, 20, 19, 0, 41);
+                b.appendLine(28, 17, 23, 32, 41, 0);
+                return distancesToPathMatrix(b.arr, config.getOrderedLocations());
+            }
+        };
+        for (int k : new int[]{0, 3}) {
+            LocalSearchOptions options = new LocalSearchOptions().withNeighbors(k).withMoves(
+                    LocalSearchOptions.Move.TWO_OPT, LocalSearchOptions.Move.OR_OPT, LocalSearchOptions.Move.SEGMENT_INSERTION);
+            RoutingResult res = new LocalSearch(mockAllPairShortestPaths, 1000, options).calculate(config);
+            assertTrue(res.isValid());
+            assertEquals(res.getCost(), 123);
+            verifyRoute_symmetric(res.getRoute(), 0, 1, 5, 2, 4, 3, 0);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new LocalSearchOptions().withMoves());
+    }
+
+    @Test
+    public void testMoveSetsLargeConfiguration() {
+        Configuration config = (new MazeGenerator(true)).generate(300, 300, 199, true);
+        AllPairShortestPaths mock = (new MazeGenerator()).mockDistanceMatrix(config.getOrderedLocations());
+        RoutingResult full = new LocalSearch(mock, 5).calculate(config);
+        for (int k : new int[]{0, LocalSearchOptions.DEFAULT_NEIGHBORS}) {
+            for (LocalSearchOptions.Move move : new LocalSearchOptions.Move[]{LocalSearchOptions.Move.OR_OPT, LocalSearchOptions.Move.SEGMENT_INSERTION}) {
+                LocalSearchOptions options = new LocalSearchOptions().withNeighbors(k).withMoves(LocalSearchOptions.Move.TWO_OPT, move);
+                RoutingResult res = new LocalSearch(mock, 5, options).calculate(config);
+                assertTrue(res.isValid());
+                assertEquals(200, res.getRoute().size());
+                assertEquals(200L, res.getRoute().stream().map(Path::getTo).distinct().count());
+                assertTrue(res.getCost() < full.getCost() * 1.05);
+            }
+        }
+    }
+
     @Test
     public void testSmallConfiguration1() {
         Configuration config = generateConfiguration(1);
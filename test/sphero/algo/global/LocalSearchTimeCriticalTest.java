@@ -0,0 +1,148 @@
+package sphero.algo.global;
+
+import org.junit.jupiter.api.Test;
+import sphero.algo.MazeGenerator;
+import sphero.algo.local.AllPairShortestPaths;
+import sphero.common.Configuration;
+import sphero.common.DistanceMatrix;
+import sphero.common.Location;
+import sphero.common.Path;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LocalSearchTimeCriticalTest {
+
+    private final LocalSearch_TimeCritical search = new LocalSearch_TimeCritical(null, 1);
+
+    /**
+     * The prefix arrays add the same sums in the same order as the cost of a reversed copy of the tour,
+     * so every candidate, including the moves at the first and the last position, must cost exactly the same.
+     * A candidate is only rejected if it does not beat the bound.
+     */
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testReversedCostMatchesCopyEvaluation() {
+        Random random = new Random(25);
+        for (Configuration config : configurations(random, 20)) {
+            DistanceMatrix distances = new DistanceMatrix(new AllPairShortestPaths().allPairs(
+                    config.getOrderedLocations(), config.getMap()));
+            for (int run = 0; run < 5; run++) {
+                Location[] tour = LocalSearch.randomOrder(config);
+                double cost = search.cost(distances, tour);
+                LocalSearch_TimeCritical.Prefixes prefixes = new LocalSearch_TimeCritical.Prefixes(distances, tour);
+                assertEquals(cost, prefixes.cost(), 0);
+                for (int i = 0; i < tour.length - 1; i++) {
+                    for (int j = i + 1; j < tour.length; j++) {
+                        double expected = search.cost(distances, search.reversed(tour, i + 1, j));
+                        assertEquals(expected, prefixes.reversedCost(i, j, Double.POSITIVE_INFINITY), 0);
+                        // bounds just above and at the cost, and the bound of the first candidates of a pass
+                        assertEquals(expected, prefixes.reversedCost(i, j, Math.nextUp(expected)), 0);
+                        assertEquals(Double.POSITIVE_INFINITY, prefixes.reversedCost(i, j, expected), 0);
+                        assertEquals(expected < cost ? expected : Double.POSITIVE_INFINITY,
+                                prefixes.reversedCost(i, j, cost), 0);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares whole 2-opt passes with a pass which evaluates a reversed copy of the tour for every candidate
+     */
+    @Test
+    public void testTwoOptMatchesCopyEvaluation() {
+        Random random = new Random(26);
+        int firstMoves = 0;
+        int lastMoves = 0;
+        for (Configuration config : configurations(random, 20)) {
+            DistanceMatrix distances = new DistanceMatrix(new AllPairShortestPaths().allPairs(
+                    config.getOrderedLocations(), config.getMap()));
+            for (int run = 0; run < 5; run++) {
+                Location[] tour = LocalSearch.randomOrder(config);
+                Location[] expected = tour.clone();
+                for (int pass = 0; pass < 100; pass++) {
+                    int[] move = new int[2];
+                    double expectedDiff = improveByCopies(distances, expected, move);
+                    assertEquals(expectedDiff, search.improve_twoOpt(distances, tour), 0);
+                    assertArrayEquals(ids(expected), ids(tour));
+                    if (expectedDiff == 0) break;
+                    if (move[0] == 0) firstMoves++;
+                    if (move[1] == tour.length - 1) lastMoves++;
+                }
+            }
+        }
+        // moves at both ends of the tour were compared
+        assertTrue(firstMoves > 0);
+        assertTrue(lastMoves > 0);
+    }
+
+    /**
+     * Random mazes with deadlines, every other one with deadlines of a random tour with some slack,
+     * so that most of them can be met, the others with deadlines which are mostly missed
+     */
+    private static List<Configuration> configurations(Random random, int count) {
+        List<Configuration> configurations = new ArrayList<>();
+        while (configurations.size() < count) {
+            int size = 3 + random.nextInt(14);
+            Configuration config = new MazeGenerator().generate(30, 30, size, random.nextBoolean());
+            Path[][] paths = new AllPairShortestPaths().allPairs(config.getOrderedLocations(), config.getMap());
+            if (paths == null) continue;
+            if (configurations.size() % 2 == 0) {
+                DistanceMatrix distances = new DistanceMatrix(paths);
+                Location[] order = LocalSearch.randomOrder(config);
+                double time = 0;
+                for (int i = 1; i < order.length; i++) {
+                    time += distances.time(order[i - 1], order[i]) * 1.5;
+                    if (random.nextInt(3) == 0) order[i].setDeadline(time);
+                }
+            } else {
+                for (Location l : config.getOrderedLocations()) {
+                    if (l.getType() != Location.Type.START && random.nextInt(3) > 0) {
+                        l.setDeadline(random.nextDouble() * 15 * size);
+                    }
+                }
+            }
+            configurations.add(config);
+        }
+        return configurations;
+    }
+
+    /**
+     * 2-opt pass which computes the cost of a reversed copy for every candidate, as before the prefix arrays
+     *
+     * @param move receives i and j of the applied move
+     */
+    @SuppressWarnings("deprecation")
+    private double improveByCopies(DistanceMatrix distances, Location[] tour, int[] move) {
+        double diff = 0;
+        double cost = search.cost(distances, tour);
+        Location[] best = tour;
+        for (int i = 0; i < tour.length - 1; i++) {
+            for (int j = i + 1; j < tour.length; j++) {
+                Location[] alt = search.reversed(tour, i + 1, j);
+                double alt_cost = search.cost(distances, alt);
+                if (cost > alt_cost) {
+                    diff = cost - alt_cost;
+                    cost = alt_cost;
+                    best = alt;
+                    move[0] = i;
+                    move[1] = j;
+                }
+            }
+        }
+        System.arraycopy(best, 0, tour, 0, tour.length);
+        return diff;
+    }
+
+    private static int[] ids(Location[] tour) {
+        int[] ids = new int[tour.length];
+        for (int i = 0; i < tour.length; i++) ids[i] = tour[i].getId();
+        return ids;
+    }
+}
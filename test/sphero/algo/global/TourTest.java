@@ -0,0 +1,74 @@
+package sphero.algo.global;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TourTest {
+
+    /**
+     * Applies the same random flips and undos to both representations and compares the neighbors and the order
+     * of random triples after every step. Small tours have segments of two or three locations, so almost every
+     * flip splits segments and the segment table is rebuilt regularly.
+     */
+    @Test
+    public void testTwoLevelTourMatchesArrayTour() {
+        Random random = new Random(24);
+        for (int length : new int[]{5, 8, 9, 10, 17, 50, 101}) {
+            // ids of a subset of the locations in shuffled order
+            int n = length + 7;
+            int[] ids = new int[n];
+            for (int i = 0; i < n; i++) ids[i] = i;
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int temp = ids[i];
+                ids[i] = ids[j];
+                ids[j] = temp;
+            }
+            int[] order = new int[length];
+            System.arraycopy(ids, 0, order, 0, length);
+
+            Tour array = new ArrayTour(order.clone(), n);
+            Tour twoLevel = new TwoLevelTour(order.clone(), n);
+            Deque<int[]> flips = new ArrayDeque<>();
+            for (int step = 0; step < 5000; step++) {
+                if (!flips.isEmpty() && random.nextInt(3) == 0) {
+                    int[] f = flips.pop();
+                    array.flip(f[0], f[2], f[1], f[3]);
+                    twoLevel.flip(f[0], f[2], f[1], f[3]);
+                } else {
+                    // the edges are read from either tour, so both directions of the cycle are used
+                    Tour source = random.nextBoolean() ? array : twoLevel;
+                    boolean forward = random.nextBoolean();
+                    int a = order[random.nextInt(length)];
+                    int c = order[random.nextInt(length)];
+                    int b = forward ? source.next(a) : source.previous(a);
+                    int d = forward ? source.next(c) : source.previous(c);
+                    if (a == c || b == c || d == a) continue;
+                    array.flip(a, b, c, d);
+                    twoLevel.flip(a, b, c, d);
+                    flips.push(new int[]{a, b, c, d});
+                }
+                assertSameTour(array, twoLevel, order, random);
+            }
+        }
+    }
+
+    private void assertSameTour(Tour expected, Tour actual, int[] ids, Random random) {
+        boolean sameDirection = expected.next(ids[0]) == actual.next(ids[0]);
+        for (int id : ids) {
+            assertEquals(expected.next(id), sameDirection ? actual.next(id) : actual.previous(id));
+            assertEquals(expected.previous(id), sameDirection ? actual.previous(id) : actual.next(id));
+        }
+        for (int k = 0; k < 10; k++) {
+            int a = ids[random.nextInt(ids.length)];
+            int b = ids[random.nextInt(ids.length)];
+            int c = ids[random.nextInt(ids.length)];
+            assertEquals(expected.between(a, b, c), sameDirection ? actual.between(a, b, c) : actual.between(c, b, a));
+        }
+    }
+}